@@ -9,6 +9,8 @@ import net.minecraftforge.fml.event.lifecycle.FMLClientSetupEvent;
 import net.minecraftforge.fml.event.lifecycle.FMLCommonSetupEvent;
 import net.minecraftforge.fml.event.server.FMLServerStartingEvent;
 import net.minecraftforge.fml.javafmlmod.FMLJavaModLoadingContext;
+import net.minecraftforge.fml.loading.FMLLoader;
+import net.thesilkminer.mc.fermion.asm.common.utility.ExtractionMarker;
 import net.thesilkminer.mc.fermion.hook.OtherClassHook;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -16,6 +18,9 @@ import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 @Mod("fermion")
 public final class Fermion {
@@ -31,6 +36,22 @@ public final class Fermion {
         MinecraftForge.EVENT_BUS.register(this);
         LOGGER.info(MARKER, "Constructed");
         StartupMessageManager.addModMessage("Ahoy there! Fermion is here!");
+        this.deleteIfOrphaned();
+    }
+
+    private void deleteIfOrphaned() {
+        // When Fermion is removed, nothing is left to clean up its copy: the copy has to do it on its own
+        final Path file = FMLLoader.getLoadingModList().getModFileById("fermion").getFile().getFilePath();
+        ExtractionMarker.findSource(file).filter(it -> !Files.exists(it)).ifPresent(source -> {
+            LOGGER.warn(MARKER, "Fermion is no longer installed at '" + source + "': its copy '" + file + "' will be deleted when the game shuts down");
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(file);
+                } catch (@Nonnull final IOException e) {
+                    LOGGER.error(MARKER, "Unable to delete '" + file + "': remove it from the mods folder manually", e);
+                }
+            }));
+        });
     }
 
     @SubscribeEvent
@@ -54,11 +75,16 @@ public final class Fermion {
         final int idOfOtherClass = OtherClassHook.getId();
         final String printedOfOtherClass = OtherClassHook.print(otherClass, "Assuming a is bills");
         final int idOfOtherClassThroughMethod = OtherClassHook.getIdThroughMethod(new Object());
+        // Reflection gives the same results whether it was replaced with direct accesses or not
+        final String parameterOfOtherClassThroughReflection = OtherClassHook.getParameterReflectively(otherClass);
+        final int idOfOtherClassThroughReflection = OtherClassHook.getIdReflectively(new Object());
 
         boolean allMatches = expectedParameter.equals(parameterOfOtherClass)
                 && expectedId == idOfOtherClass
                 && expectedPrinted.equals(printedOfOtherClass)
-                && expectedIdThroughMethod == idOfOtherClassThroughMethod;
+                && expectedIdThroughMethod == idOfOtherClassThroughMethod
+                && expectedParameter.equals(parameterOfOtherClassThroughReflection)
+                && expectedIdThroughMethod == idOfOtherClassThroughReflection;
 
         if (allMatches) {
             LOGGER.info(CHECK_MARKER, "Successfully transformed OtherClassHook: it works");
@@ -67,6 +93,8 @@ public final class Fermion {
             LOGGER.warn(CHECK_MARKER, "Attempted to get ID of otherClass: expected " + expectedId + "; found " + idOfOtherClass);
             LOGGER.warn(CHECK_MARKER, "Attempted to call 'print' of otherClass: expected '" + expectedPrinted + "'; found '" + printedOfOtherClass + "'");
             LOGGER.warn(CHECK_MARKER, "Attempted to call 'getId' of otherClass: expected " + expectedIdThroughMethod + "; found " + idOfOtherClassThroughMethod);
+            LOGGER.warn(CHECK_MARKER, "Attempted to get parameter of otherClass reflectively: expected '" + expectedParameter + "'; found '" + parameterOfOtherClassThroughReflection + "'");
+            LOGGER.warn(CHECK_MARKER, "Attempted to call 'getId' of otherClass reflectively: expected " + expectedIdThroughMethod + "; found " + idOfOtherClassThroughReflection);
             LOGGER.warn(CHECK_MARKER, "If you've disabled the testing transformer, that's okay. If you haven't, report the issue on our GitHub!");
         }
     }
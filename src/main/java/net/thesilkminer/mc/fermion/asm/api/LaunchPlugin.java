@@ -13,10 +13,54 @@ import java.util.function.Consumer;
  * <p>Note that launch plugins are discovered and loaded automatically by the
  * environment.</p>
  *
+ * <p>Launch plugins are usually registered as services and constructed as
+ * soon as they are discovered. Alternatively, a launch plugin can be
+ * declared in the {@linkplain #LAZY_DECLARATIONS_RESOURCE lazy declarations
+ * file} of its JAR, in which case it is constructed only when one of the
+ * classes its transformers target is about to be transformed and at least
+ * one of those transformers may be enabled. Such a plugin must not also be
+ * registered as a service.</p>
+ *
  * @since 1.0.0
  */
 public interface LaunchPlugin {
 
+    /**
+     * The path of the resource that declares lazily loaded launch plugins.
+     *
+     * <p>The resource is a JSON object with a single {@code plugins} array.
+     * Every element of the array declares a launch plugin through its
+     * {@code id}, which must match the one in its {@link PluginMetadata},
+     * the fully qualified name of its {@code class}, which must have a public
+     * no-arguments constructor, and its {@code transformers}, an object that
+     * maps the name of every transformer the plugin registers to the array of
+     * the fully qualified names of the classes it targets:</p>
+     *
+     * <pre>
+     * {
+     *   "plugins": [
+     *     {
+     *       "id": "example.plugin",
+     *       "class": "com.example.mod.asm.ExamplePlugin",
+     *       "transformers": {
+     *         "example_transformer": [ "com.example.Target" ]
+     *       }
+     *     }
+     *   ]
+     * }
+     * </pre>
+     *
+     * <p>The declared targets are the only classes the plugin transformers
+     * are ever given, even if they ask for more when constructed. Since the
+     * plugin is constructed so late, its environment validation cannot
+     * prevent the game from launching anymore: if it fails, the plugin is
+     * simply not loaded. Lazily loaded plugins are also not reported as
+     * loaded by the {@link Environment} until they are constructed.</p>
+     *
+     * @since 1.1.0
+     */
+    String LAZY_DECLARATIONS_RESOURCE = "META-INF/fermion/lazy_launch_plugins.json";
+
     /**
      * Gets all the data associated to this launch plugin, such as its ID or
      * its name.
@@ -52,6 +96,12 @@ public interface LaunchPlugin {
      * specify both {@code com.example} and {@code com.example.sub}): only
      * the parent one should be specified.</p>
      *
+     * <p>Once the plugin has been constructed, classes and resources in
+     * these packages that are not visible to the parent class loader are
+     * looked up only in the JAR the plugin was loaded from. For this
+     * reason, no two plugins may claim the same package or a subpackage
+     * of one another: doing so is an error.</p>
+     *
      * @apiNote
      *      Ideally, you would only specify one package and try to put
      *      everything that relates to your Launch Plugin there. This method
@@ -1,10 +1,26 @@
 package net.thesilkminer.mc.fermion.asm.api;
 
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Sets;
 import cpw.mods.modlauncher.Launcher;
 import cpw.mods.modlauncher.api.INameMappingService;
+import net.thesilkminer.mc.fermion.asm.api.mapping.MappingFiles;
+import net.thesilkminer.mc.fermion.asm.api.mapping.MappingTable;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
 
 /**
  * Collection of utilities used to map names from their obfuscated to their
@@ -21,6 +37,23 @@ public enum MappingUtilities {
     INSTANCE;
     // TODO: Map them automatically?
 
+    private static final String MAPPING_NAME = "srg";
+    private static final String OFFLINE_MAPPINGS_PROPERTY = "fermion.mappings";
+    private static final String OFFLINE_OVERRIDE_PROPERTY = "fermion.mappings.override";
+
+    // Names are mapped at most once: every result is remembered, since mappings never change during a launch
+    private final Map<String, String> methods = new ConcurrentHashMap<>();
+    private final Map<String, String> fields = new ConcurrentHashMap<>();
+    private final Set<String> pendingMethods = Sets.newHashSet();
+    private final Set<String> pendingFields = Sets.newHashSet();
+
+    private volatile BiFunction<INameMappingService.Domain, String, String> mappingFunction;
+    private volatile BiFunction<INameMappingService.Domain, String, String> fallbackFunction;
+    private volatile MappingTable offlineMappings;
+    private boolean isOfflineOverride;
+    private boolean hasReadOfflineMappingsProperty;
+    private boolean hasResolvedPending;
+
     /**
      * Maps the given obfuscated method name to its de-obfuscated counterpart
      * if needed.
@@ -35,7 +68,7 @@ public enum MappingUtilities {
      */
     @Nonnull
     public String mapMethod(@Nonnull final String name) {
-        return this.map(name, INameMappingService.Domain.METHOD);
+        return this.map(Preconditions.checkNotNull(name), INameMappingService.Domain.METHOD, this.methods);
     }
 
     /**
@@ -52,15 +85,229 @@ public enum MappingUtilities {
      */
     @Nonnull
     public String mapField(@Nonnull final String name) {
-        return this.map(name, INameMappingService.Domain.FIELD);
+        return this.map(Preconditions.checkNotNull(name), INameMappingService.Domain.FIELD, this.fields);
+    }
+
+    /**
+     * Maps all the given obfuscated method names ahead of time, so that
+     * subsequent calls to {@link #mapMethod(String)} for those names are
+     * simple lookups.
+     *
+     * <p>If names cannot be mapped yet, e.g. because the mapping service has
+     * not been made available by the launcher, the names are remembered and
+     * they will be mapped as soon as that becomes possible. It is thus safe
+     * to call this method as early as transformer construction.</p>
+     *
+     * @param names
+     *      The names of the methods to map. It cannot be null.
+     *
+     * @since 1.1.0
+     */
+    public void preResolveMethods(@Nonnull final Collection<String> names) {
+        this.preResolve(Preconditions.checkNotNull(names), INameMappingService.Domain.METHOD, this.methods, this.pendingMethods);
+    }
+
+    /**
+     * Maps all the given obfuscated field names ahead of time, so that
+     * subsequent calls to {@link #mapField(String)} for those names are
+     * simple lookups.
+     *
+     * <p>If names cannot be mapped yet, e.g. because the mapping service has
+     * not been made available by the launcher, the names are remembered and
+     * they will be mapped as soon as that becomes possible. It is thus safe
+     * to call this method as early as transformer construction.</p>
+     *
+     * @param names
+     *      The names of the fields to map. It cannot be null.
+     *
+     * @since 1.1.0
+     */
+    public void preResolveFields(@Nonnull final Collection<String> names) {
+        this.preResolve(Preconditions.checkNotNull(names), INameMappingService.Domain.FIELD, this.fields, this.pendingFields);
+    }
+
+    /**
+     * Sets the mappings that should be used when the launcher is not able to
+     * provide any, or in place of the ones the launcher provides.
+     *
+     * <p>When used as a fallback, the given mappings are used only as long as
+     * the launcher does not provide a mapping service: as soon as it does,
+     * all names are mapped again through the launcher. When used as an
+     * override, the launcher is never queried.</p>
+     *
+     * <p>Offline mappings can also be provided without any code through the
+     * {@code fermion.mappings} system property, which holds a list of
+     * mapping files or directories separated by the platform's path
+     * separator, and the {@code fermion.mappings.override} system property.
+     * Mappings set through this method replace the ones read from the system
+     * properties. Refer to {@link MappingFiles} for the supported
+     * formats.</p>
+     *
+     * @param mappings
+     *      The mappings to use. It cannot be null.
+     * @param override
+     *      Whether the mappings should be used in place of the ones the
+     *      launcher provides, rather than as a fallback.
+     *
+     * @since 1.1.0
+     */
+    public void useOfflineMappings(@Nonnull final MappingTable mappings, final boolean override) {
+        Preconditions.checkNotNull(mappings);
+        synchronized (this) {
+            this.offlineMappings = mappings;
+            this.isOfflineOverride = override;
+            this.hasReadOfflineMappingsProperty = true;
+            // Whatever was mapped up to now may have been mapped differently
+            this.mappingFunction = null;
+            this.fallbackFunction = null;
+            this.methods.clear();
+            this.fields.clear();
+        }
+    }
+
+    /**
+     * Gets the offline mappings that are currently in use, if any.
+     *
+     * <p>This is mostly useful to perform reverse lookups, which the
+     * launcher's mapping service does not support.</p>
+     *
+     * @return
+     *      An {@link Optional} holding the offline mappings, if any were set
+     *      either through {@link #useOfflineMappings(MappingTable, boolean)}
+     *      or through system properties.
+     *
+     * @since 1.1.0
+     */
+    @Nonnull
+    public Optional<MappingTable> getOfflineMappings() {
+        synchronized (this) {
+            this.readOfflineMappingsProperty();
+        }
+        return Optional.ofNullable(this.offlineMappings);
+    }
+
+    /**
+     * Maps all names whose pre-resolution had to be delayed, if the mapping
+     * service is available.
+     *
+     * <p>Fermion calls this method itself as soon as the launcher makes the
+     * mapping service available, so there should be no need for plugins to
+     * call it.</p>
+     *
+     * <p>Offline mappings used as a fallback do not count as a mapping
+     * service: names are mapped through them in the meantime, but they are
+     * still considered pending.</p>
+     *
+     * <p>After this method has been called, the launcher is not asked for
+     * its mapping service anymore: if it was not available, names are from
+     * then on mapped through the offline mappings, if any, or left as they
+     * are.</p>
+     *
+     * @return
+     *      Whether the mapping service was available and names could thus be
+     *      mapped.
+     *
+     * @since 1.1.0
+     */
+    public boolean resolvePending() {
+        synchronized (this) {
+            this.findMappingFunction();
+            final boolean isMapped = this.mappingFunction != null;
+            // The launcher won't provide its mappings any later than this, so there's no point in looking for them on every lookup
+            this.hasResolvedPending = true;
+            if (!isMapped) this.publish(this.fallbackFunction != null ? this.fallbackFunction : (domain, name) -> name);
+            return isMapped;
+        }
+    }
+
+    @Nonnull
+    private String map(@Nonnull final String name, @Nonnull final INameMappingService.Domain domain, @Nonnull final Map<String, String> cache) {
+        final String cached = cache.get(name);
+        if (cached != null) return cached;
+        final BiFunction<INameMappingService.Domain, String, String> known = this.mappingFunction;
+        if (known != null) return cache.computeIfAbsent(name, it -> known.apply(domain, it));
+        // Nothing is remembered until the mapping service is available, otherwise we'd keep handing out unmapped or fallback names
+        final BiFunction<INameMappingService.Domain, String, String> fallback = this.fallbackFunction;
+        if (fallback != null) return fallback.apply(domain, name);
+        final BiFunction<INameMappingService.Domain, String, String> mappingFunction = this.findMappingFunction();
+        if (mappingFunction == null) return name;
+        return mappingFunction == this.mappingFunction ? cache.computeIfAbsent(name, it -> mappingFunction.apply(domain, it)) : mappingFunction.apply(domain, name);
+    }
+
+    private void preResolve(@Nonnull final Collection<String> names, @Nonnull final INameMappingService.Domain domain,
+                            @Nonnull final Map<String, String> cache, @Nonnull final Set<String> pending) {
+        final BiFunction<INameMappingService.Domain, String, String> mappingFunction;
+        synchronized (this) {
+            this.findMappingFunction();
+            mappingFunction = this.mappingFunction;
+            // Fallback mappings are not enough: these names are mapped again once the mapping service shows up
+            if (mappingFunction == null) {
+                pending.addAll(names);
+                return;
+            }
+        }
+        for (@Nonnull final String name : names) {
+            cache.computeIfAbsent(name, it -> mappingFunction.apply(domain, it));
+        }
+    }
+
+    @Nullable
+    private BiFunction<INameMappingService.Domain, String, String> findMappingFunction() {
+        final BiFunction<INameMappingService.Domain, String, String> known = this.mappingFunction;
+        if (known != null) return known;
+
+        synchronized (this) {
+            if (this.mappingFunction != null) return this.mappingFunction;
+            this.readOfflineMappingsProperty();
+
+            final MappingTable offline = this.offlineMappings;
+            if (offline != null && this.isOfflineOverride) return this.publish(offlineMappingFunction(offline));
+
+            final BiFunction<INameMappingService.Domain, String, String> found = Optional.ofNullable(Launcher.INSTANCE)
+                    .map(Launcher::environment)
+                    .flatMap(it -> it.findNameMapping(MAPPING_NAME))
+                    .orElse(null);
+            if (found != null) return this.publish(found);
+            if (this.hasResolvedPending) return this.publish(offline == null ? (domain, name) -> name : offlineMappingFunction(offline));
+            if (offline == null) return null;
+
+            // The fallback is not published, since the launcher may still provide its mappings later
+            if (this.fallbackFunction == null) this.fallbackFunction = offlineMappingFunction(offline);
+            return this.fallbackFunction;
+        }
+    }
+
+    @Nonnull
+    private BiFunction<INameMappingService.Domain, String, String> publish(@Nonnull final BiFunction<INameMappingService.Domain, String, String> function) {
+        this.fallbackFunction = null;
+        this.mappingFunction = function;
+        this.pendingMethods.forEach(it -> this.methods.computeIfAbsent(it, name -> function.apply(INameMappingService.Domain.METHOD, name)));
+        this.pendingFields.forEach(it -> this.fields.computeIfAbsent(it, name -> function.apply(INameMappingService.Domain.FIELD, name)));
+        this.pendingMethods.clear();
+        this.pendingFields.clear();
+        return function;
+    }
+
+    private void readOfflineMappingsProperty() {
+        if (this.hasReadOfflineMappingsProperty) return;
+        this.hasReadOfflineMappingsProperty = true;
+        final String files = System.getProperty(OFFLINE_MAPPINGS_PROPERTY);
+        if (files == null || files.isEmpty()) return;
+        try {
+            this.offlineMappings = MappingFiles.read(Arrays.stream(files.split(File.pathSeparator)).map(Paths::get).toArray(Path[]::new));
+            this.isOfflineOverride = Boolean.getBoolean(OFFLINE_OVERRIDE_PROPERTY);
+        } catch (@Nonnull final IOException e) {
+            throw new UncheckedIOException("Unable to read mappings from '" + files + "'", e);
+        }
     }
 
     @Nonnull
-    private String map(@Nonnull final String name, @Nonnull final INameMappingService.Domain domain) {
-        return Optional.ofNullable(Launcher.INSTANCE)
-                .map(Launcher::environment)
-                .flatMap(it -> it.findNameMapping("srg"))
-                .map(it -> it.apply(domain, name))
-                .orElse(name);
+    private static BiFunction<INameMappingService.Domain, String, String> offlineMappingFunction(@Nonnull final MappingTable mappings) {
+        return (domain, name) -> {
+            /*mutable*/ String mapped = null;
+            if (domain == INameMappingService.Domain.METHOD) mapped = mappings.mapMethod(name);
+            if (domain == INameMappingService.Domain.FIELD) mapped = mappings.mapField(name);
+            return mapped == null ? name : mapped;
+        };
     }
 }
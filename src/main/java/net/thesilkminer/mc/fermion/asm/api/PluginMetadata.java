@@ -44,10 +44,12 @@ public final class PluginMetadata {
         private String credits;
         private final List<Author> authors;
         private String description;
+        private final List<String> dependencies;
 
         private Builder(@Nonnull final String id) {
             this.id = id;
             this.authors = Lists.newArrayList();
+            this.dependencies = Lists.newArrayList();
         }
 
         /**
@@ -128,6 +130,11 @@ public final class PluginMetadata {
             return this.description;
         }
 
+        @Nonnull
+        List<String> getDependencies() {
+            return ImmutableList.copyOf(this.dependencies);
+        }
+
         /**
          * Sets the version of this launch plugin.
          *
@@ -341,6 +348,44 @@ public final class PluginMetadata {
             return this.addAuthor(Author.of(author));
         }
 
+        /**
+         * Adds the ID of a plugin this plugin depends on.
+         *
+         * <p>A plugin that declares a dependency is guaranteed that every
+         * step of the loading process is run for the dependency before it
+         * is run for the plugin itself, e.g. the dependency transformers
+         * have already been registered when the registration of the
+         * plugin transformers is started. Steps of plugins that do not
+         * depend on each other may instead run concurrently.</p>
+         *
+         * <p>Each dependency can only be added once and a plugin cannot
+         * depend on itself. Dependencies must be available when the plugin
+         * is loaded, otherwise the plugin is deemed incompatible with the
+         * environment.</p>
+         *
+         * @param id
+         *      The ID of the plugin to depend on. It cannot be null.
+         * @return
+         *      This builder for chaining.
+         * @throws IllegalStateException
+         *      If the given dependency was already added or if it refers to
+         *      this plugin.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder addDependency(@Nonnull final String id) {
+            Preconditions.checkNotNull(id);
+            if (this.id.equals(id)) {
+                throw new IllegalStateException("A plugin cannot depend on itself");
+            }
+            if (this.dependencies.contains(id)) {
+                throw new IllegalStateException("Unable to add the same dependency more than once");
+            }
+            this.dependencies.add(id);
+            return this;
+        }
+
         /**
          * Builds a new {@link PluginMetadata} instance with the provided
          * information.
@@ -451,6 +496,7 @@ public final class PluginMetadata {
     private final String credits;
     private final List<Author> authors;
     private final String description;
+    private final List<String> dependencies;
 
     private PluginMetadata(@Nonnull final PluginMetadata.Builder builder) {
         this.id = Preconditions.checkNotNull(builder.getId());
@@ -461,6 +507,7 @@ public final class PluginMetadata {
         this.credits = builder.getCredits();
         this.authors = builder.getAuthors();
         this.description = builder.getDescription();
+        this.dependencies = builder.getDependencies();
     }
 
     /**
@@ -573,6 +620,20 @@ public final class PluginMetadata {
         return this.description;
     }
 
+    /**
+     * Gets the IDs of the plugins this plugin depends on.
+     *
+     * @return
+     *      The list of dependencies of this plugin, in the order they were
+     *      added. Guaranteed not to be null. Possible to be empty.
+     *
+     * @since 1.1.0
+     */
+    @Nonnull
+    public List<String> getDependencies() {
+        return this.dependencies;
+    }
+
     @Override
     public boolean equals(@Nullable final Object o) {
         if (this == o) return true;
@@ -585,12 +646,13 @@ public final class PluginMetadata {
                 Objects.equals(this.url, that.url) &&
                 Objects.equals(this.credits, that.credits) &&
                 Objects.equals(this.authors, that.authors) &&
-                Objects.equals(this.description, that.description);
+                Objects.equals(this.description, that.description) &&
+                Objects.equals(this.dependencies, that.dependencies);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.id, this.version, this.name, this.logo, this.url, this.credits, this.authors, this.description);
+        return Objects.hash(this.id, this.version, this.name, this.logo, this.url, this.credits, this.authors, this.description, this.dependencies);
     }
 
     @Override
@@ -604,6 +666,7 @@ public final class PluginMetadata {
                 ", credits='" + this.credits + '\'' +
                 ", authors=" + this.authors +
                 ", description='" + (this.description == null? "<null>" : this.description.replace("\n", "\\n").replace("\r", "\\r") + '\'') +
+                ", dependencies=" + this.dependencies +
                 '}';
     }
 }
@@ -1,7 +1,6 @@
 package net.thesilkminer.mc.fermion.asm.api.descriptor;
 
 import com.google.common.base.Preconditions;
-import com.google.common.collect.Maps;
 import org.objectweb.asm.Type;
 
 import javax.annotation.Nonnull;
@@ -20,24 +19,37 @@ import java.util.Objects;
  * <p>Note that instances of this class, if properly used, do not cause class
  * loading neither during construction or during normal usage.</p>
  *
+ * <p>Instances of this class are interned: two descriptors targeting the same
+ * class are always the same object, which makes it safe to compare them by
+ * identity and to share them between threads.</p>
+ *
  * @since 1.0.0
  */
 public final class ClassDescriptor {
 
-    private static final Map<String, ClassDescriptor> CACHE = Maps.newHashMap();
+    private static final Map<String, ClassDescriptor> CACHE = DescriptorInterning.newCache();
 
     private final String className;
     private final boolean primitive;
+    private final String asmName;
+    private final String asmMethodDescriptor;
+    private final int hashCode;
 
     private ClassDescriptor(@Nonnull final String className, final boolean primitive) {
         this.className = className;
         this.primitive = primitive;
+        this.asmName = this.computeAsmName();
+        // Array names are already descriptors
+        this.asmMethodDescriptor = this.primitive || this.className.charAt(0) == '['? this.asmName : "L" + this.asmName + ";";
+        this.hashCode = Objects.hash(this.className);
     }
 
     @Nonnull
     private static ClassDescriptor of(@Nonnull final String className, final boolean isPrimitive) {
         Preconditions.checkNotNull(className);
-        final String name = className.contains("/")? className.replace('/', '.') : className;
+        final ClassDescriptor cached = CACHE.get(className);
+        if (cached != null) return cached;
+        final String name = className.indexOf('/') != -1? className.replace('/', '.') : className;
         return CACHE.computeIfAbsent(name, k -> new ClassDescriptor(k, isPrimitive));
     }
 
@@ -200,6 +212,11 @@ public final class ClassDescriptor {
      */
     @Nonnull
     public String toAsmName() {
+        return this.asmName;
+    }
+
+    @Nonnull
+    private String computeAsmName() {
         if (!this.primitive) return this.className.replace('.', '/');
         switch (this.className) {
             case "void": return "V";
@@ -232,7 +249,7 @@ public final class ClassDescriptor {
      */
     @Nonnull
     public String toAsmMethodDescriptor() {
-        return this.primitive? this.toAsmName() : "L" + this.toAsmName() + ";";
+        return this.asmMethodDescriptor;
     }
 
     @Override
@@ -242,14 +259,11 @@ public final class ClassDescriptor {
 
     @Override
     public boolean equals(@Nullable final Object o) {
-        if (this == o) return true;
-        if (o == null || this.getClass() != o.getClass()) return false;
-        final ClassDescriptor that = (ClassDescriptor) o;
-        return Objects.equals(this.className, that.className);
+        return this == o; // Interned
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.className);
+        return this.hashCode;
     }
 }
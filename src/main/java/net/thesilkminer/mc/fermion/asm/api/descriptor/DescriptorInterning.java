@@ -0,0 +1,27 @@
+package net.thesilkminer.mc.fermion.asm.api.descriptor;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+import com.google.common.collect.MapMaker;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.ConcurrentMap;
+
+// Descriptors are interned so that equal descriptors are always the same instance. Weak interning lets descriptors
+// nobody uses anymore be collected, at the cost of slightly slower lookups: it is opt-in through a system property.
+final class DescriptorInterning {
+
+    private static final boolean IS_WEAK = Boolean.getBoolean("fermion.descriptors.weakInterning");
+
+    private DescriptorInterning() {}
+
+    @Nonnull
+    static <T> Interner<T> newInterner() {
+        return IS_WEAK ? Interners.newWeakInterner() : Interners.newStrongInterner();
+    }
+
+    @Nonnull
+    static <K, V> ConcurrentMap<K, V> newCache() {
+        return IS_WEAK ? new MapMaker().weakValues().makeMap() : new MapMaker().makeMap();
+    }
+}
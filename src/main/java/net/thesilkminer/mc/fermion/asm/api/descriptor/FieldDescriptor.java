@@ -1,6 +1,7 @@
 package net.thesilkminer.mc.fermion.asm.api.descriptor;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Interner;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -16,18 +17,28 @@ import java.util.Objects;
  * <p>Note that instances of this class do not cause class loading neither
  * during normal usage or construction, if used properly.</p>
  *
+ * <p>Instances of this class are interned: two descriptors describing the same
+ * field are always the same object, which makes it safe to compare them by
+ * identity and to share them between threads.</p>
+ *
  * @since 1.0.0
  */
 public final class FieldDescriptor {
 
+    private static final Interner<FieldDescriptor> INTERNER = DescriptorInterning.newInterner();
+
     private final String name;
     private final ClassDescriptor type;
     private final boolean isStatic;
+    private final String asmName;
+    private final int hashCode;
 
     private FieldDescriptor(@Nonnull final String name, @Nonnull final ClassDescriptor descriptor, final boolean isStatic) {
         this.name = name;
         this.type = descriptor;
         this.isStatic = isStatic;
+        this.asmName = this.type.toAsmName() + " " + this.name;
+        this.hashCode = Objects.hash(this.name, this.type, this.isStatic);
     }
 
     /**
@@ -59,8 +70,8 @@ public final class FieldDescriptor {
     public static FieldDescriptor of(@Nonnull final String name, @Nonnull final ClassDescriptor descriptor, final boolean isStatic) {
         Preconditions.checkNotNull(name);
         Preconditions.checkNotNull(descriptor);
-        Preconditions.checkArgument(!Objects.equals(descriptor, ClassDescriptor.of(void.class)), "Field of void type cannot exist");
-        return new FieldDescriptor(name, descriptor, isStatic);
+        Preconditions.checkArgument(descriptor != ClassDescriptor.of(void.class), "Field of void type cannot exist");
+        return INTERNER.intern(new FieldDescriptor(name, descriptor, isStatic));
     }
 
     /**
@@ -173,7 +184,7 @@ public final class FieldDescriptor {
      */
     @Nonnull
     public String toAsmName() {
-        return this.toAsmDescriptor() + " " + this.name;
+        return this.asmName;
     }
 
     @Nonnull
@@ -182,18 +193,20 @@ public final class FieldDescriptor {
         return this.toAsmName();
     }
 
+    // Structural, since the interner relies on it: once interned, equal descriptors end up in the first branch anyway
     @Override
     public boolean equals(@Nullable final Object o) {
         if (this == o) return true;
         if (o == null || this.getClass() != o.getClass()) return false;
         final FieldDescriptor that = (FieldDescriptor) o;
-        return this.isStatic == that.isStatic &&
+        return this.hashCode == that.hashCode &&
+                this.isStatic == that.isStatic &&
                 Objects.equals(this.name, that.name) &&
                 Objects.equals(this.type, that.type);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.name, this.type, this.isStatic);
+        return this.hashCode;
     }
 }
@@ -2,6 +2,7 @@ package net.thesilkminer.mc.fermion.asm.api.descriptor;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Interner;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -19,19 +20,35 @@ import java.util.Objects;
  * constructed do not cause unwanted class loading as side effect of their
  * operation.</p>
  *
+ * <p>Instances of this class are interned: two descriptors describing the same
+ * method are always the same object, which makes it safe to compare them by
+ * identity and to share them between threads.</p>
+ *
  * @since 1.0.0
  */
 public final class MethodDescriptor {
 
+    private static final Interner<MethodDescriptor> INTERNER = DescriptorInterning.newInterner();
+
     private final String name;
     private final ClassDescriptor returnType;
     private final List<ClassDescriptor> arguments;
+    private final String asmDescriptor;
+    private final String asmName;
+    private final int hashCode;
 
     private MethodDescriptor(@Nonnull final String name, @Nonnull final List<ClassDescriptor> arguments,
                              @Nonnull final ClassDescriptor returnType) {
         this.name = Preconditions.checkNotNull(name);
         this.arguments = ImmutableList.copyOf(Preconditions.checkNotNull(arguments));
         this.returnType = Preconditions.checkNotNull(returnType);
+        final StringBuilder builder = new StringBuilder("(");
+        this.arguments.forEach(it -> builder.append(it.toAsmMethodDescriptor()));
+        builder.append(")");
+        builder.append(this.returnType.toAsmMethodDescriptor());
+        this.asmDescriptor = builder.toString();
+        this.asmName = this.name + this.asmDescriptor;
+        this.hashCode = Objects.hash(this.name, this.returnType, this.arguments);
     }
 
     /**
@@ -63,7 +80,7 @@ public final class MethodDescriptor {
     @Nonnull
     public static MethodDescriptor of(@Nonnull final String name, @Nonnull final List<ClassDescriptor> arguments,
                                       @Nonnull final ClassDescriptor returnType) {
-        return new MethodDescriptor(name, arguments, returnType);
+        return INTERNER.intern(new MethodDescriptor(name, arguments, returnType));
     }
 
     /**
@@ -111,7 +128,7 @@ public final class MethodDescriptor {
      */
     @Nonnull
     public List<ClassDescriptor> getArguments() {
-        return ImmutableList.copyOf(this.arguments);
+        return this.arguments;
     }
 
     /**
@@ -130,11 +147,7 @@ public final class MethodDescriptor {
      */
     @Nonnull
     public String toAsmDescriptor() {
-        final StringBuilder builder = new StringBuilder("(");
-        this.arguments.forEach(it -> builder.append(it.toAsmMethodDescriptor()));
-        builder.append(")");
-        builder.append(this.returnType.toAsmMethodDescriptor());
-        return builder.toString();
+        return this.asmDescriptor;
     }
 
     /**
@@ -154,7 +167,7 @@ public final class MethodDescriptor {
      */
     @Nonnull
     public String toAsmName() {
-        return this.name + this.toAsmDescriptor();
+        return this.asmName;
     }
 
     @Override
@@ -162,18 +175,20 @@ public final class MethodDescriptor {
         return this.toAsmName();
     }
 
+    // Structural, since the interner relies on it: once interned, equal descriptors end up in the first branch anyway
     @Override
     public boolean equals(@Nullable final Object o) {
         if (this == o) return true;
         if (o == null || this.getClass() != o.getClass()) return false;
         final MethodDescriptor that = (MethodDescriptor) o;
-        return Objects.equals(this.name, that.name) &&
+        return this.hashCode == that.hashCode &&
+                Objects.equals(this.name, that.name) &&
                 Objects.equals(this.returnType, that.returnType) &&
                 Objects.equals(this.arguments, that.arguments);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(this.name, this.returnType, this.arguments);
+        return this.hashCode;
     }
 }
@@ -0,0 +1,144 @@
+package net.thesilkminer.mc.fermion.asm.api.mapping;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
+
+import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads {@link MappingTable}s from mapping files, so that names can be
+ * remapped even when no launcher is there to provide mappings, such as when
+ * transforming classes ahead of time.
+ *
+ * <p>Two formats are supported:</p>
+ *
+ * <ul>
+ *     <li>TSRG files ({@code *.tsrg}), as shipped by MCPConfig, which map
+ *     obfuscated names to SRG names. The resulting table maps SRG names to
+ *     obfuscated names.</li>
+ *     <li>MCP CSV files ({@code methods.csv} and {@code fields.csv}), which
+ *     map SRG names to MCP names. Any other CSV file is read as well, but
+ *     only rows whose first column is a SRG method or field name are
+ *     considered.</li>
+ * </ul>
+ *
+ * <p>Files are streamed line by line and never read in memory as a
+ * whole.</p>
+ *
+ * @since 1.1.0
+ */
+public final class MappingFiles {
+
+    private static final String TSRG_EXTENSION = ".tsrg";
+    private static final String CSV_EXTENSION = ".csv";
+    private static final String SRG_METHOD_PREFIX = "func_";
+    private static final String SRG_FIELD_PREFIX = "field_";
+
+    private MappingFiles() {}
+
+    /**
+     * Reads all the given mapping files into a single table.
+     *
+     * <p>Directories are read as well: every TSRG and CSV file directly
+     * inside them is read, in alphabetical order, which makes it possible to
+     * point this method to an extracted MCP mappings archive. Files are read
+     * in the order they are given, so a mapping read later replaces one read
+     * earlier. Mixing
+     * TSRG and CSV files is thus possible, but rarely meaningful, since the
+     * two map to different naming schemes.</p>
+     *
+     * @param files
+     *      The files or directories to read. It cannot be null.
+     * @return
+     *      A table holding all the mappings that have been read.
+     * @throws IOException
+     *      If an error occurs while reading, or if one of the files is not in
+     *      a supported format.
+     *
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static MappingTable read(@Nonnull final Path... files) throws IOException {
+        final MappingTable.Builder builder = MappingTable.Builder.create();
+        for (@Nonnull final Path file : Preconditions.checkNotNull(files)) {
+            if (Files.isDirectory(file)) {
+                readDirectory(file, builder);
+            } else {
+                readFile(file, builder);
+            }
+        }
+        return builder.build();
+    }
+
+    private static void readDirectory(@Nonnull final Path directory, @Nonnull final MappingTable.Builder builder) throws IOException {
+        final List<Path> files = Lists.newArrayList();
+        try (final DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (@Nonnull final Path file : stream) {
+                if (Files.isRegularFile(file) && isSupported(file)) files.add(file);
+            }
+        }
+        // Directory listings come in no particular order, but overrides between files need to be predictable
+        files.sort(Comparator.naturalOrder());
+        for (@Nonnull final Path file : files) readFile(file, builder);
+    }
+
+    private static void readFile(@Nonnull final Path file, @Nonnull final MappingTable.Builder builder) throws IOException {
+        final String name = file.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        if (name.endsWith(TSRG_EXTENSION)) {
+            readTsrg(file, builder);
+        } else if (name.endsWith(CSV_EXTENSION)) {
+            readCsv(file, builder);
+        } else {
+            throw new IOException("Unsupported mapping file '" + file + "': only TSRG and MCP CSV files can be read");
+        }
+    }
+
+    private static boolean isSupported(@Nonnull final Path file) {
+        final String name = file.getFileName().toString().toLowerCase(Locale.ENGLISH);
+        return name.endsWith(TSRG_EXTENSION) || name.endsWith(CSV_EXTENSION);
+    }
+
+    // Class lines are not indented, fields are "\tobf srg" and methods are "\tobf (desc) srg"
+    private static void readTsrg(@Nonnull final Path file, @Nonnull final MappingTable.Builder builder) throws IOException {
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (/*mutable*/ String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (line.isEmpty() || line.charAt(0) != '\t' || (line.length() > 1 && line.charAt(1) == '\t')) continue;
+                final String[] parts = line.substring(1).split(" ");
+                if (parts.length == 2) {
+                    builder.addField(parts[1], parts[0]);
+                } else if (parts.length == 3) {
+                    builder.addMethod(parts[2], parts[0]);
+                } else {
+                    throw new IOException("Invalid TSRG line in '" + file + "': " + line);
+                }
+            }
+        }
+    }
+
+    // Only the first two columns are needed and they never contain commas or quotes, unlike the description
+    private static void readCsv(@Nonnull final Path file, @Nonnull final MappingTable.Builder builder) throws IOException {
+        try (final BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (/*mutable*/ String line = reader.readLine(); line != null; line = reader.readLine()) {
+                final int firstComma = line.indexOf(',');
+                if (firstComma == -1) continue;
+                final int secondComma = line.indexOf(',', firstComma + 1);
+                final String srgName = line.substring(0, firstComma);
+                final String mappedName = line.substring(firstComma + 1, secondComma == -1 ? line.length() : secondComma);
+                if (srgName.startsWith(SRG_METHOD_PREFIX)) {
+                    builder.addMethod(srgName, mappedName);
+                } else if (srgName.startsWith(SRG_FIELD_PREFIX)) {
+                    builder.addField(srgName, mappedName);
+                }
+            }
+        }
+    }
+}
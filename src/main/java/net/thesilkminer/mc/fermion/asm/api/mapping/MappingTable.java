@@ -0,0 +1,296 @@
+package net.thesilkminer.mc.fermion.asm.api.mapping;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+/**
+ * Immutable table that maps SRG method and field names to the names used in
+ * a different naming scheme, and back.
+ *
+ * <p>The target naming scheme depends on where the mappings come from: a
+ * table loaded from MCP's CSV files maps SRG names to MCP names, while a
+ * table loaded from a TSRG file maps SRG names to obfuscated names. Refer to
+ * {@link MappingFiles} for more information.</p>
+ *
+ * <p>Names are stored in sorted arrays rather than in hash maps, since full
+ * mapping sets hold tens of thousands of entries and a table is meant to be
+ * queried only once per name, with results being remembered by the caller
+ * (e.g. {@link net.thesilkminer.mc.fermion.asm.api.MappingUtilities}).
+ * Lookups never allocate.</p>
+ *
+ * @since 1.1.0
+ */
+public final class MappingTable {
+
+    /**
+     * A builder used to create instances of {@link MappingTable}.
+     *
+     * <p>If the same SRG name is added more than once, the last mapping
+     * added wins. Builder instances can be reused, as in their
+     * {@link #build()} method can be called multiple times to build multiple
+     * tables.</p>
+     *
+     * @since 1.1.0
+     */
+    public static final class Builder {
+
+        private final Map<String, String> methods;
+        private final Map<String, String> fields;
+
+        private Builder() {
+            this.methods = Maps.newHashMap();
+            this.fields = Maps.newHashMap();
+        }
+
+        /**
+         * Creates a new, empty, builder instance.
+         *
+         * @return
+         *      A new, ready to be used, builder instance.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public static Builder create() {
+            return new Builder();
+        }
+
+        /**
+         * Adds a mapping for the method with the given SRG name.
+         *
+         * @param srgName
+         *      The SRG name of the method. It cannot be null.
+         * @param mappedName
+         *      The name the method has in the target naming scheme. It
+         *      cannot be null.
+         * @return
+         *      This builder, for chaining.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder addMethod(@Nonnull final String srgName, @Nonnull final String mappedName) {
+            this.methods.put(Preconditions.checkNotNull(srgName), Preconditions.checkNotNull(mappedName));
+            return this;
+        }
+
+        /**
+         * Adds a mapping for the field with the given SRG name.
+         *
+         * @param srgName
+         *      The SRG name of the field. It cannot be null.
+         * @param mappedName
+         *      The name the field has in the target naming scheme. It cannot
+         *      be null.
+         * @return
+         *      This builder, for chaining.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder addField(@Nonnull final String srgName, @Nonnull final String mappedName) {
+            this.fields.put(Preconditions.checkNotNull(srgName), Preconditions.checkNotNull(mappedName));
+            return this;
+        }
+
+        /**
+         * Builds a new table with all the mappings that have been added up to
+         * now.
+         *
+         * @return
+         *      A new mapping table. Guaranteed not to be null.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public MappingTable build() {
+            return new MappingTable(Names.of(this.methods), Names.of(this.fields));
+        }
+    }
+
+    // Sorted by SRG name, plus the order of the mapped names for reverse lookups
+    private static final class Names {
+
+        private final String[] srgNames;
+        private final String[] mappedNames;
+        private final int[] reverseOrder;
+
+        private Names(@Nonnull final String[] srgNames, @Nonnull final String[] mappedNames, @Nonnull final int[] reverseOrder) {
+            this.srgNames = srgNames;
+            this.mappedNames = mappedNames;
+            this.reverseOrder = reverseOrder;
+        }
+
+        @Nonnull
+        static Names of(@Nonnull final Map<String, String> mappings) {
+            final String[] srgNames = mappings.keySet().toArray(new String[0]);
+            Arrays.sort(srgNames);
+            final String[] mappedNames = new String[srgNames.length];
+            for (int i = 0; i < srgNames.length; ++i) mappedNames[i] = mappings.get(srgNames[i]);
+            // When more than one SRG name maps to the same name, the lowest one is returned by reverse lookups
+            final int[] reverseOrder = IntStream.range(0, srgNames.length)
+                    .boxed()
+                    .sorted(Comparator.<Integer, String>comparing(it -> mappedNames[it]).thenComparing(it -> srgNames[it]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            return new Names(srgNames, mappedNames, reverseOrder);
+        }
+
+        @Nullable
+        String map(@Nonnull final String srgName) {
+            final int index = Arrays.binarySearch(this.srgNames, srgName);
+            return index < 0 ? null : this.mappedNames[index];
+        }
+
+        @Nullable
+        String unmap(@Nonnull final String mappedName) {
+            /*mutable*/ int low = 0;
+            /*mutable*/ int high = this.reverseOrder.length - 1;
+            /*mutable*/ int found = -1;
+            while (low <= high) {
+                final int middle = (low + high) >>> 1;
+                final int comparison = this.mappedNames[this.reverseOrder[middle]].compareTo(mappedName);
+                if (comparison < 0) {
+                    low = middle + 1;
+                } else {
+                    if (comparison == 0) found = middle;
+                    high = middle - 1;
+                }
+            }
+            return found == -1 ? null : this.srgNames[this.reverseOrder[found]];
+        }
+
+        int size() {
+            return this.srgNames.length;
+        }
+    }
+
+    private static final MappingTable EMPTY = Builder.create().build();
+
+    private final Names methods;
+    private final Names fields;
+
+    private MappingTable(@Nonnull final Names methods, @Nonnull final Names fields) {
+        this.methods = methods;
+        this.fields = fields;
+    }
+
+    /**
+     * Gets a table that contains no mappings.
+     *
+     * @return
+     *      An empty table. Guaranteed not to be null.
+     *
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static MappingTable empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Maps the given SRG method name to its name in the target naming
+     * scheme.
+     *
+     * @param srgName
+     *      The SRG name of the method. It cannot be null.
+     * @return
+     *      The mapped name, or null if this table holds no mapping for the
+     *      given name.
+     *
+     * @since 1.1.0
+     */
+    @Nullable
+    public String mapMethod(@Nonnull final String srgName) {
+        return this.methods.map(Preconditions.checkNotNull(srgName));
+    }
+
+    /**
+     * Maps the given method name in the target naming scheme back to its SRG
+     * name.
+     *
+     * <p>If more than one SRG name maps to the given name, which happens for
+     * example with obfuscated names, the lowest one in lexicographical order
+     * is returned.</p>
+     *
+     * @param mappedName
+     *      The name of the method in the target naming scheme. It cannot be
+     *      null.
+     * @return
+     *      The SRG name, or null if this table holds no mapping to the given
+     *      name.
+     *
+     * @since 1.1.0
+     */
+    @Nullable
+    public String unmapMethod(@Nonnull final String mappedName) {
+        return this.methods.unmap(Preconditions.checkNotNull(mappedName));
+    }
+
+    /**
+     * Maps the given SRG field name to its name in the target naming scheme.
+     *
+     * @param srgName
+     *      The SRG name of the field. It cannot be null.
+     * @return
+     *      The mapped name, or null if this table holds no mapping for the
+     *      given name.
+     *
+     * @since 1.1.0
+     */
+    @Nullable
+    public String mapField(@Nonnull final String srgName) {
+        return this.fields.map(Preconditions.checkNotNull(srgName));
+    }
+
+    /**
+     * Maps the given field name in the target naming scheme back to its SRG
+     * name.
+     *
+     * <p>If more than one SRG name maps to the given name, which happens for
+     * example with obfuscated names, the lowest one in lexicographical order
+     * is returned.</p>
+     *
+     * @param mappedName
+     *      The name of the field in the target naming scheme. It cannot be
+     *      null.
+     * @return
+     *      The SRG name, or null if this table holds no mapping to the given
+     *      name.
+     *
+     * @since 1.1.0
+     */
+    @Nullable
+    public String unmapField(@Nonnull final String mappedName) {
+        return this.fields.unmap(Preconditions.checkNotNull(mappedName));
+    }
+
+    /**
+     * Gets the amount of mappings stored in this table, for both methods and
+     * fields.
+     *
+     * @return
+     *      The amount of mappings in this table.
+     *
+     * @since 1.1.0
+     */
+    public int size() {
+        return this.methods.size() + this.fields.size();
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "MappingTable{" +
+                "methods=" + this.methods.size() +
+                ", fields=" + this.fields.size() +
+                '}';
+    }
+}
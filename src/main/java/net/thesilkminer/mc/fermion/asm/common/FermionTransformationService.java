@@ -2,32 +2,29 @@ package net.thesilkminer.mc.fermion.asm.common;
 
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Maps;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
-import com.google.gson.reflect.TypeToken;
-import com.google.gson.stream.JsonReader;
 import cpw.mods.modlauncher.api.IEnvironment;
 import cpw.mods.modlauncher.api.ITransformationService;
 import cpw.mods.modlauncher.api.ITransformer;
 import cpw.mods.modlauncher.api.IncompatibleEnvironmentException;
 import net.minecraftforge.fml.loading.FileUtils;
+import net.thesilkminer.mc.fermion.asm.api.MappingUtilities;
+import net.thesilkminer.mc.fermion.asm.common.utility.JsonConfigFiles;
 import net.thesilkminer.mc.fermion.asm.common.utility.LaunchBlackboard;
 import net.thesilkminer.mc.fermion.asm.common.utility.LaunchPluginDiscoverer;
 import net.thesilkminer.mc.fermion.asm.common.utility.Log;
 
 import javax.annotation.Nonnull;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.FileAlreadyExistsException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 
 public final class FermionTransformationService implements ITransformationService {
@@ -37,11 +34,21 @@ public final class FermionTransformationService implements ITransformationServic
     private final LaunchPluginDiscoverer discoverer;
     private final LaunchBlackboard blackboard;
     private final Map<String, Boolean> environmentConfiguration;
+    private final ExecutorService worker;
+
+    private Path configDirectory;
+    private CompletableFuture<Void> environmentConfigurationLoading;
+    private CompletableFuture<Void> fermionExtraction;
 
     public FermionTransformationService() {
         this.discoverer = LaunchPluginDiscoverer.create();
         this.blackboard = new LaunchBlackboard();
         this.environmentConfiguration = Maps.newHashMap();
+        this.worker = Executors.newSingleThreadExecutor(it -> {
+            final Thread thread = new Thread(it, "Fermion Service Worker");
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Nonnull
@@ -54,32 +61,42 @@ public final class FermionTransformationService implements ITransformationServic
     public final void initialize(@Nonnull final IEnvironment environment) {
         LOGGER.d("Initializing");
         LOGGER.i("Loading configuration files for Fermion environment");
-        LOGGER.d("Attempting to find configuration directory");
-        final Path gameDirectory = environment.getProperty(IEnvironment.Keys.GAMEDIR.get())
-                .orElseThrow(() -> new IllegalStateException("No game directory was found. This is a serious error"));
-        final Path configDirectory = gameDirectory.resolve("config/FermionEnv").toAbsolutePath().normalize();
-        FileUtils.getOrCreateDirectory(configDirectory, "FermionEnv");
-        FileUtils.getOrCreateDirectory(configDirectory.resolve("fermion.asm.service/dump").toAbsolutePath().normalize(), "dumps");
         LOGGER.d("Loading environment configurations");
-        this.loadEnvironmentConfiguration(configDirectory);
-        this.blackboard.acceptDumpDir(configDirectory.resolve("fermion.asm.service/dump").toAbsolutePath().normalize());
+        this.join(this.environmentConfigurationLoading, "environment configuration loading");
+        this.blackboard.acceptDumpDir(this.configDirectory.resolve("fermion.asm.service/dump").toAbsolutePath().normalize());
         LOGGER.d("Loading configuration files plugin per plugin");
-        this.blackboard.loadConfig(configDirectory);
+        this.blackboard.loadConfig(this.configDirectory);
         LOGGER.i("Configuration loaded");
-        this.discoverer.extractFermion(!this.environmentConfiguration.get("disable_jar_copying"));
+        if (this.environmentConfiguration.get("hot_reload_configuration")) this.blackboard.startConfigurationWatcher();
+        final boolean isCopyingEnabled = !this.environmentConfiguration.get("disable_jar_copying");
+        this.fermionExtraction = CompletableFuture.runAsync(() -> this.discoverer.extractFermion(isCopyingEnabled), this.worker);
     }
 
     @Override
     public final void beginScanning(@Nonnull final IEnvironment environment) {
         LOGGER.d("Begin scanning");
+        // Forge looks for the extracted JAR while scanning for mods, so it has to be there by now
+        this.join(this.fermionExtraction, "Fermion JAR extraction");
+        this.worker.shutdown();
+        // Names can be mapped from now on: get the ones transformers asked for out of the way before any class is loaded
+        if (!MappingUtilities.INSTANCE.resolvePending()) LOGGER.d("No mapping service is available: names will not be remapped");
     }
 
     @Override
     public final void onLoad(@Nonnull final IEnvironment env, @Nonnull final Set<String> otherServices) throws IncompatibleEnvironmentException {
         LOGGER.i("Fermion Transformer Service is being loaded");
+        LOGGER.d("Attempting to find configuration directory");
+        // The launcher sets the game directory only after onLoad, so it has to be found the same way discovery does
+        final Path gameDirectory = this.discoverer.findGameRoot(env);
+        this.configDirectory = gameDirectory.resolve("config/FermionEnv").toAbsolutePath().normalize();
+        FileUtils.getOrCreateDirectory(this.configDirectory, "FermionEnv");
+        FileUtils.getOrCreateDirectory(this.configDirectory.resolve("fermion.asm.service/dump").toAbsolutePath().normalize(), "dumps");
+        this.environmentConfigurationLoading = CompletableFuture.runAsync(() -> this.loadEnvironmentConfiguration(this.configDirectory), this.worker);
+
         LOGGER.i("Attempting to discover Fermion Launch Plugins");
-        this.blackboard.accept(this.discoverer.discover(), env);
+        this.blackboard.accept(this.discoverer.discover(env), this.discoverer.getLazyLaunchPlugins(), env);
         LOGGER.i("Fermion Launch Plugins discovery completed");
+        this.blackboard.prefetchConfig(this.configDirectory, this.worker);
     }
 
     @Nonnull
@@ -90,50 +107,42 @@ public final class FermionTransformationService implements ITransformationServic
         return ImmutableList.of(new FermionTransformer(this.blackboard, this.environmentConfiguration));
     }
 
+    private void join(@Nonnull final CompletableFuture<Void> task, @Nonnull final String name) {
+        try {
+            task.join();
+        } catch (@Nonnull final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            throw new RuntimeException("An error has occurred during " + name, e.getCause());
+        }
+    }
+
     private void loadEnvironmentConfiguration(@Nonnull final Path root) {
         final Path configPath = root.resolve("./environment.json").toAbsolutePath().normalize();
         LOGGER.d("Attempting to read and/or create file " + configPath);
-        if (Files.notExists(configPath)) {
-            try (final BufferedWriter writer = Files.newBufferedWriter(configPath, StandardCharsets.UTF_8)) {
-                writer.write("{}");
-                writer.flush();
-            } catch (@Nonnull final IOException e) {
-                if (e instanceof FileAlreadyExistsException) {
-                    LOGGER.w("Weird. Environment configuration file was deemed non-existent, but now it is there. Whatever...");
-                } else {
-                    throw new RuntimeException("Unable to create environment configuration file", e);
-                }
-            }
-        }
-
-        final Gson gson = new GsonBuilder()
-                .serializeNulls()
-                .disableHtmlEscaping()
-                .setPrettyPrinting()
-                .create();
 
         final JsonObject transformersConfigArray;
+        final boolean hasChanged;
 
-        try (final Reader reader = Files.newBufferedReader(configPath)) {
-
-            transformersConfigArray = gson
-                    .getAdapter(TypeToken.get(JsonObject.class))
-                    .read(new JsonReader(reader));
-
-            this.loadConfigFromJson(transformersConfigArray);
+        try {
+            final JsonObject existingConfigArray = JsonConfigFiles.read(configPath);
+            transformersConfigArray = existingConfigArray == null ? new JsonObject() : existingConfigArray;
+            hasChanged = this.loadConfigFromJson(transformersConfigArray) || existingConfigArray == null;
         } catch (@Nonnull final IOException e) {
             throw new RuntimeException("An error has occurred while attempting to read the environment configuration file", e);
         }
 
+        if (!hasChanged) return;
 
-        try (final BufferedWriter writer = Files.newBufferedWriter(configPath)) {
-            gson.toJson(transformersConfigArray, writer);
+        try {
+            JsonConfigFiles.write(configPath, transformersConfigArray);
         } catch (@Nonnull final IOException e) {
             throw new RuntimeException("An error has occurred while attempting to write the environment configuration file", e);
         }
     }
 
-    private void loadConfigFromJson(@Nonnull final JsonObject object) {
+    // Returns whether any missing entry had to be added
+    private boolean loadConfigFromJson(@Nonnull final JsonObject object) {
+        final int previousSize = object.size();
         if (!object.has("dump")) {
             object.add("dump", this.getJsonObject(it -> {
                 it.add("__comment", new JsonPrimitive("Whether classes transformed by this class transformer should be dumped to disk"));
@@ -152,8 +161,15 @@ public final class FermionTransformationService implements ITransformationServic
                 it.add("enabled", new JsonPrimitive(false));
             }));
         }
+        if (!object.has("hot_reload_configuration")) {
+            object.add("hot_reload_configuration", this.getJsonObject(it -> {
+                it.add("__comment", new JsonPrimitive("Reloads transformer configurations when they change on disk. Changes only apply to classes that were not loaded yet: meant for testing, not for playing"));
+                it.add("enabled", new JsonPrimitive(false));
+            }));
+        }
 
         object.entrySet().forEach(it -> this.environmentConfiguration.put(it.getKey(), it.getValue().getAsJsonObject().get("enabled").getAsJsonPrimitive().getAsBoolean()));
+        return object.size() != previousSize;
     }
 
     @Nonnull
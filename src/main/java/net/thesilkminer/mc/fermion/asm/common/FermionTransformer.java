@@ -1,18 +1,22 @@
 package net.thesilkminer.mc.fermion.asm.common;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
 import cpw.mods.modlauncher.api.ITransformer;
 import cpw.mods.modlauncher.api.ITransformerVotingContext;
 import cpw.mods.modlauncher.api.TransformerVoteResult;
 import net.minecraftforge.fml.loading.FileUtils;
 import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
 import net.thesilkminer.mc.fermion.asm.api.transformer.Transformer;
-import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerRegistry;
 import net.thesilkminer.mc.fermion.asm.common.utility.EffectivelyFinalByteArray;
 import net.thesilkminer.mc.fermion.asm.common.utility.LaunchBlackboard;
+import net.thesilkminer.mc.fermion.asm.common.utility.LazyLaunchPlugin;
 import net.thesilkminer.mc.fermion.asm.common.utility.Log;
+import net.thesilkminer.mc.fermion.asm.common.utility.TransformerStates;
+import net.thesilkminer.mc.fermion.asm.prefab.transformer.CallSiteRedirectTransformer;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
@@ -25,40 +29,105 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
 public final class FermionTransformer implements ITransformer<ClassNode> {
 
+    private static final class RegisteredTransformer {
+        private final Transformer transformer;
+        private final String registryName;
+        private final int ordinal;
+        private final Set<ClassDescriptor> pendingTargets;
+
+        private RegisteredTransformer(@Nonnull final Transformer transformer, @Nonnull final String registryName, final int ordinal,
+                                      @Nonnull final Set<ClassDescriptor> targets) {
+            this.transformer = transformer;
+            this.registryName = registryName;
+            this.ordinal = ordinal;
+            this.pendingTargets = Sets.newConcurrentHashSet(targets);
+        }
+
+        @Override
+        public String toString() {
+            return this.registryName + "@" + this.ordinal;
+        }
+    }
+
     private static final Log LOGGER = Log.of("Transformer");
 
-    private final TransformerRegistry registry;
+    private final LaunchBlackboard blackboard;
     private final Map<String, Boolean> environmentConfiguration;
-    private final Map<ClassDescriptor, List<Transformer>> classToTransformer;
-    private final Map<Transformer, String> transformerToName;
+    private final Map<ClassDescriptor, List<RegisteredTransformer>> classToTransformer;
+    private final Map<ClassDescriptor, List<LazyLaunchPlugin>> classToLazyPlugin;
+    private final Set<ClassDescriptor> targetClasses;
+    private final Set<ClassDescriptor> pendingTargets;
+    private volatile boolean isReleased;
+    private final ReadWriteLock configurationLock;
     private final Path dumpRoot;
 
     FermionTransformer(@Nonnull final LaunchBlackboard blackboard, @Nonnull final Map<String, Boolean> environmentConfig) {
-        this.registry = blackboard;
+        this.blackboard = blackboard;
         this.environmentConfiguration = environmentConfig;
-        this.classToTransformer = Maps.newHashMap();
-        this.transformerToName = Maps.newHashMap();
+        // Lists in here are never changed once published: lazy plugins replace them instead
+        this.classToTransformer = Maps.newConcurrentMap();
+        this.classToLazyPlugin = Maps.newConcurrentMap();
+        this.configurationLock = new ReentrantReadWriteLock();
         this.dumpRoot = blackboard.getDumpDir();
 
-        final Map<String, Transformer> transformers =  blackboard.getTransformers();
-        transformers.forEach((k, v) -> this.transformerToName.put(v, k));
+        final TransformerStates states = blackboard.getTransformerStates();
+        final Map<ClassDescriptor, List<RegisteredTransformer>> classToTransformer = Maps.newHashMap();
+        blackboard.getTransformers().forEach((name, transformer) -> {
+            final Set<ClassDescriptor> targets = transformer.getClassesToTransform();
+            final RegisteredTransformer registered = new RegisteredTransformer(transformer, name, states.ordinalOf(name), targets);
+            targets.forEach(c -> classToTransformer.computeIfAbsent(c, k -> Lists.newArrayList()).add(registered));
+        });
+        // Registration order, so that transformers run in the same order on every launch
+        classToTransformer.forEach((k, v) -> {
+            v.sort(Comparator.comparingInt(it -> it.ordinal));
+            this.classToTransformer.put(k, ImmutableList.copyOf(v));
+        });
 
-        transformers.values().forEach(it -> it.getClassesToTransform().forEach(c -> {
-            final List<Transformer> transformerList = this.classToTransformer.computeIfAbsent(c, k -> Lists.newArrayList());
-            transformerList.add(it);
-        }));
+        blackboard.getLazyLaunchPlugins().forEach(plugin -> plugin.getTransformerTargets().values().forEach(targets -> targets.forEach(c -> {
+            final List<LazyLaunchPlugin> pluginList = this.classToLazyPlugin.computeIfAbsent(c, k -> Lists.newArrayList());
+            if (!pluginList.contains(plugin)) pluginList.add(plugin);
+        })));
+
+        this.targetClasses = ImmutableSet.<ClassDescriptor>builder()
+                .addAll(this.classToTransformer.keySet())
+                .addAll(this.classToLazyPlugin.keySet())
+                .build();
+        this.pendingTargets = Sets.newConcurrentHashSet(this.targetClasses);
     }
 
     @Nonnull
     @Override
     public ClassNode transform(@Nonnull final ClassNode input, @Nonnull final ITransformerVotingContext context) {
+        // Reloaded configurations are applied only while no visitor runs; if classes are being transformed, the next one picks them up
+        if (this.configurationLock.writeLock().tryLock()) {
+            try {
+                this.blackboard.applyPendingConfigurations();
+            } finally {
+                this.configurationLock.writeLock().unlock();
+            }
+        }
+
+        this.configurationLock.readLock().lock();
+        try {
+            return this.transformClass(input);
+        } finally {
+            this.configurationLock.readLock().unlock();
+        }
+    }
+
+    @Nonnull
+    private ClassNode transformClass(@Nonnull final ClassNode input) {
         LOGGER.d("Got 'em: " + input.name);
 
         final ClassDescriptor classDescriptor = ClassDescriptor.of(input.name);
@@ -66,51 +135,65 @@ public final class FermionTransformer implements ITransformer<ClassNode> {
         LOGGER.i("************************************************************************");
         LOGGER.i("Attempting to transform class '" + classDescriptor.getClassName() + "'");
 
-        final EffectivelyFinalByteArray finalClassBytes = EffectivelyFinalByteArray.of(this.toByteArray(input));
-        final List<Transformer> transformers = this.classToTransformer.get(classDescriptor);
-
-        if (transformers.size() != 0) {
-            LOGGER.d("Injecting universal transformer 'fermion.asm.service:universal'");
-            transformers.add(new FermionUniversalTransformer());
+        if (!this.pendingTargets.contains(classDescriptor)) {
+            LOGGER.e("Class '" + classDescriptor.getClassName() + "' was already transformed once and its transformers were released: it will not be transformed again");
+            return input;
         }
 
-        transformers.sort((a, b) -> {
-            if (a instanceof FermionUniversalTransformer) return 1;
-            else if (b instanceof FermionUniversalTransformer) return -1;
-            else return 0;
-        });
+        if (this.classToLazyPlugin.containsKey(classDescriptor)) this.loadLazyPlugins(classDescriptor);
 
-        LOGGER.i("Found " + transformers.size() + " transformers available: running them one by one");
+        final EffectivelyFinalByteArray finalClassBytes = EffectivelyFinalByteArray.of(this.toByteArray(input));
+        final List<RegisteredTransformer> transformers = this.classToTransformer.getOrDefault(classDescriptor, ImmutableList.of());
+        // Read once, so that the whole class is transformed with the same configuration
+        final TransformerStates states = this.blackboard.getTransformerStates();
+        final boolean hasTransformers = transformers.size() != 0;
+
+        if (hasTransformers) LOGGER.d("Injecting universal transformer 'fermion.asm.service:universal'");
+
+        LOGGER.i("Found " + (hasTransformers ? transformers.size() + 1 : 0) + " transformers available: running them one by one");
         LOGGER.d("    " + transformers);
 
-        transformers.forEach(it -> {
-            final boolean isUniversal = it instanceof FermionUniversalTransformer;
+        // Call-site redirects of all plugins are applied together, in a single pass, where the first of them would run
+        final List<CallSiteRedirectTransformer> redirects = transformers.stream()
+                .filter(it -> it.transformer instanceof CallSiteRedirectTransformer && states.isEnabled(it.ordinal))
+                .map(it -> (CallSiteRedirectTransformer) it.transformer)
+                .collect(Collectors.toList());
+        /*mutable*/ boolean redirectsApplied = false;
 
-            final String registryName = isUniversal? FermionUniversalTransformer.TRANSFORMER_NAME : this.transformerToName.get(it);
+        for (@Nonnull final RegisteredTransformer it : transformers) {
+            LOGGER.i("    Attempting to call transformer '" + it.registryName + "'");
 
-            LOGGER.i("    Attempting to call transformer '" + registryName + "'");
+            if (!states.isEnabled(it.ordinal)) {
+                LOGGER.w("        UNABLE TO CALL TRANSFORMER: It was disabled in the configuration file");
+                continue;
+            }
 
-            final boolean isEnabled = (isUniversal && finalClassBytes.wasTransformed()) || (!isUniversal && this.registry.isTransformerEnabled(registryName));
-            if (!isEnabled) {
-                if (isUniversal) {
-                    LOGGER.w("        UNABLE TO CALL TRANSFORMER: Class wasn't patched previously");
-                } else {
-                    LOGGER.w("        UNABLE TO CALL TRANSFORMER: It was disabled in the configuration file");
+            if (redirects.size() > 1 && it.transformer instanceof CallSiteRedirectTransformer) {
+                if (redirectsApplied) {
+                    LOGGER.i("    Transformer '" + it.registryName + "' was already applied as part of the shared call-site redirect pass");
+                    continue;
                 }
-                return;
+                LOGGER.i("    Applying the redirects of " + redirects.size() + " transformers in a single pass");
+                this.runTransformer(CallSiteRedirectTransformer.createSharedVisitorCreator(redirects), it.registryName, finalClassBytes);
+                redirectsApplied = true;
+                continue;
             }
 
-            final ClassReader reader = new ClassReader(finalClassBytes.get());
-            final ClassWriter writer = new ClassWriter(reader, Opcodes.ASM6);
-
-            final ClassVisitor providedVisitor = it.getClassVisitorCreator().apply(Opcodes.ASM6, writer);
-
-            reader.accept(providedVisitor, 0);
+            this.runTransformer(it.transformer.getClassVisitorCreator(), it.registryName, finalClassBytes);
+        }
 
-            finalClassBytes.transformInto(writer.toByteArray());
+        // The universal transformer always runs last, and only if someone else did something
+        if (hasTransformers) {
+            LOGGER.i("    Attempting to call transformer '" + FermionUniversalTransformer.TRANSFORMER_NAME + "'");
+            if (finalClassBytes.wasTransformed()) {
+                this.runTransformer(new FermionUniversalTransformer().getClassVisitorCreator(), FermionUniversalTransformer.TRANSFORMER_NAME, finalClassBytes);
+            } else {
+                LOGGER.w("        UNABLE TO CALL TRANSFORMER: Class wasn't patched previously");
+            }
+        }
 
-            LOGGER.i("    Transformer '" + registryName + "' called successfully");
-        });
+        this.blackboard.markClassTransformed(classDescriptor);
+        this.releaseTransformersOf(classDescriptor, transformers);
 
         LOGGER.i("Transformation run completed successfully for class '" + classDescriptor.getClassName() + "'");
         LOGGER.i("************************************************************************");
@@ -122,6 +205,101 @@ public final class FermionTransformer implements ITransformer<ClassNode> {
         return this.fromByteArray(completelyTransformedClass);
     }
 
+    private void runTransformer(@Nonnull final BiFunction<Integer, ClassVisitor, ClassVisitor> visitorCreator, @Nonnull final String registryName,
+                                @Nonnull final EffectivelyFinalByteArray classBytes) {
+        final ClassReader reader = new ClassReader(classBytes.get());
+        final ClassWriter writer = new ClassWriter(reader, Opcodes.ASM6);
+
+        final ClassVisitor providedVisitor = visitorCreator.apply(Opcodes.ASM6, writer);
+
+        reader.accept(providedVisitor, 0);
+
+        classBytes.transformInto(writer.toByteArray());
+
+        LOGGER.i("    Transformer '" + registryName + "' called successfully");
+    }
+
+    private synchronized void loadLazyPlugins(@Nonnull final ClassDescriptor target) {
+        final List<LazyLaunchPlugin> plugins = this.classToLazyPlugin.get(target);
+        if (plugins == null) return;
+
+        for (@Nonnull final LazyLaunchPlugin plugin : ImmutableList.copyOf(plugins)) {
+            final boolean isNeeded = plugin.getTransformerTargets()
+                    .entrySet()
+                    .stream()
+                    .filter(it -> it.getValue().contains(target))
+                    .anyMatch(it -> this.blackboard.mayTransformerBeEnabled(it.getKey()));
+            if (!isNeeded) {
+                LOGGER.d("Not loading lazy plugin '" + plugin.getId() + "' for class '" + target.getClassName() + "': its transformers are disabled");
+                continue;
+            }
+
+            final Map<String, Transformer> transformers = this.blackboard.loadLazyLaunchPlugin(plugin.getId());
+            final TransformerStates states = this.blackboard.getTransformerStates();
+            this.classToLazyPlugin.values().forEach(it -> it.remove(plugin));
+            this.checkDeclaredTargets(plugin, transformers);
+            transformers.forEach((name, transformer) -> {
+                final Set<ClassDescriptor> targets = transformer.getClassesToTransform()
+                        .stream()
+                        .filter(c -> {
+                            if (!this.targetClasses.contains(c)) {
+                                LOGGER.w("Transformer '" + name + "' targets class '" + c.getClassName() + "', which was not declared: it will not be transformed");
+                                return false;
+                            }
+                            if (!this.pendingTargets.contains(c)) {
+                                LOGGER.w("Transformer '" + name + "' targets class '" + c.getClassName() + "', which was already transformed: it will not be transformed");
+                                return false;
+                            }
+                            return true;
+                        })
+                        .collect(ImmutableSet.toImmutableSet());
+                final RegisteredTransformer registered = new RegisteredTransformer(transformer, name, states.ordinalOf(name), targets);
+                targets.forEach(c -> {
+                    final List<RegisteredTransformer> transformerList = Lists.newArrayList(this.classToTransformer.getOrDefault(c, ImmutableList.of()));
+                    transformerList.add(registered);
+                    this.classToTransformer.put(c, ImmutableList.copyOf(transformerList));
+                });
+            });
+        }
+
+        this.classToLazyPlugin.entrySet().removeIf(it -> it.getValue().isEmpty());
+    }
+
+    // Declarations are written by hand, so they may go out of sync with what the transformers actually target
+    private void checkDeclaredTargets(@Nonnull final LazyLaunchPlugin plugin, @Nonnull final Map<String, Transformer> transformers) {
+        final Map<String, Set<ClassDescriptor>> declared = plugin.getTransformerTargets();
+        transformers.forEach((name, transformer) -> {
+            final Set<ClassDescriptor> declaredTargets = declared.getOrDefault(name, ImmutableSet.of());
+            final Set<ClassDescriptor> actualTargets = ImmutableSet.copyOf(transformer.getClassesToTransform());
+            if (declaredTargets.equals(actualTargets)) return;
+            LOGGER.e("The declaration of lazy plugin '" + plugin.getId() + "' does not match transformer '" + name + "': undeclared targets "
+                    + Sets.difference(actualTargets, declaredTargets) + ", declared but not targeted " + Sets.difference(declaredTargets, actualTargets));
+        });
+        declared.keySet()
+                .stream()
+                .filter(it -> !transformers.containsKey(it))
+                .forEach(it -> LOGGER.e("Lazy plugin '" + plugin.getId() + "' declares transformer '" + it + "', but it did not register it"));
+    }
+
+    // A transformer is needed only until the last of its targets is transformed; everything goes once no target is left
+    private void releaseTransformersOf(@Nonnull final ClassDescriptor target, @Nonnull final List<RegisteredTransformer> transformers) {
+        this.classToTransformer.remove(target);
+        transformers.forEach(it -> {
+            it.pendingTargets.remove(target);
+            if (it.pendingTargets.isEmpty()) this.blackboard.releaseTransformer(it.registryName);
+        });
+        this.pendingTargets.remove(target);
+        if (this.pendingTargets.isEmpty()) this.releaseState();
+    }
+
+    private synchronized void releaseState() {
+        if (this.isReleased) return;
+        this.isReleased = true;
+        LOGGER.i("Releasing transformation state, since all targets were transformed");
+        this.classToLazyPlugin.clear();
+        this.blackboard.releaseTransformationState();
+    }
+
     private byte[] toByteArray(@Nonnull final ClassNode node) {
         // We cannot compute frames because some classes may not be loaded
         // They'll get handled anyway after all the transformations are complete anyway
@@ -183,7 +361,7 @@ public final class FermionTransformer implements ITransformer<ClassNode> {
         }
 
         return ImmutableSet.copyOf(
-                this.classToTransformer.keySet()
+                this.targetClasses
                         .stream()
                         .map(ClassDescriptor::getClassName)
                         .map(Target::targetClass)
@@ -0,0 +1,106 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+// Editors tend to save a file through more than one event, so changes are collected for a short while before the
+// affected plugins are reloaded, each one once
+final class ConfigurationWatcher implements Runnable {
+
+    private static final Log LOGGER = Log.of("Configuration Watcher");
+
+    private static final String CONFIGURATION_FILE_NAME = "transformers.json";
+    private static final long SETTLE_TIME_MILLIS = 200L;
+
+    private final WatchService watchService;
+    private final Map<WatchKey, String> keyToPlugin;
+    private final Consumer<String> reloader;
+
+    private ConfigurationWatcher(@Nonnull final WatchService watchService, @Nonnull final Map<WatchKey, String> keyToPlugin,
+                                 @Nonnull final Consumer<String> reloader) {
+        this.watchService = watchService;
+        this.keyToPlugin = keyToPlugin;
+        this.reloader = reloader;
+    }
+
+    @Nonnull
+    static ConfigurationWatcher start(@Nonnull final Path root, @Nonnull final Collection<String> pluginIds, @Nonnull final Consumer<String> reloader) throws IOException {
+        final WatchService watchService = root.getFileSystem().newWatchService();
+        final Map<WatchKey, String> keyToPlugin = Maps.newHashMap();
+        for (@Nonnull final String id : pluginIds) {
+            final Path pluginDir = root.resolve(id).toAbsolutePath().normalize();
+            Files.createDirectories(pluginDir);
+            keyToPlugin.put(pluginDir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY), id);
+        }
+
+        final ConfigurationWatcher watcher = new ConfigurationWatcher(watchService, keyToPlugin, reloader);
+        final Thread thread = new Thread(watcher, "Fermion Configuration Watcher");
+        thread.setDaemon(true);
+        thread.start();
+        LOGGER.i("Watching configuration files of " + keyToPlugin.size() + " plugins for changes");
+        return watcher;
+    }
+
+    void stop() {
+        try {
+            this.watchService.close();
+        } catch (@Nonnull final IOException e) {
+            LOGGER.w("Unable to stop watching configuration files", e);
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (true) {
+                final Set<String> changedPlugins = Sets.newLinkedHashSet();
+                this.collect(this.watchService.take(), changedPlugins);
+                Thread.sleep(SETTLE_TIME_MILLIS);
+                for (/*mutable*/ WatchKey key = this.watchService.poll(); key != null; key = this.watchService.poll()) {
+                    this.collect(key, changedPlugins);
+                }
+                changedPlugins.forEach(this::reload);
+            }
+        } catch (@Nonnull final InterruptedException | ClosedWatchServiceException e) {
+            LOGGER.d("Configuration watcher stopped");
+        }
+    }
+
+    private void collect(@Nonnull final WatchKey key, @Nonnull final Set<String> changedPlugins) {
+        final String id = this.keyToPlugin.get(key);
+        for (@Nonnull final WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                changedPlugins.add(id);
+                continue;
+            }
+            final Path context = (Path) event.context();
+            if (CONFIGURATION_FILE_NAME.equals(context.getFileName().toString())) changedPlugins.add(id);
+        }
+        if (!key.reset()) {
+            LOGGER.w("Configuration directory of plugin '" + id + "' is not accessible anymore: changes to it will be ignored");
+            this.keyToPlugin.remove(key);
+        }
+    }
+
+    private void reload(@Nonnull final String id) {
+        try {
+            this.reloader.accept(id);
+        } catch (@Nonnull final RuntimeException e) {
+            LOGGER.e("Unable to reload configuration for plugin '" + id + "'", e);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+
+// Remembers what was found in every JAR during the previous launches, so that unchanged files need not be opened
+// again. A JAR is deemed unchanged if its path, size and last modification time all match the recorded ones: the
+// content hash is recorded for consumers that need a stronger guarantee, but it is not checked here, since that would
+// mean reading every JAR again.
+final class DiscoveryIndex {
+
+    private static final Log LOGGER = Log.of("Discovery Index");
+
+    private static final int VERSION = 2;
+
+    private final Path file;
+    private final Map<Path, ScannedJar> previous;
+    private final Map<Path, ScannedJar> current;
+
+    private DiscoveryIndex(@Nonnull final Path file, @Nonnull final Map<Path, ScannedJar> previous) {
+        this.file = file;
+        this.previous = previous;
+        this.current = Maps.newLinkedHashMap();
+    }
+
+    @Nonnull
+    static DiscoveryIndex load(@Nonnull final Path file) {
+        final Map<Path, ScannedJar> entries = Maps.newHashMap();
+        if (Files.exists(file)) {
+            try {
+                final JsonObject index = JsonConfigFiles.read(file);
+                if (index != null && index.has("version") && index.get("version").getAsInt() == VERSION) {
+                    index.getAsJsonObject("jars").entrySet().forEach(it -> {
+                        final Path path = Paths.get(it.getKey());
+                        entries.put(path, fromJson(path, it.getValue().getAsJsonObject()));
+                    });
+                } else {
+                    LOGGER.i("Discovery index '" + file + "' was written by a different Fermion version: ignoring it");
+                }
+            } catch (@Nonnull final IOException | RuntimeException e) {
+                LOGGER.w("Unable to read discovery index '" + file + "': all JAR files will be scanned again", e);
+                entries.clear();
+            }
+        }
+        LOGGER.d("Loaded discovery index with " + entries.size() + " entries");
+        return new DiscoveryIndex(file, entries);
+    }
+
+    @Nonnull
+    Optional<ScannedJar> lookup(@Nonnull final Path jar, @Nonnull final BasicFileAttributes attributes) {
+        final ScannedJar entry = this.previous.get(jar);
+        if (entry == null) return Optional.empty();
+        if (entry.getSize() != attributes.size() || entry.getLastModified() != attributes.lastModifiedTime().toMillis()) return Optional.empty();
+        return Optional.of(entry);
+    }
+
+    void record(@Nonnull final ScannedJar jar) {
+        this.current.put(jar.getPath(), jar);
+    }
+
+    void save() {
+        // Entries for JARs that disappeared get dropped, so the index never grows past what is in the folders
+        if (this.current.equals(this.previous)) {
+            LOGGER.d("Discovery index is up to date");
+            return;
+        }
+
+        final JsonObject jars = new JsonObject();
+        this.current.forEach((k, v) -> jars.add(k.toString(), toJson(v)));
+        final JsonObject index = new JsonObject();
+        index.add("version", new JsonPrimitive(VERSION));
+        index.add("jars", jars);
+
+        try {
+            Files.createDirectories(this.file.getParent());
+            JsonConfigFiles.write(this.file, index);
+            LOGGER.d("Saved discovery index with " + this.current.size() + " entries");
+        } catch (@Nonnull final IOException e) {
+            LOGGER.w("Unable to save discovery index '" + this.file + "': JAR files will be scanned again on next launch", e);
+        }
+    }
+
+    @Nonnull
+    private static ScannedJar fromJson(@Nonnull final Path path, @Nonnull final JsonObject object) {
+        final List<String> classes = Lists.newArrayList();
+        object.getAsJsonArray("launch_plugin_classes").forEach(it -> classes.add(it.getAsString()));
+        return new ScannedJar(
+                path,
+                object.get("size").getAsLong(),
+                object.get("last_modified").getAsLong(),
+                Objects.requireNonNull(object.get("hash").getAsString()),
+                object.get("launch_plugin").getAsBoolean(),
+                classes,
+                object.get("fermion").getAsBoolean(),
+                object.get("lazy_launch_plugins").getAsString()
+        );
+    }
+
+    @Nonnull
+    private static JsonElement toJson(@Nonnull final ScannedJar jar) {
+        final JsonObject object = new JsonObject();
+        object.add("size", new JsonPrimitive(jar.getSize()));
+        object.add("last_modified", new JsonPrimitive(jar.getLastModified()));
+        object.add("hash", new JsonPrimitive(jar.getHash()));
+        object.add("launch_plugin", new JsonPrimitive(jar.isLaunchPlugin()));
+        final JsonArray classes = new JsonArray();
+        jar.getLaunchPluginClasses().forEach(it -> classes.add(new JsonPrimitive(it)));
+        object.add("launch_plugin_classes", classes);
+        object.add("fermion", new JsonPrimitive(jar.isFermionJar()));
+        object.add("lazy_launch_plugins", new JsonPrimitive(jar.getLazyLaunchPluginDeclarations()));
+        return object;
+    }
+}
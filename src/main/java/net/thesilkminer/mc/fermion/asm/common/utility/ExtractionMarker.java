@@ -0,0 +1,40 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import javax.annotation.Nonnull;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+// The ZIP comment of the extracted copy of Fermion: it ties the copy to the hash of the JAR it comes from and to
+// where that JAR lives, so that the copy can find out on its own whether Fermion is still installed
+public final class ExtractionMarker {
+
+    @SuppressWarnings("SpellCheckingInspection")
+    static final String EXTRACTED_JAR_NAME = "__extraction__fermion_extraction__mod_file_Fermion_mod.jar";
+    private static final String PREFIX = "fermion-extraction:2:";
+
+    private ExtractionMarker() {}
+
+    @Nonnull
+    static String of(@Nonnull final String hash, @Nonnull final Path source) {
+        return PREFIX + hash + ':' + source.toAbsolutePath().normalize();
+    }
+
+    // Empty if the given file is not an extracted copy, or if it was made by an older version that did not record its source
+    @Nonnull
+    public static Optional<Path> findSource(@Nonnull final Path copy) {
+        if (copy.getFileName() == null || !EXTRACTED_JAR_NAME.equals(copy.getFileName().toString())) return Optional.empty();
+        return RawZipCopier.readComment(copy)
+                .filter(it -> it.startsWith(PREFIX))
+                .map(it -> it.substring(PREFIX.length()))
+                .filter(it -> it.indexOf(':') > 0)
+                .flatMap(it -> {
+                    try {
+                        return Optional.of(Paths.get(it.substring(it.indexOf(':') + 1)));
+                    } catch (@Nonnull final InvalidPathException e) {
+                        return Optional.empty();
+                    }
+                });
+    }
+}
@@ -28,7 +28,7 @@ public final class FermionEnvironment implements Environment {
     FermionEnvironment(@Nonnull final Map<String, Pair<PluginMetadata, LaunchPlugin>> loadedPlugins,
                        @Nonnull final IEnvironment fmlEnvironment) {
         this.pluginsMap = ImmutableMap.copyOf(loadedPlugins);
-        this.properties = Maps.newHashMap();
+        this.properties = Maps.newConcurrentMap(); // Plugins may validate their environment concurrently
         cast(fmlEnvironment, this.properties);
     }
 
@@ -43,7 +43,9 @@ public final class FermionEnvironment implements Environment {
             mapField.setAccessible(true);
             @SuppressWarnings("unchecked")
             final Map<TypesafeMap.Key<Object>, Object> actualMap = (Map<TypesafeMap.Key<Object>, Object>) mapField.get(map);
-            actualMap.forEach((k, v) -> output.put(k.name(), v));
+            actualMap.forEach((k, v) -> {
+                if (v != null) output.put(k.name(), v);
+            });
         } catch (final ReflectiveOperationException e) {
             LOGGER.e("An error has occurred while attempting to cast ModLauncher's Environment to our own instance.", e);
         }
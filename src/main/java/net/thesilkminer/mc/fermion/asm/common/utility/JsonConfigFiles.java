@@ -0,0 +1,56 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+// Every JSON file Fermion owns goes through here, so that they all share the same Gson instance and are never left
+// half-written if the game dies while saving them
+public final class JsonConfigFiles {
+
+    private static final Gson GSON = new GsonBuilder()
+            .serializeNulls()
+            .disableHtmlEscaping()
+            .setPrettyPrinting()
+            .create();
+    private static final TypeAdapter<JsonObject> OBJECT_ADAPTER = GSON.getAdapter(JsonObject.class);
+
+    private JsonConfigFiles() {}
+
+    // Null means that there is no file yet
+    @Nullable
+    public static JsonObject read(@Nonnull final Path file) throws IOException {
+        if (Files.notExists(file)) return null;
+        try (final Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return OBJECT_ADAPTER.read(new JsonReader(reader));
+        }
+    }
+
+    public static void write(@Nonnull final Path file, @Nonnull final JsonObject object) throws IOException {
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (final Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            final JsonWriter jsonWriter = GSON.newJsonWriter(writer);
+            OBJECT_ADAPTER.write(jsonWriter, object);
+            jsonWriter.flush();
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (@Nonnull final AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -1,20 +1,21 @@
 package net.thesilkminer.mc.fermion.asm.common.utility;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.common.collect.Sets;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
-import com.google.gson.reflect.TypeToken;
-import com.google.gson.stream.JsonReader;
 import cpw.mods.modlauncher.api.IEnvironment;
 import cpw.mods.modlauncher.api.IncompatibleEnvironmentException;
 import net.minecraftforge.fml.loading.FileUtils;
 import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
 import net.thesilkminer.mc.fermion.asm.api.PluginMetadata;
 import net.thesilkminer.mc.fermion.asm.api.configuration.TransformerConfiguration;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
 import net.thesilkminer.mc.fermion.asm.api.transformer.Transformer;
 import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
 import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerRegistry;
@@ -23,61 +24,123 @@ import org.apache.commons.lang3.tuple.Pair;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.FileAlreadyExistsException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public final class LaunchBlackboard implements TransformerRegistry {
 
+    private static final class RecordingRegistry implements TransformerRegistry {
+        private final TransformerRegistry target;
+        private final List<Transformer> recorded;
+
+        private RecordingRegistry(@Nonnull final TransformerRegistry target) {
+            this.target = target;
+            this.recorded = Lists.newArrayList();
+        }
+
+        @Override
+        public void registerTransformer(@Nonnull final Transformer transformer) {
+            this.recorded.add(Preconditions.checkNotNull(transformer));
+        }
+
+        @Override
+        public boolean isTransformerEnabled(@Nonnull final String registryName) {
+            return this.target.isTransformerEnabled(registryName);
+        }
+
+        private void commit() {
+            this.recorded.forEach(this.target::registerTransformer);
+        }
+    }
+
     private static final Log LOGGER = Log.of("Launch Blackboard");
 
     private final Map<String, Pair<PluginMetadata, LaunchPlugin>> pluginsMap;
     private final Map<String, Transformer> transformers;
     private final Map<String, JsonObject> configEntries;
+    private final List<String> registrationOrder;
+    private final Set<ClassDescriptor> transformedClasses;
+    private final Map<String, String> appliedConfigurations;
+    private final Map<Transformer, JsonObject> pendingConfigurations;
+    private final Map<String, LazyLaunchPlugin> lazyPlugins;
+    private final Map<Path, CompletableFuture<Pair<FileTime, JsonObject>>> prefetchedConfigs;
 
     private Path dumpDir;
+    private Path configRoot;
+    private IEnvironment fmlEnvironment;
+    private volatile TransformerStates transformerStates = TransformerStates.empty();
+    private ConfigurationWatcher configurationWatcher;
+    private volatile boolean isReleased;
 
     public LaunchBlackboard() {
         this.pluginsMap = Maps.newLinkedHashMap();
-        this.transformers = Maps.newHashMap();
-        this.configEntries = Maps.newHashMap();
+        // Lazy plugins may register transformers and configurations while classes are being transformed
+        this.transformers = Maps.newConcurrentMap();
+        this.configEntries = Maps.newConcurrentMap();
+        this.registrationOrder = Lists.newCopyOnWriteArrayList();
+        this.transformedClasses = Sets.newConcurrentHashSet();
+        this.appliedConfigurations = Maps.newConcurrentMap();
+        this.pendingConfigurations = Maps.newConcurrentMap();
+        this.lazyPlugins = Maps.newLinkedHashMap();
+        this.prefetchedConfigs = Maps.newConcurrentMap();
     }
 
-    public void accept(@Nonnull final Iterable<LaunchPlugin> plugins, @Nonnull final IEnvironment fmlEnvironment) throws IncompatibleEnvironmentException {
+    public void accept(@Nonnull final Iterable<LaunchPlugin> plugins, @Nonnull final Iterable<LazyLaunchPlugin> lazyPlugins,
+                       @Nonnull final IEnvironment fmlEnvironment) throws IncompatibleEnvironmentException {
         LOGGER.d("Accepting found Fermion Launch Plugins");
+        this.fmlEnvironment = fmlEnvironment;
         for (@Nonnull final LaunchPlugin plugin : plugins) {
             this.accept(plugin);
         }
+        for (@Nonnull final LazyLaunchPlugin plugin : lazyPlugins) {
+            this.accept(plugin);
+        }
 
-        LOGGER.d("Validating environment for plugins");
         final FermionEnvironment environment = new FermionEnvironment(this.pluginsMap, fmlEnvironment);
         try {
-            for (@Nonnull final Pair<PluginMetadata, LaunchPlugin> plugin : this.pluginsMap.values()) {
-                LOGGER.t("Validating environment for plugin '" + plugin.getKey().getId() + "'");
-                plugin.getValue().validateEnvironment(environment);
-            }
+            final PluginLifecycleScheduler scheduler = PluginLifecycleScheduler.of(this.pluginsMap, this.lazyPlugins);
+
+            LOGGER.d("Validating environment for plugins");
+            scheduler.run("validation", (metadata, plugin) -> {
+                LOGGER.t("Validating environment for plugin '" + metadata.getId() + "'");
+                plugin.validateEnvironment(environment);
+            });
+
+            // Registration often constructs transformers, and with them descriptors and other shared state, so it is
+            // kept serial; registrations are committed in discovery order so that the registry is the same on every launch
+            LOGGER.d("Launching plugin transformers registration");
+            final Map<String, RecordingRegistry> registrations = Maps.newHashMap();
+            scheduler.runSerially("registration", (metadata, plugin) -> {
+                LOGGER.i("Registering transformers for plugin '" + metadata.getId() + "'");
+                final RecordingRegistry registry = new RecordingRegistry(this);
+                plugin.getTransformerRegister().accept(registry);
+                registrations.put(metadata.getId(), registry);
+            });
+            this.pluginsMap.keySet().forEach(it -> registrations.get(it).commit());
+
+            LOGGER.d("Invoking post-transformers registration event handler");
+            scheduler.run("post-registration", (metadata, plugin) -> plugin.onPostTransformersRegistration(environment, this));
         } catch (@Nonnull final net.thesilkminer.mc.fermion.asm.api.IncompatibleEnvironmentException exception) {
             final IncompatibleEnvironmentException t = new IncompatibleEnvironmentException("A Fermion LaunchPlugin is not compatible with this environment");
             t.initCause(exception);
             throw t;
         }
-
-        LOGGER.d("Launching plugin transformers registration");
-        for (@Nonnull final Pair<PluginMetadata, LaunchPlugin> plugin : this.pluginsMap.values()) {
-            LOGGER.i("Registering transformers for plugin '" + plugin.getKey().getId() + "'");
-            plugin.getValue().getTransformerRegister().accept(this);
-        }
-
-        LOGGER.d("Invoking post-transformers registration event handler");
-        for (@Nonnull final Pair<PluginMetadata, LaunchPlugin> plugin : this.pluginsMap.values()) {
-            plugin.getValue().onPostTransformersRegistration(environment, this);
-        }
     }
 
     private void accept(@Nonnull final LaunchPlugin plugin) throws IncompatibleEnvironmentException {
@@ -95,6 +158,16 @@ public final class LaunchBlackboard implements TransformerRegistry {
         LOGGER.t("Plugin '" + pluginId + "' registered successfully");
     }
 
+    private void accept(@Nonnull final LazyLaunchPlugin plugin) throws IncompatibleEnvironmentException {
+        final String pluginId = plugin.getId();
+        if (this.pluginsMap.containsKey(pluginId) || this.lazyPlugins.containsKey(pluginId)) {
+            throw new IncompatibleEnvironmentException("There is already a plugin registered with the same id '" + pluginId + "'.\n" +
+                    "Lazy plugin declaration: " + plugin);
+        }
+        LOGGER.i("Found lazy Fermion LaunchPlugin with id '" + pluginId + "': it will be loaded when needed");
+        this.lazyPlugins.put(pluginId, plugin);
+    }
+
     public void acceptDumpDir(@Nonnull final Path root) {
         this.dumpDir = root;
     }
@@ -108,70 +181,313 @@ public final class LaunchBlackboard implements TransformerRegistry {
         }
 
         this.pluginsMap.forEach((k, v) -> this.loadPluginConfig(root, k));
+        this.lazyPlugins.forEach((k, v) -> this.peekLazyPluginConfig(root, v));
+        this.prefetchedConfigs.clear();
+        this.configRoot = root;
+        this.freezeTransformerStates();
     }
 
-    private void loadPluginConfig(@Nonnull final Path root, @Nonnull final String id) {
-        LOGGER.i("Loading configuration for plugin '" + id + "'");
-        final Path pluginDir = root.resolve(id).toAbsolutePath().normalize();
-        FileUtils.getOrCreateDirectory(pluginDir, id);
-        final Path transformersConfigFile = pluginDir.resolve("./transformers.json").toAbsolutePath().normalize();
-        LOGGER.d("Attempting to read and/or create file " + transformersConfigFile);
-        if (Files.notExists(transformersConfigFile)) {
-            try (final BufferedWriter writer = Files.newBufferedWriter(transformersConfigFile, StandardCharsets.UTF_8)) {
-                writer.write("{}");
-                writer.flush();
-            } catch (@Nonnull final IOException e) {
-                if (e instanceof FileAlreadyExistsException) {
-                    LOGGER.w("Weird. Config file for plugin '" + id + "' was deemed non-existent, but now it is there. Whatever...");
-                } else {
-                    throw new RuntimeException("Unable to create configuration file for plugin '" + id + "'", e);
-                }
-            }
+    // Reads happen in the background, while ModLauncher is busy with other services: loadConfig then only has to wait
+    // for what it actually needs
+    public void prefetchConfig(@Nonnull final Path root, @Nonnull final Executor executor) {
+        LOGGER.d("Prefetching configuration files for " + (this.pluginsMap.size() + this.lazyPlugins.size()) + " plugins");
+        Stream.concat(this.pluginsMap.keySet().stream(), this.lazyPlugins.keySet().stream())
+                .map(it -> this.getConfigFile(root, it))
+                .forEach(it -> this.prefetchedConfigs.put(it, CompletableFuture.supplyAsync(() -> this.readConfigFileAndTime(it), executor)));
+    }
+
+    @Nonnull
+    private Path getConfigFile(@Nonnull final Path root, @Nonnull final String id) {
+        return root.resolve(id).resolve("./transformers.json").toAbsolutePath().normalize();
+    }
+
+    // A plugin may touch its own file in onPreConfigLoading: in that case what was prefetched is discarded
+    @Nullable
+    private JsonObject fetchConfigFile(@Nonnull final Path file) throws IOException {
+        final CompletableFuture<Pair<FileTime, JsonObject>> prefetched = this.prefetchedConfigs.remove(file);
+        if (prefetched == null) return JsonConfigFiles.read(file);
+        final Pair<FileTime, JsonObject> contents;
+        try {
+            contents = prefetched.join();
+        } catch (@Nonnull final CompletionException e) {
+            final Throwable cause = e.getCause() instanceof UncheckedIOException ? e.getCause().getCause() : e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw e;
         }
+        if (!Objects.equals(contents.getKey(), this.getLastModifiedTime(file))) {
+            LOGGER.d("Configuration file " + file + " was changed after being prefetched: reading it again");
+            return JsonConfigFiles.read(file);
+        }
+        return contents.getValue();
+    }
 
-        final Gson gson = new GsonBuilder()
-                .serializeNulls()
-                .disableHtmlEscaping()
-                .setPrettyPrinting()
-                .create();
+    @Nonnull
+    private Pair<FileTime, JsonObject> readConfigFileAndTime(@Nonnull final Path file) {
+        try {
+            final FileTime time = this.getLastModifiedTime(file);
+            return ImmutablePair.of(time, JsonConfigFiles.read(file));
+        } catch (@Nonnull final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 
-        /*mutable*/ JsonObject transformersConfigArray;
+    @Nullable
+    private FileTime getLastModifiedTime(@Nonnull final Path file) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (@Nonnull final NoSuchFileException e) {
+            return null;
+        }
+    }
 
-        try (final Reader reader = Files.newBufferedReader(transformersConfigFile)) {
+    // Reads what is already there without writing anything: defaults can only be known once the plugin exists
+    private void peekLazyPluginConfig(@Nonnull final Path root, @Nonnull final LazyLaunchPlugin plugin) {
+        try {
+            final JsonObject transformersConfigArray = this.fetchConfigFile(this.getConfigFile(root, plugin.getId()));
+            if (transformersConfigArray == null) return;
+            plugin.getTransformerTargets().keySet().forEach(registryName -> {
+                final String name = registryName.substring(plugin.getId().length() + 1);
+                if (transformersConfigArray.has(name)) this.configEntries.put(registryName, transformersConfigArray.getAsJsonObject(name));
+            });
+        } catch (@Nonnull final IOException | RuntimeException e) {
+            LOGGER.w("Unable to read the configuration file for lazy plugin '" + plugin.getId() + "': it will be loaded when needed", e);
+        }
+    }
 
-            transformersConfigArray = gson
-                    .getAdapter(TypeToken.get(JsonObject.class))
-                    .read(new JsonReader(reader));
+    public void startConfigurationWatcher() {
+        Preconditions.checkState(this.configRoot != null, "Configurations cannot be watched before being loaded");
+        final List<String> pluginIds = Lists.newArrayList(this.pluginsMap.keySet());
+        synchronized (this) {
+            pluginIds.addAll(this.lazyPlugins.keySet());
+        }
+        try {
+            this.configurationWatcher = ConfigurationWatcher.start(this.configRoot, pluginIds, this::reloadPluginConfig);
+        } catch (@Nonnull final IOException e) {
+            LOGGER.e("Unable to watch configuration files for changes: a restart will be needed to apply them", e);
+        }
+    }
+
+    // Nothing is written back here, otherwise the watcher would keep reloading its own changes
+    private synchronized void reloadPluginConfig(@Nonnull final String id) {
+        if (this.isReleased) return;
+        final LazyLaunchPlugin lazyPlugin = this.lazyPlugins.get(id);
+        if (lazyPlugin != null) {
+            LOGGER.i("Configuration of lazy plugin '" + id + "' changed: it will be used when the plugin is loaded");
+            this.peekLazyPluginConfig(this.configRoot, lazyPlugin);
+            return;
+        }
 
-            final JsonObject finalTransformersConfigArray = transformersConfigArray;
+        final JsonObject transformersConfigArray;
+        try {
+            transformersConfigArray = JsonConfigFiles.read(this.getConfigFile(this.configRoot, id));
+        } catch (@Nonnull final IOException | RuntimeException e) {
+            LOGGER.w("Unable to read the changed configuration file for plugin '" + id + "': keeping the current configuration", e);
+            return;
+        }
+        if (transformersConfigArray == null) return;
+
+        LOGGER.i("Configuration of plugin '" + id + "' changed: reloading it");
+        final TransformerStates previousStates = this.transformerStates;
+        final List<Transformer> changedTransformers = Lists.newArrayList();
+        this.getTransformers().forEach((registryName, transformer) -> {
+            if (!registryName.startsWith(id + ":")) return;
+            final String name = transformer.getData().getName();
+            if (!transformersConfigArray.has(name)) return;
+
+            final JsonObject configuration = transformersConfigArray.getAsJsonObject(name);
+            final boolean isEnabled = configuration.get("enabled").getAsJsonPrimitive().getAsBoolean();
+            final JsonObject specialConfiguration = configuration.has("configuration") ? configuration.getAsJsonObject("configuration") : new JsonObject();
+            final JsonObject defaultedSpecial = transformer.provideConfiguration().get().getDefaultProvider().apply(specialConfiguration);
+            this.configEntries.put(registryName, configuration);
+
+            final boolean hasToggled = isEnabled != previousStates.isEnabled(registryName);
+            final boolean isReconfigured = !defaultedSpecial.toString().equals(this.appliedConfigurations.get(registryName));
+            if (hasToggled) LOGGER.i("Transformer '" + registryName + "' is now " + (isEnabled ? "enabled" : "disabled"));
+            if (isReconfigured) {
+                LOGGER.i("Transformer '" + registryName + "' was reconfigured");
+                // Visitors may be running right now, so the transforming side applies it once none is
+                this.pendingConfigurations.put(transformer, defaultedSpecial);
+                final String appliedSpecial = defaultedSpecial.toString();
+                this.appliedConfigurations.put(registryName, appliedSpecial);
+            }
+            if (hasToggled || isReconfigured) changedTransformers.add(transformer);
+        });
+        this.freezeTransformerStates();
+        this.reportClassesNeedingRestart(changedTransformers);
+    }
 
-            this.getTransformers()
-                    .entrySet()
+    private void reportClassesNeedingRestart(@Nonnull final List<Transformer> changedTransformers) {
+        changedTransformers.forEach(transformer -> {
+            final List<String> loadedTargets = transformer.getClassesToTransform()
                     .stream()
-                    .filter(it -> it.getKey().startsWith(id + ":"))
-                    .forEach(it -> this.loadTransformerConfig(finalTransformersConfigArray, it.getKey(), it.getValue()));
+                    .filter(this.transformedClasses::contains)
+                    .map(ClassDescriptor::getClassName)
+                    .sorted()
+                    .collect(Collectors.toList());
+            if (loadedTargets.isEmpty()) return;
+            LOGGER.w("Transformer '" + transformer.getData().getOwningPluginId() + ":" + transformer.getData().getName() + "' changed, but some of its targets "
+                    + "were already loaded: a restart is needed for the change to apply to " + loadedTargets);
+        });
+    }
+
+    public void applyPendingConfigurations() {
+        this.pendingConfigurations.keySet().forEach(transformer -> {
+            final JsonObject configuration = this.pendingConfigurations.remove(transformer);
+            if (configuration != null) transformer.applyConfiguration(configuration);
+        });
+    }
+
+    public void markClassTransformed(@Nonnull final ClassDescriptor descriptor) {
+        if (!this.isReleased) this.transformedClasses.add(descriptor);
+    }
+
+    // Its state stays in the published states, so that isTransformerEnabled keeps answering
+    public void releaseTransformer(@Nonnull final String registryName) {
+        final Transformer transformer = this.transformers.remove(registryName);
+        if (transformer == null) return;
+        this.appliedConfigurations.remove(registryName);
+        this.pendingConfigurations.remove(transformer);
+        LOGGER.d("Released transformer '" + registryName + "': all of its targets were transformed");
+    }
 
-            transformersConfigArray = finalTransformersConfigArray;
+    // Only the published transformer states survive, since they are what isTransformerEnabled needs to keep answering
+    public synchronized void releaseTransformationState() {
+        if (this.isReleased) return;
+        this.isReleased = true;
+        if (this.configurationWatcher != null) this.configurationWatcher.stop();
+        this.configurationWatcher = null;
+        this.pluginsMap.clear();
+        this.lazyPlugins.clear();
+        this.transformers.clear();
+        this.configEntries.clear();
+        this.appliedConfigurations.clear();
+        this.pendingConfigurations.clear();
+        this.prefetchedConfigs.clear();
+        this.transformedClasses.clear();
+        this.fmlEnvironment = null;
+        LOGGER.i("Released transformation state: " + this.transformerStates.size() + " transformer states are kept");
+    }
+
+    @Nonnull
+    public Collection<LazyLaunchPlugin> getLazyLaunchPlugins() {
+        return ImmutableList.copyOf(this.lazyPlugins.values());
+    }
+
+    // A transformer of a plugin that was not loaded yet has no configuration entry only if it never ran before
+    public boolean mayTransformerBeEnabled(@Nonnull final String registryName) {
+        final TransformerStates states = this.transformerStates;
+        if (states.isKnown(registryName)) return states.isEnabled(registryName);
+        final JsonObject configObject = this.configEntries.get(registryName);
+        return configObject == null || configObject.get("enabled").getAsJsonPrimitive().getAsBoolean();
+    }
+
+    @Nonnull
+    public synchronized Map<String, Transformer> loadLazyLaunchPlugin(@Nonnull final String id) {
+        if (this.isReleased) return ImmutableMap.of();
+        final LazyLaunchPlugin lazyPlugin = this.lazyPlugins.remove(id);
+        if (lazyPlugin == null) return ImmutableMap.of();
+        Preconditions.checkState(this.configRoot != null, "Lazy plugins cannot be loaded before configurations");
+
+        LOGGER.i("Loading lazy Fermion LaunchPlugin with id '" + id + "'");
+        final LaunchPlugin plugin;
+        try {
+            plugin = lazyPlugin.instantiate();
+        } catch (@Nonnull final ReflectiveOperationException | RuntimeException | LinkageError e) {
+            LOGGER.e("Unable to construct lazy plugin '" + id + "' from class '" + lazyPlugin.getClassName() + "': it will not be loaded", e);
+            return ImmutableMap.of();
+        }
+
+        final PluginMetadata pluginMetadata = plugin.getMetadata();
+        if (!id.equals(pluginMetadata.getId())) {
+            LOGGER.e("Lazy plugin declared with id '" + id + "' identifies itself as '" + pluginMetadata.getId() + "': it will not be loaded");
+            return ImmutableMap.of();
+        }
+        final List<String> missingDependencies = pluginMetadata.getDependencies()
+                .stream()
+                .filter(it -> !this.pluginsMap.containsKey(it))
+                .collect(Collectors.toList());
+        if (!missingDependencies.isEmpty()) {
+            LOGGER.e("Lazy plugin '" + id + "' depends on plugins " + missingDependencies + ", which are not loaded: it will not be loaded");
+            return ImmutableMap.of();
+        }
+        this.pluginsMap.put(id, ImmutablePair.of(pluginMetadata, plugin));
+
+        final FermionEnvironment environment = new FermionEnvironment(this.pluginsMap, this.fmlEnvironment);
+        try {
+            plugin.validateEnvironment(environment);
+        } catch (@Nonnull final net.thesilkminer.mc.fermion.asm.api.IncompatibleEnvironmentException e) {
+            LOGGER.e("Lazy plugin '" + id + "' is not compatible with this environment: it will not be loaded", e);
+            this.pluginsMap.remove(id);
+            return ImmutableMap.of();
+        }
+
+        final Set<String> previousTransformers = ImmutableSet.copyOf(this.transformers.keySet());
+        plugin.getTransformerRegister().accept(this);
+        plugin.onPostTransformersRegistration(environment, this);
+        plugin.onPreConfigLoading();
+        this.loadPluginConfig(this.configRoot, id);
+
+        final Map<String, Transformer> registered = Maps.newLinkedHashMap();
+        this.transformers.forEach((k, v) -> {
+            if (previousTransformers.contains(k)) return;
+            if (!lazyPlugin.getTransformerTargets().containsKey(k)) {
+                LOGGER.w("Transformer '" + k + "' was not declared by lazy plugin '" + id + "': it will only be called for the declared targets of other transformers");
+            }
+            registered.put(k, v);
+        });
+        LOGGER.i("Lazy plugin '" + id + "' loaded with " + registered.size() + " transformers");
+        this.freezeTransformerStates();
+        return registered;
+    }
+
+    private void loadPluginConfig(@Nonnull final Path root, @Nonnull final String id) {
+        LOGGER.i("Loading configuration for plugin '" + id + "'");
+        final Path pluginDir = root.resolve(id).toAbsolutePath().normalize();
+        FileUtils.getOrCreateDirectory(pluginDir, id);
+        final Path transformersConfigFile = this.getConfigFile(root, id);
+        LOGGER.d("Attempting to read and/or create file " + transformersConfigFile);
+
+        final JsonObject transformersConfigArray;
+        /*mutable*/ boolean hasChanged = false;
+
+        try {
+            final JsonObject existingConfigArray = this.fetchConfigFile(transformersConfigFile);
+            transformersConfigArray = existingConfigArray == null ? new JsonObject() : existingConfigArray;
+            hasChanged |= existingConfigArray == null;
+
+            for (@Nonnull final Map.Entry<String, Transformer> transformer : this.getTransformers().entrySet()) {
+                if (!transformer.getKey().startsWith(id + ":")) continue;
+                hasChanged |= this.loadTransformerConfig(transformersConfigArray, transformer.getKey(), transformer.getValue());
+            }
         } catch (@Nonnull final IOException e) {
             throw new RuntimeException("An error has occurred while attempting to read the configuration file for plugin '" + id + "'", e);
         }
 
+        if (!hasChanged) {
+            LOGGER.d("Configuration file for plugin '" + id + "' is up to date: it will not be written");
+            return;
+        }
 
-        try (final BufferedWriter writer = Files.newBufferedWriter(transformersConfigFile)) {
-            gson.toJson(transformersConfigArray, writer);
+        try {
+            JsonConfigFiles.write(transformersConfigFile, transformersConfigArray);
         } catch (@Nonnull final IOException e) {
             throw new RuntimeException("An error has occurred while attempting to write the configuration file for plugin '" + id + "'", e);
         }
     }
 
-    private void loadTransformerConfig(@Nonnull final JsonObject jsonConfig, @Nonnull final String registryName, @Nonnull final Transformer transformer) {
+    // Returns whether the configuration file has to be written again because defaults were filled in
+    private boolean loadTransformerConfig(@Nonnull final JsonObject jsonConfig, @Nonnull final String registryName, @Nonnull final Transformer transformer) {
         final TransformerData data = transformer.getData();
         final String name = data.getName();
 
-        if (!jsonConfig.has(name)) this.createDefaultConfigEntry(jsonConfig, transformer, data);
+        final boolean isNewEntry = !jsonConfig.has(name);
+        if (isNewEntry) this.createDefaultConfigEntry(jsonConfig, transformer, data);
 
         final JsonObject configuration = jsonConfig.get(name).getAsJsonObject();
         final JsonObject specialConfiguration = configuration.get("configuration").getAsJsonObject();
+        // Default providers are free to edit the object they receive, so the comparison has to be done on a snapshot
+        final String previousSpecial = specialConfiguration.toString();
 
         final TransformerConfiguration transformerConfiguration = transformer.provideConfiguration().get();
         final JsonObject defaultedSpecial = transformerConfiguration.getDefaultProvider().apply(specialConfiguration);
@@ -181,8 +497,11 @@ public final class LaunchBlackboard implements TransformerRegistry {
         transformer.applyConfiguration(defaultedSpecial);
 
         this.configEntries.put(registryName, configuration);
+        final String appliedSpecial = defaultedSpecial.toString();
+        this.appliedConfigurations.put(registryName, appliedSpecial);
 
         LOGGER.i("Successfully loaded configuration file for transformer '" + registryName + "'");
+        return isNewEntry || !previousSpecial.equals(appliedSpecial);
     }
 
     private void createDefaultConfigEntry(@Nonnull final JsonObject main, @Nonnull final Transformer transformer, @Nonnull final TransformerData data) {
@@ -215,18 +534,44 @@ public final class LaunchBlackboard implements TransformerRegistry {
         final String pluginId = data.getOwningPluginId();
         final String name = data.getName();
         final String registryName = pluginId + ":" + name;
-        if (this.transformers.get(registryName) != null) {
+        final Transformer previous = this.transformers.putIfAbsent(registryName, transformer);
+        if (previous != null) {
             throw new IllegalArgumentException("Unable to register transformer " + transformer + " with the given name, because it is already registered.\n" +
                     "Name: " + registryName + "\n" +
-                    "Transformer already in registry: " + this.transformers.get(registryName));
+                    "Transformer already in registry: " + previous);
         }
+        this.registrationOrder.add(registryName);
         LOGGER.i("Registered transformer '" + registryName + "' with class '" + transformer.getClass() + "'");
-        this.transformers.put(registryName, transformer);
     }
 
     @Override
     public boolean isTransformerEnabled(@Nonnull final String registryName) {
+        final TransformerStates states = this.transformerStates;
+        if (states.isKnown(registryName)) return states.isEnabled(registryName);
         final JsonObject configObject = Preconditions.checkNotNull(this.configEntries.get(registryName));
         return configObject.get("enabled").getAsJsonPrimitive().getAsBoolean();
     }
+
+    @Nonnull
+    public TransformerStates getTransformerStates() {
+        return this.transformerStates;
+    }
+
+    // Once a transformer is in the published states its JSON entry is not needed anymore: only entries of lazy plugins
+    // that were not loaded yet are kept around
+    private synchronized void freezeTransformerStates() {
+        final TransformerStates previous = this.transformerStates;
+        final Map<String, Integer> ordinals = Maps.newHashMap();
+        final BitSet enabled = new BitSet(this.registrationOrder.size());
+        for (int i = 0; i < this.registrationOrder.size(); ++i) {
+            final String registryName = this.registrationOrder.get(i);
+            final JsonObject configObject = this.configEntries.get(registryName);
+            if (configObject == null && !previous.isKnown(registryName)) continue;
+            ordinals.put(registryName, i);
+            enabled.set(i, configObject == null ? previous.isEnabled(registryName) : configObject.get("enabled").getAsJsonPrimitive().getAsBoolean());
+        }
+        this.transformerStates = TransformerStates.of(ordinals, enabled);
+        this.configEntries.keySet().removeAll(ordinals.keySet());
+        LOGGER.d("Published new transformer states: " + this.transformerStates);
+    }
 }
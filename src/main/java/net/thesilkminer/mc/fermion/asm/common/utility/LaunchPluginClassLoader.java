@@ -0,0 +1,188 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.common.collect.Maps;
+import com.google.common.io.ByteStreams;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Path;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+// Classes in the root packages of a Launch Plugin that was loaded from a JAR are looked up in that JAR only, instead
+// of going through every URL of this class loader. Everything else keeps using the regular URLClassLoader search.
+// Those JARs are read directly and stay open until the loader itself is closed.
+final class LaunchPluginClassLoader extends URLClassLoader {
+
+    private static final class Claim {
+        private final String pluginId;
+        private final Path jar;
+
+        private Claim(@Nonnull final String pluginId, @Nullable final Path jar) {
+            this.pluginId = pluginId;
+            this.jar = jar;
+        }
+
+        @Override
+        public String toString() {
+            return "plugin '" + this.pluginId + "' (" + (this.jar == null ? "class path" : this.jar.toString()) + ")";
+        }
+    }
+
+    private static final Log LOGGER = Log.of("LaunchPluginClassLoader");
+
+    static {
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    private final Map<String, Claim> claims;
+    private final Map<Path, JarFile> claimedJars;
+
+    LaunchPluginClassLoader(@Nonnull final URL[] urls, @Nonnull final ClassLoader parent) {
+        super(urls, parent);
+        this.claims = Maps.newConcurrentMap();
+        this.claimedJars = Maps.newConcurrentMap();
+    }
+
+    @Override
+    protected void addURL(@Nullable final URL url) {
+        super.addURL(url);
+    }
+
+    void addPaths(@Nonnull final List<Path> paths) {
+        paths.stream()
+                .filter(Objects::nonNull)
+                .map(Path::toUri)
+                .map(this::toUrl)
+                .forEach(this::addURL);
+    }
+
+    // A null JAR means the plugin was found on the class path: its packages are only checked for conflicts
+    synchronized void claimRootPackages(@Nullable final Path jar, @Nonnull final LaunchPlugin plugin) {
+        final Claim claim = new Claim(plugin.getMetadata().getId(), jar);
+        for (@Nonnull final String rootPackage : plugin.getRootPackages()) {
+            if (rootPackage.isEmpty() || rootPackage.endsWith(".")) {
+                throw new IllegalStateException("Invalid root package '" + rootPackage + "' declared by " + claim);
+            }
+            this.claims.forEach((k, v) -> {
+                if (v.pluginId.equals(claim.pluginId) || !this.overlaps(k, rootPackage)) return;
+                throw new IllegalStateException("Package '" + rootPackage + "' is claimed by " + claim + ", but package '" + k + "' is already claimed by " + v);
+            });
+            this.claims.put(rootPackage, claim);
+            if (jar != null) this.claimedJars.computeIfAbsent(jar, this::openJar);
+            LOGGER.d("Package '" + rootPackage + "' is now owned by " + claim);
+        }
+    }
+
+    private boolean overlaps(@Nonnull final String a, @Nonnull final String b) {
+        return a.equals(b) || a.startsWith(b + ".") || b.startsWith(a + ".");
+    }
+
+    @Override
+    protected Class<?> findClass(@Nonnull final String name) throws ClassNotFoundException {
+        final int lastDot = name.lastIndexOf('.');
+        final Path owner = lastDot == -1 ? null : this.findOwningJar(name.substring(0, lastDot));
+        if (owner == null) return super.findClass(name);
+
+        final JarFile jar = this.claimedJars.get(owner);
+        final JarEntry classFile = jar.getJarEntry(name.replace('.', '/') + ".class");
+        if (classFile == null) throw new ClassNotFoundException(name + " (its package belongs to '" + owner + "')");
+
+        try (final InputStream stream = jar.getInputStream(classFile)) {
+            final byte[] bytes = ByteStreams.toByteArray(stream);
+            this.definePackageIfNeeded(name);
+            return this.defineClass(name, bytes, 0, bytes.length, new CodeSource(this.toUrl(owner.toUri()), (CodeSigner[]) null));
+        } catch (@Nonnull final IOException e) {
+            throw new ClassNotFoundException(name, e);
+        }
+    }
+
+    @Nullable
+    @Override
+    public URL findResource(@Nonnull final String name) {
+        final int lastSlash = name.lastIndexOf('/');
+        final Path owner = lastSlash == -1 ? null : this.findOwningJar(name.substring(0, lastSlash).replace('/', '.'));
+        if (owner == null) return super.findResource(name);
+        if (this.claimedJars.get(owner).getJarEntry(name) == null) return null;
+        try {
+            return new URL("jar:" + owner.toUri() + "!/" + name);
+        } catch (@Nonnull final MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        /*mutable*/ IOException failure = null;
+        for (@Nonnull final JarFile jar : this.claimedJars.values()) {
+            try {
+                jar.close();
+            } catch (@Nonnull final IOException e) {
+                if (failure == null) failure = e; else failure.addSuppressed(e);
+            }
+        }
+        this.claimedJars.clear();
+        try {
+            super.close();
+        } catch (@Nonnull final IOException e) {
+            if (failure == null) failure = e; else failure.addSuppressed(e);
+        }
+        if (failure != null) throw failure;
+    }
+
+    @Nullable
+    private Path findOwningJar(@Nonnull final String packageName) {
+        if (this.claims.isEmpty()) return null;
+        /*mutable*/ String currentPackage = packageName;
+        while (true) {
+            final Claim claim = this.claims.get(currentPackage);
+            if (claim != null) return claim.jar;
+            final int lastDot = currentPackage.lastIndexOf('.');
+            if (lastDot == -1) return null;
+            currentPackage = currentPackage.substring(0, lastDot);
+        }
+    }
+
+    private void definePackageIfNeeded(@Nonnull final String className) {
+        final int lastDot = className.lastIndexOf('.');
+        if (lastDot == -1) return;
+        final String packageName = className.substring(0, lastDot);
+        if (this.getPackage(packageName) != null) return;
+        try {
+            this.definePackage(packageName, null, null, null, null, null, null, null);
+        } catch (@Nonnull final IllegalArgumentException ignored) {
+            // Another thread defined it in the meantime
+        }
+    }
+
+    @Nonnull
+    private JarFile openJar(@Nonnull final Path jar) {
+        try {
+            return new JarFile(jar.toFile());
+        } catch (@Nonnull final IOException e) {
+            throw new UncheckedIOException("Unable to open '" + jar + "'", e);
+        }
+    }
+
+    @Nonnull
+    private URL toUrl(@Nonnull final URI uri) {
+        try {
+            return uri.toURL();
+        } catch (@Nonnull final MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
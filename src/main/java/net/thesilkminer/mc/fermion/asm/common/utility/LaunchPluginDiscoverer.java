@@ -1,63 +1,49 @@
 package net.thesilkminer.mc.fermion.asm.common.utility;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import com.google.common.io.ByteStreams;
 import cpw.mods.gross.Java9ClassLoaderUtil;
+import cpw.mods.modlauncher.api.IEnvironment;
 import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.io.BufferedInputStream;
 import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
-import java.net.MalformedURLException;
-import java.net.URI;
 import java.net.URL;
-import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.List;
 import java.util.Enumeration;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
 import java.util.zip.ZipOutputStream;
 
 public final class LaunchPluginDiscoverer {
 
-    private static final class LaunchPluginClassLoader extends URLClassLoader {
-        private LaunchPluginClassLoader(@Nonnull final URL[] urls, @Nonnull final ClassLoader parent) {
-            super(urls, parent);
-        }
-
-        @Override
-        protected void addURL(@Nullable final URL url) {
-            super.addURL(url);
-        }
-
-        private void addPaths(@Nonnull final List<Path> paths) {
-            paths.stream()
-                    .filter(Objects::nonNull)
-                    .map(Path::toUri)
-                    .map(this::toUrl)
-                    .forEach(this::addURL);
-        }
-
-        @Nonnull
-        private URL toUrl(@Nonnull final URI uri) {
-            try {
-                return uri.toURL();
-            } catch (@Nonnull final MalformedURLException e) {
-                throw new RuntimeException(e);
-            }
-        }
-    }
-
     private static final class WrappedInputOutputException extends RuntimeException {
         private WrappedInputOutputException(@Nonnull final IOException cause) {
             super(cause);
@@ -71,9 +57,18 @@ public final class LaunchPluginDiscoverer {
 
     private static final Log LOGGER = Log.of("LaunchPluginDiscoverer");
 
-    private final List<Path> transformersPaths = Lists.newArrayList();
+    @SuppressWarnings("SpellCheckingInspection")
+    private static final String LAUNCH_PLUGIN_SERVICE_ENTRY = "META-INF/services/net.thesilkminer.mc.fermion.asm.api.LaunchPlugin";
+    @SuppressWarnings("SpellCheckingInspection")
+    private static final String FERMION_LOCATION_ENTRY = "META-INF/.fermionlocation";
+    private static final String DISCOVERY_INDEX_FILE = "config/FermionEnv/fermion.asm.service/discovery_index.json";
+    private static final int MAX_SCANNING_THREADS = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
 
-    private Path fermionJar = null;
+    private final List<ScannedJar> launchPluginJars = Lists.newArrayList();
+    private final List<LazyLaunchPlugin> lazyLaunchPlugins = Lists.newArrayList();
+
+    private ScannedJar fermionJar = null;
+    private Path gameRoot = null;
 
     private LaunchPluginDiscoverer() {}
 
@@ -83,23 +78,29 @@ public final class LaunchPluginDiscoverer {
     }
 
     @Nonnull
-    public Iterable<LaunchPlugin> discover() {
+    public Iterable<LaunchPlugin> discover(@Nonnull final IEnvironment environment) {
         LOGGER.i("Discovering Launch Plugins");
         final List<LaunchPlugin> launchPlugins = Lists.newArrayList();
         final ServiceLoader<LaunchPlugin> classPath = ServiceLoader.load(LaunchPlugin.class);
         for (@Nonnull final LaunchPlugin plugin : classPath) launchPlugins.add(plugin);
-        launchPlugins.addAll(this.discoverFromPaths());
-        LOGGER.i("Discovered a total of " + this.discoverIteratorSize(launchPlugins) + " plugins");
+        this.discoverLazyFromClassPath();
+        launchPlugins.addAll(this.discoverFromPaths(environment, launchPlugins));
+        LOGGER.i("Discovered a total of " + this.discoverIteratorSize(launchPlugins) + " plugins, plus " + this.lazyLaunchPlugins.size() + " lazy ones");
         return launchPlugins;
     }
 
+    @Nonnull
+    public List<LazyLaunchPlugin> getLazyLaunchPlugins() {
+        return ImmutableList.copyOf(this.lazyLaunchPlugins);
+    }
+
     public void extractFermion(final boolean isEnabled) {
         LOGGER.i("Copying Fermion Launch Plugin JAR to allow it to be loaded by Forge's classloader");
         LOGGER.d("So, this is a FUCKING DIRTY HACK! For some reason Forge thought that services can only be discovered once");
         LOGGER.d("This means that files that are identified as transformers will not get loaded again, because 'boo hoo classloading'");
         LOGGER.d("So fuck off, we'll copy the files over and let Forge go fuck itself.");
-        LOGGER.d("If you're worried about leftovers, you need to be, but Fermion is good enough to cleanup after himself");
-        LOGGER.d("We'll delete all the fucking files when the client or server shuts down, I promise");
+        LOGGER.d("If you're worried about leftovers, the copy is kept around only as long as it matches the Fermion JAR it comes from");
+        LOGGER.d("Disabling the copy or updating Fermion gets rid of the old one, and the copy deletes itself if Fermion is removed");
 
         if (Objects.isNull(this.fermionJar)) {
             LOGGER.e("Actually, this is a gigantic issue... WE DO NOT EXIST!!!", new IllegalStateException("Fermion JAR path is null, but Fermion is currently loading. Like, WTF?"));
@@ -107,80 +108,135 @@ public final class LaunchPluginDiscoverer {
             return;
         }
 
-        final Path newJarFilePath = this.fermionJar.resolve("./transformers/../../__extraction__fermion_extraction__mod_file_Fermion_mod.jar").normalize();
-        Runtime.getRuntime().addShutdownHook(new Thread(() ->  {
+        final Path newJarFilePath = this.fermionJar.getPath().resolveSibling(ExtractionMarker.EXTRACTED_JAR_NAME);
+
+        if (!isEnabled) {
+            LOGGER.w("Disabling due to request: this won't go well, honey");
             try {
                 Files.deleteIfExists(newJarFilePath);
             } catch (@Nonnull final IOException e) {
                 LOGGER.e("Well, nice", e);
             }
-        }));
+            return;
+        }
 
-        if (!isEnabled) {
-            LOGGER.w("Disabling due to request: this won't go well, honey");
+        // The comment ties the copy to the exact contents and location of the JAR it was extracted from
+        final String extractionMarker = ExtractionMarker.of(this.fermionJar.getHash(), this.fermionJar.getPath());
+        if (Files.isRegularFile(newJarFilePath) && RawZipCopier.readComment(newJarFilePath).filter(extractionMarker::equals).isPresent()) {
+            LOGGER.i("Fermion JAR is unchanged since the last copy was made: reusing '" + newJarFilePath + "'");
             return;
         }
 
-        this.doCopy(this.fermionJar, newJarFilePath);
+        this.doCopy(this.fermionJar.getPath(), newJarFilePath, extractionMarker);
     }
 
-    private void doCopy(@Nonnull final Path in, @Nonnull final Path out) {
+    private void doCopy(@Nonnull final Path in, @Nonnull final Path out, @Nonnull final String extractionMarker) {
+        LOGGER.d("Using '" + in + "' as input");
+        LOGGER.d("Using '" + out + "' as output");
+        final Path temporary = out.resolveSibling(out.getFileName() + ".tmp");
         try {
-            this.doWithZipFile(in, inFile -> {
-                Objects.requireNonNull(inFile);
-                LOGGER.d("Using '" + in + "' as input");
-                LOGGER.d("Using '" + out + "' as output");
-                if (Files.exists(out)) {
-                    LOGGER.d("For some reason the output file exists... Deleting");
-                    Files.delete(out);
-                }
-                Files.createFile(out);
-                try {
-                    Thread.sleep(1000);
-                } catch (@Nonnull final InterruptedException ignored) {}
-                this.doZipFileCopy(inFile, out.toAbsolutePath().normalize().toFile());
-                return null;
-            });
+            if (!RawZipCopier.copy(in, temporary, this::shouldBeCopied, extractionMarker)) {
+                LOGGER.d("Fermion JAR cannot be copied as-is: falling back to re-compressing it");
+                this.doWithZipFile(in, inFile -> {
+                    this.doZipFileCopy(Objects.requireNonNull(inFile), temporary, extractionMarker);
+                    return null;
+                });
+            }
+            try {
+                Files.move(temporary, out, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (@Nonnull final AtomicMoveNotSupportedException e) {
+                Files.move(temporary, out, StandardCopyOption.REPLACE_EXISTING);
+            }
         } catch (@Nonnull final IOException e) {
             throw new WrappedInputOutputException(e);
         }
     }
 
-    private void doZipFileCopy(@Nonnull final ZipFile in, @Nonnull final File out) throws IOException {
-        try (@Nonnull final ZipOutputStream o = new ZipOutputStream(new FileOutputStream(out))) {
+    private boolean shouldBeCopied(@Nonnull final String entryName) {
+        return !entryName.startsWith("META-INF/services/");
+    }
+
+    private void doZipFileCopy(@Nonnull final ZipFile in, @Nonnull final Path out, @Nonnull final String extractionMarker) throws IOException {
+        try (@Nonnull final ZipOutputStream o = new ZipOutputStream(Files.newOutputStream(out))) {
             final Enumeration<? extends ZipEntry> entries = in.entries();
             while (entries.hasMoreElements()) {
                 final ZipEntry entry = entries.nextElement();
-                if (entry.getName().startsWith("META-INF/services/")) continue;
+                if (!this.shouldBeCopied(entry.getName())) continue;
                 final ZipEntry outEntry = new ZipEntry(entry.getName());
                 o.putNextEntry(outEntry);
-                try (@Nonnull final BufferedInputStream bufIn = new BufferedInputStream(in.getInputStream(entry))) {
-                    while (bufIn.available() > 0) {
-                        o.write(bufIn.read());
-                    }
+                try (@Nonnull final InputStream entryIn = in.getInputStream(entry)) {
+                    ByteStreams.copy(entryIn, o);
                 }
                 o.closeEntry();
             }
+            o.setComment(extractionMarker);
             o.finish();
         }
     }
 
+    private void discoverLazyFromClassPath() {
+        // Same loader ServiceLoader uses, so that lazy plugins are looked up in the same places eager ones are
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        final ClassLoader loader = contextLoader == null ? ClassLoader.getSystemClassLoader() : contextLoader;
+        try {
+            final Enumeration<URL> declarations = loader.getResources(LaunchPlugin.LAZY_DECLARATIONS_RESOURCE);
+            while (declarations.hasMoreElements()) {
+                final URL declaration = declarations.nextElement();
+                final String contents = String.join("\n", this.readLines(declaration.openStream()));
+                this.addLazyLaunchPlugins(LazyLaunchPlugin.parse(contents, loader, null, declaration.toString()), declaration.toString());
+            }
+        } catch (@Nonnull final IOException e) {
+            throw new WrappedInputOutputException(e);
+        }
+    }
+
     @Nonnull
-    private List<LaunchPlugin> discoverFromPaths() {
+    private List<LaunchPlugin> discoverFromPaths(@Nonnull final IEnvironment environment, @Nonnull final List<LaunchPlugin> classPathPlugins) {
         final List<LaunchPlugin> launchPlugins = Lists.newArrayList();
-        final List<Path> candidateFiles = this.discoverPaths();
+        final List<ScannedJar> candidateJars = this.discoverJars(environment);
         final LaunchPluginClassLoader loader = new LaunchPluginClassLoader(Java9ClassLoaderUtil.getSystemClassPathURLs(), this.getClass().getClassLoader());
-        loader.addPaths(candidateFiles);
-        candidateFiles.forEach(it -> this.loadLaunchPlugin(it, launchPlugins, loader));
+        loader.addPaths(candidateJars.stream().map(ScannedJar::getPath).collect(Collectors.toList()));
+        classPathPlugins.forEach(it -> loader.claimRootPackages(null, it));
+        candidateJars.forEach(jar -> jar.getLaunchPluginClasses().forEach(it -> {
+            final LaunchPlugin plugin = this.loadLaunchPlugin(it, loader);
+            // From now on, every class in the root packages of this plugin will be looked up in its JAR only
+            loader.claimRootPackages(jar.getPath(), plugin);
+            launchPlugins.add(plugin);
+        }));
+        candidateJars.stream()
+                .filter(ScannedJar::hasLazyLaunchPlugins)
+                .forEach(it -> this.addLazyLaunchPlugins(LazyLaunchPlugin.parse(it.getLazyLaunchPluginDeclarations(), loader, it.getPath(), it.getPath().toString()), it.getPath().toString()));
         return launchPlugins;
     }
 
+    private void addLazyLaunchPlugins(@Nonnull final List<LazyLaunchPlugin> plugins, @Nonnull final String source) {
+        plugins.forEach(it -> {
+            // A JAR that is both on the class path and in the mods folder declares everything twice: the first one found wins
+            if (this.lazyLaunchPlugins.stream().anyMatch(other -> other.getId().equals(it.getId()))) {
+                LOGGER.w("Lazy launch plugin '" + it.getId() + "' declared in '" + source + "' was already declared elsewhere: ignoring it");
+                return;
+            }
+            this.lazyLaunchPlugins.add(it);
+        });
+    }
+
+    @Nonnull
+    private List<ScannedJar> discoverJars(@Nonnull final IEnvironment environment) {
+        if (this.launchPluginJars.isEmpty()) {
+            this.launchPluginJars.addAll(this.getCandidates(this.findGameRoot(environment)));
+        }
+        return this.launchPluginJars;
+    }
+
     @Nonnull
-    private List<Path> discoverPaths() {
-        if (this.transformersPaths.isEmpty()) {
-            this.transformersPaths.addAll(this.getCandidates(this.hackGameRootFromLauncher()));
+    public Path findGameRoot(@Nonnull final IEnvironment environment) {
+        // ModLauncher populates the game directory only after services have been loaded, so in a real launch
+        // this is always empty and we need to go through the hack. Other environments (e.g. the offline
+        // harness) may instead provide it right away.
+        if (this.gameRoot == null) {
+            this.gameRoot = environment.getProperty(IEnvironment.Keys.GAMEDIR.get()).orElseGet(this::hackGameRootFromLauncher);
         }
-        return this.transformersPaths;
+        return this.gameRoot;
     }
 
     @Nonnull
@@ -223,52 +279,53 @@ public final class LaunchPluginDiscoverer {
     }
 
     @Nonnull
-    private List<Path> getCandidates(@Nonnull final Path gameRoot) {
-        final List<Path> paths = Lists.newArrayList();
+    private List<ScannedJar> getCandidates(@Nonnull final Path gameRoot) {
+        final DiscoveryIndex index = DiscoveryIndex.load(gameRoot.resolve(DISCOVERY_INDEX_FILE).toAbsolutePath().normalize());
+        final List<Path> jars = Lists.newArrayList();
 
         final Path modsDirectory = gameRoot.resolve("mods");
         if (!Files.exists(modsDirectory)) {
             LOGGER.w("Unable to find 'mods' directory. This is not a good thing");
         } else {
-            paths.addAll(this.getCandidatesInDirectory(modsDirectory));
+            jars.addAll(this.getCandidatesInDirectory(modsDirectory));
         }
 
         final Path transformersDirectory = modsDirectory.resolve("transformers");
         if (!Files.exists(transformersDirectory)) {
             LOGGER.w("Unable to find 'mods/transformers' directory. This is not a good thing");
         } else {
-            paths.addAll(this.getCandidatesInDirectory(transformersDirectory));
+            jars.addAll(this.getCandidatesInDirectory(transformersDirectory));
         }
 
-        return paths;
+        final List<ScannedJar> candidates = Lists.newArrayList();
+        for (@Nonnull final ScannedJar jar : this.scanJars(jars, index)) {
+            index.record(jar);
+            if (jar.isLaunchPlugin() || jar.hasLazyLaunchPlugins()) {
+                LOGGER.i("Found valid Launch Plugin '" + jar.getPath() + "'. Adding to loading queue");
+                candidates.add(jar);
+            }
+            if (jar.isFermionJar()) {
+                LOGGER.i("Found Fermion JAR file '" + jar.getPath() + "'");
+                this.fermionJar = jar;
+            }
+        }
+        index.save();
+        return candidates;
     }
 
     @Nonnull
     private List<Path> getCandidatesInDirectory(@Nonnull final Path root) {
-        final List<Path> paths = Lists.newArrayList();
-        try {
-            Files.walk(root, 1).forEach(it -> this.attemptToLoadFile(it, paths));
+        try (final Stream<Path> files = Files.walk(root, 1)) {
+            return files.filter(Files::isRegularFile) // Skip things like "." or ".." or weird stuff
+                    .filter(this::isJarFile) // Transformers must be packaged in JAR files
+                    .filter(it -> !ExtractionMarker.EXTRACTED_JAR_NAME.equals(it.getFileName().toString())) // That's our own copy
+                    .filter(this::hasContent) // Empty files are bogus
+                    .map(it -> it.toAbsolutePath().normalize())
+                    .sorted() // Keep discovery order stable across file systems
+                    .collect(Collectors.toList());
         } catch (@Nonnull final IOException e) {
             LOGGER.e("An error has occurred while discovering Launch Plugins!", e);
-        }
-        return paths;
-    }
-
-    private void attemptToLoadFile(@Nonnull final Path file, @Nonnull final List<Path> paths) {
-        if (!Files.isRegularFile(file)) return; // It's something like "." or ".." or weird stuff
-        if (!this.isJarFile(file)) return; // Transformers must be packaged in JAR files
-        if (!this.hasContent(file)) return; // Empty files are bogus
-        try {
-            if (this.examineZipFile(file)) {
-                LOGGER.i("Found valid Launch Plugin '" + file + "'. Adding to loading queue");
-                paths.add(file);
-            }
-            if (this.examineZipFileForFermionJar(file)) {
-                LOGGER.i("Found Fermion JAR file '" + file + "'");
-                this.fermionJar = file;
-            }
-        } catch (@Nonnull final IOException e) {
-            throw new WrappedInputOutputException(e);
+            return Lists.newArrayList();
         }
     }
 
@@ -284,51 +341,115 @@ public final class LaunchPluginDiscoverer {
         }
     }
 
-    @SuppressWarnings("SpellCheckingInspection")
-    private boolean examineZipFile(@Nonnull final Path file) throws IOException {
-        return this.doWithZipFile(file, jar -> {
-            Objects.requireNonNull(jar);
-            return this.getTargetEntry(jar, "META-INF/services/net.thesilkminer.mc.fermion.asm.api.LaunchPlugin") != null;
-        });
-    }
+    @Nonnull
+    private List<ScannedJar> scanJars(@Nonnull final List<Path> jars, @Nonnull final DiscoveryIndex index) {
+        if (jars.isEmpty()) return Lists.newArrayList();
 
-    @SuppressWarnings("SpellCheckingInspection")
-    private boolean examineZipFileForFermionJar(@Nonnull final Path file) throws IOException {
-        return this.doWithZipFile(file, jar -> {
-            Objects.requireNonNull(jar);
-            return this.getTargetEntry(jar, "META-INF/.fermionlocation") != null;
-        });
+        final List<Future<ScannedJar>> futures = Lists.newArrayList();
+        /*mutable*/ ExecutorService executor = null;
+        /*mutable*/ int scanned = 0;
+
+        try {
+            for (@Nonnull final Path jar : jars) {
+                final BasicFileAttributes attributes = this.readAttributes(jar);
+                final Optional<ScannedJar> indexed = index.lookup(jar, attributes);
+                if (indexed.isPresent()) {
+                    futures.add(CompletableFuture.completedFuture(indexed.get()));
+                    continue;
+                }
+                if (executor == null) executor = this.createScanningExecutor(jars.size());
+                futures.add(executor.submit(() -> this.scanJar(jar, attributes)));
+                ++scanned;
+            }
+
+            LOGGER.d("Scanning " + scanned + " JAR files for Launch Plugins, " + (jars.size() - scanned) + " are unchanged since last launch");
+
+            // Joining in submission order keeps results deterministic, no matter which scan completes first
+            final List<ScannedJar> results = Lists.newArrayList();
+            for (@Nonnull final Future<ScannedJar> future : futures) results.add(this.join(future));
+            return results;
+        } finally {
+            if (executor != null) executor.shutdownNow();
+        }
     }
 
-    @Nullable
-    @SuppressWarnings("SameParameterValue")
-    private ZipEntry getTargetEntry(@Nonnull final ZipFile file, @Nonnull final String name) {
-        return file.getEntry(name);
+    @Nonnull
+    private ExecutorService createScanningExecutor(final int jarCount) {
+        final AtomicInteger threadId = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.min(jarCount, MAX_SCANNING_THREADS), it -> {
+            final Thread thread = new Thread(it, "Fermion Discovery #" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
-    private void loadLaunchPlugin(@Nonnull final Path file, @Nonnull final List<LaunchPlugin> plugins, @Nonnull final ClassLoader loader) {
+    @Nonnull
+    private BasicFileAttributes readAttributes(@Nonnull final Path file) {
         try {
-            this.loadLaunchPluginFromZip(file, plugins, loader);
+            return Files.readAttributes(file, BasicFileAttributes.class);
         } catch (@Nonnull final IOException e) {
             throw new WrappedInputOutputException(e);
         }
     }
 
+    @Nonnull
+    private ScannedJar join(@Nonnull final Future<ScannedJar> future) {
+        try {
+            return future.get();
+        } catch (@Nonnull final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while discovering Launch Plugins", e);
+        } catch (@Nonnull final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    @Nonnull
     @SuppressWarnings("SpellCheckingInspection")
-    private void loadLaunchPluginFromZip(@Nonnull final Path file, @Nonnull final List<LaunchPlugin> plugins, @Nonnull final ClassLoader loader) throws IOException {
-        this.doWithZipFile(file, jar -> {
-            Objects.requireNonNull(jar);
-            final ZipEntry entry = this.getTargetEntry(jar, "META-INF/services/net.thesilkminer.mc.fermion.asm.api.LaunchPlugin");
-            Objects.requireNonNull(entry);
-            try (final BufferedReader stream = new BufferedReader(new InputStreamReader(jar.getInputStream(entry)))) {
-                stream.lines()
+    private ScannedJar scanJar(@Nonnull final Path file, @Nonnull final BasicFileAttributes attributes) {
+        try {
+            // Everything we need from a JAR gets read now, so that every file is opened exactly once
+            return this.doWithZipFile(file, jar -> {
+                Objects.requireNonNull(jar);
+                final ZipEntry servicesEntry = jar.getEntry(LAUNCH_PLUGIN_SERVICE_ENTRY);
+                final ZipEntry lazyEntry = jar.getEntry(LaunchPlugin.LAZY_DECLARATIONS_RESOURCE);
+                final boolean isFermionJar = jar.getEntry(FERMION_LOCATION_ENTRY) != null;
+                final long size = attributes.size();
+                final long lastModified = attributes.lastModifiedTime().toMillis();
+                final String hash = this.hashCentralDirectory(jar);
+                final List<String> classes = servicesEntry == null ? ImmutableList.of() : this.readLines(jar.getInputStream(servicesEntry)).stream()
                         .map(String::trim)
                         .filter(it -> !it.isEmpty())
-                        .map(it -> this.loadLaunchPlugin(it, loader))
-                        .forEach(plugins::add);
-            }
-            return null;
-        });
+                        .collect(Collectors.toList());
+                final String lazyDeclarations = lazyEntry == null ? "" : String.join("\n", this.readLines(jar.getInputStream(lazyEntry)));
+                return new ScannedJar(file, size, lastModified, hash, servicesEntry != null, classes, isFermionJar, lazyDeclarations);
+            });
+        } catch (@Nonnull final IOException e) {
+            throw new WrappedInputOutputException(e);
+        }
+    }
+
+    @Nonnull
+    private List<String> readLines(@Nonnull final InputStream stream) throws IOException {
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.toList());
+        }
+    }
+
+    @Nonnull
+    private String hashCentralDirectory(@Nonnull final ZipFile jar) {
+        // Names, sizes and checksums of every entry are already in memory once the JAR is open, so hashing them
+        // identifies the contents without having to inflate anything
+        final Hasher hasher = Hashing.sha256().newHasher();
+        final Enumeration<? extends ZipEntry> entries = jar.entries();
+        while (entries.hasMoreElements()) {
+            final ZipEntry entry = entries.nextElement();
+            hasher.putString(entry.getName(), StandardCharsets.UTF_8).putLong(entry.getSize()).putLong(entry.getCrc());
+        }
+        return hasher.hash().toString();
     }
 
     private <T> T doWithZipFile(@Nonnull final Path file, @Nonnull final ExceptionalFunction<ZipFile, T, IOException> consumer) throws IOException {
@@ -0,0 +1,104 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+public final class LazyLaunchPlugin {
+
+    private final String id;
+    private final String className;
+    private final ClassLoader loader;
+    private final Path jar;
+    private final Map<String, Set<ClassDescriptor>> transformerTargets;
+
+    private LazyLaunchPlugin(@Nonnull final String id, @Nonnull final String className, @Nonnull final ClassLoader loader,
+                             @Nullable final Path jar, @Nonnull final Map<String, Set<ClassDescriptor>> transformerTargets) {
+        this.id = id;
+        this.className = className;
+        this.loader = loader;
+        this.jar = jar;
+        this.transformerTargets = transformerTargets;
+    }
+
+    @Nonnull
+    static List<LazyLaunchPlugin> parse(@Nonnull final String declarations, @Nonnull final ClassLoader loader, @Nullable final Path jar,
+                                        @Nonnull final String source) {
+        final List<LazyLaunchPlugin> plugins = Lists.newArrayList();
+        try {
+            final JsonObject root = new GsonBuilder().create()
+                    .getAdapter(TypeToken.get(JsonObject.class))
+                    .read(new JsonReader(new StringReader(declarations)));
+            Preconditions.checkState(root != null && root.has("plugins"), "Missing 'plugins' array");
+            for (@Nonnull final JsonElement element : root.getAsJsonArray("plugins")) {
+                plugins.add(fromJson(element.getAsJsonObject(), loader, jar));
+            }
+        } catch (@Nonnull final IOException | RuntimeException e) {
+            throw new IllegalStateException("Invalid lazy Launch Plugin declarations in '" + source + "'", e);
+        }
+        return plugins;
+    }
+
+    @Nonnull
+    private static LazyLaunchPlugin fromJson(@Nonnull final JsonObject object, @Nonnull final ClassLoader loader, @Nullable final Path jar) {
+        final String id = object.get("id").getAsString();
+        final String className = object.get("class").getAsString();
+        final Map<String, Set<ClassDescriptor>> transformerTargets = Maps.newLinkedHashMap();
+        object.getAsJsonObject("transformers").entrySet().forEach(it -> {
+            final ImmutableSet.Builder<ClassDescriptor> targets = ImmutableSet.builder();
+            it.getValue().getAsJsonArray().forEach(target -> targets.add(ClassDescriptor.of(target.getAsString())));
+            transformerTargets.put(id + ":" + it.getKey(), targets.build());
+        });
+        return new LazyLaunchPlugin(id, className, loader, jar, ImmutableMap.copyOf(transformerTargets));
+    }
+
+    @Nonnull
+    public String getId() {
+        return this.id;
+    }
+
+    @Nonnull
+    public String getClassName() {
+        return this.className;
+    }
+
+    @Nonnull
+    public Map<String, Set<ClassDescriptor>> getTransformerTargets() {
+        return this.transformerTargets;
+    }
+
+    @Nonnull
+    LaunchPlugin instantiate() throws ReflectiveOperationException {
+        final Class<?> pluginClass = Class.forName(this.className, true, this.loader);
+        final LaunchPlugin plugin = (LaunchPlugin) pluginClass.getConstructor().newInstance();
+        if (this.loader instanceof LaunchPluginClassLoader) ((LaunchPluginClassLoader) this.loader).claimRootPackages(this.jar, plugin);
+        return plugin;
+    }
+
+    @Override
+    public String toString() {
+        return "LazyLaunchPlugin{" +
+                "id='" + this.id + '\'' +
+                ", className='" + this.className + '\'' +
+                ", transformerTargets=" + this.transformerTargets +
+                '}';
+    }
+}
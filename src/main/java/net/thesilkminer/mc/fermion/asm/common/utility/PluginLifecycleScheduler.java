@@ -0,0 +1,131 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.MoreExecutors;
+import net.thesilkminer.mc.fermion.asm.api.IncompatibleEnvironmentException;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.PluginMetadata;
+import org.apache.commons.lang3.tuple.Pair;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs a step of the plugin lifecycle for every plugin, starting each one as soon as the same step has completed for
+// all of its dependencies. Failures are reported in plugin order, no matter which one happened first.
+final class PluginLifecycleScheduler {
+
+    @FunctionalInterface
+    interface PluginTask {
+        void run(@Nonnull final PluginMetadata metadata, @Nonnull final LaunchPlugin plugin) throws IncompatibleEnvironmentException;
+    }
+
+    private static final Log LOGGER = Log.of("Plugin Lifecycle");
+
+    private static final int MAX_THREADS = Math.max(1, Math.min(8, Runtime.getRuntime().availableProcessors()));
+
+    private final Map<String, Pair<PluginMetadata, LaunchPlugin>> plugins;
+    private final List<String> dependencyOrder;
+
+    private PluginLifecycleScheduler(@Nonnull final Map<String, Pair<PluginMetadata, LaunchPlugin>> plugins, @Nonnull final List<String> dependencyOrder) {
+        this.plugins = plugins;
+        this.dependencyOrder = dependencyOrder;
+    }
+
+    @Nonnull
+    static PluginLifecycleScheduler of(@Nonnull final Map<String, Pair<PluginMetadata, LaunchPlugin>> plugins,
+                                       @Nonnull final Map<String, LazyLaunchPlugin> lazyPlugins) throws IncompatibleEnvironmentException {
+        for (@Nonnull final Map.Entry<String, Pair<PluginMetadata, LaunchPlugin>> plugin : plugins.entrySet()) {
+            for (@Nonnull final String dependency : plugin.getValue().getKey().getDependencies()) {
+                if (plugins.containsKey(dependency)) continue;
+                final String reason = lazyPlugins.containsKey(dependency) ? "is loaded lazily and cannot be depended upon" : "is not installed";
+                throw new IncompatibleEnvironmentException("Plugin '" + plugin.getKey() + "' depends on plugin '" + dependency + "', which " + reason);
+            }
+        }
+        return new PluginLifecycleScheduler(plugins, sortByDependencies(plugins));
+    }
+
+    // Kahn's algorithm, always picking the first available plugin in discovery order so that the result is stable
+    @Nonnull
+    private static List<String> sortByDependencies(@Nonnull final Map<String, Pair<PluginMetadata, LaunchPlugin>> plugins) throws IncompatibleEnvironmentException {
+        final List<String> remaining = Lists.newArrayList(plugins.keySet());
+        final List<String> sorted = Lists.newArrayListWithExpectedSize(remaining.size());
+        while (!remaining.isEmpty()) {
+            final String next = remaining.stream()
+                    .filter(it -> sorted.containsAll(plugins.get(it).getKey().getDependencies()))
+                    .findFirst()
+                    .orElseThrow(() -> new IncompatibleEnvironmentException("Plugins " + remaining + " have circular dependencies"));
+            remaining.remove(next);
+            sorted.add(next);
+        }
+        return ImmutableList.copyOf(sorted);
+    }
+
+    void run(@Nonnull final String step, @Nonnull final PluginTask task) throws IncompatibleEnvironmentException {
+        LOGGER.d("Running step '" + step + "' for " + this.plugins.size() + " plugins");
+        final ExecutorService pool = this.plugins.size() > 1 && MAX_THREADS > 1 ? this.createPool(step) : null;
+        final Executor executor = pool == null ? MoreExecutors.directExecutor() : pool;
+
+        try {
+            final Map<String, CompletableFuture<Void>> futures = Maps.newHashMap();
+            for (@Nonnull final String id : this.dependencyOrder) {
+                final Pair<PluginMetadata, LaunchPlugin> plugin = this.plugins.get(id);
+                final CompletableFuture<?>[] dependencies = plugin.getKey()
+                        .getDependencies()
+                        .stream()
+                        .map(futures::get)
+                        .toArray(CompletableFuture<?>[]::new);
+                futures.put(id, CompletableFuture.allOf(dependencies).thenRunAsync(() -> {
+                    try {
+                        task.run(plugin.getKey(), plugin.getValue());
+                    } catch (@Nonnull final IncompatibleEnvironmentException e) {
+                        throw new CompletionException(e);
+                    }
+                }, executor));
+            }
+
+            for (@Nonnull final String id : this.plugins.keySet()) this.join(futures.get(id));
+        } finally {
+            if (pool != null) pool.shutdownNow();
+        }
+    }
+
+    // For steps whose plugin code is not expected to be thread-safe: still in dependency order, but on the calling thread
+    void runSerially(@Nonnull final String step, @Nonnull final PluginTask task) throws IncompatibleEnvironmentException {
+        LOGGER.d("Running step '" + step + "' serially for " + this.plugins.size() + " plugins");
+        for (@Nonnull final String id : this.dependencyOrder) {
+            final Pair<PluginMetadata, LaunchPlugin> plugin = this.plugins.get(id);
+            task.run(plugin.getKey(), plugin.getValue());
+        }
+    }
+
+    private void join(@Nonnull final CompletableFuture<Void> future) throws IncompatibleEnvironmentException {
+        try {
+            future.join();
+        } catch (@Nonnull final CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IncompatibleEnvironmentException) throw (IncompatibleEnvironmentException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw e;
+        }
+    }
+
+    @Nonnull
+    private ExecutorService createPool(@Nonnull final String step) {
+        final AtomicInteger threadId = new AtomicInteger();
+        return Executors.newFixedThreadPool(Math.min(this.plugins.size(), MAX_THREADS), it -> {
+            final Thread thread = new Thread(it, "Fermion Plugin Lifecycle (" + step + ") #" + threadId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
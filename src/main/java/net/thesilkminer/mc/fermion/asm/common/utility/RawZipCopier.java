@@ -0,0 +1,201 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.common.collect.Lists;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+// Copies ZIP entries as they are stored on disk, so that compressed data never gets inflated and deflated again.
+// Only plain ZIP files are supported: ZIP64 archives, split archives or archives with data in front of them are
+// reported as unsupported, and callers are expected to fall back to a regular copy.
+final class RawZipCopier {
+
+    private static final class CentralRecord {
+        private final String name;
+        private final ByteBuffer record;
+        private final long localOffset;
+        private long localEnd;
+        private long newLocalOffset;
+
+        private CentralRecord(@Nonnull final String name, @Nonnull final ByteBuffer record, final long localOffset) {
+            this.name = name;
+            this.record = record;
+            this.localOffset = localOffset;
+        }
+    }
+
+    private static final class Archive {
+        private final List<CentralRecord> records;
+        private final long centralDirectoryOffset;
+        private final String comment;
+
+        private Archive(@Nonnull final List<CentralRecord> records, final long centralDirectoryOffset, @Nonnull final String comment) {
+            this.records = records;
+            this.centralDirectoryOffset = centralDirectoryOffset;
+            this.comment = comment;
+        }
+    }
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+    private static final int CENTRAL_RECORD_SIGNATURE = 0x02014b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int CENTRAL_RECORD_SIZE = 46;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+    private static final int UTF_8_FLAG = 1 << 11;
+
+    private RawZipCopier() {}
+
+    // Returns false if the archive cannot be copied raw; nothing is written in that case
+    static boolean copy(@Nonnull final Path in, @Nonnull final Path out, @Nonnull final Predicate<String> entryFilter,
+                        @Nonnull final String comment) throws IOException {
+        try (final FileChannel input = FileChannel.open(in, StandardOpenOption.READ)) {
+            final Optional<Archive> parsedArchive = readArchive(input);
+            if (!parsedArchive.isPresent()) return false;
+            final Archive archive = parsedArchive.get();
+
+            // Local data of an entry runs until the next one starts, which also takes care of data descriptors
+            final List<CentralRecord> byOffset = Lists.newArrayList(archive.records);
+            byOffset.sort(Comparator.comparingLong(it -> it.localOffset));
+            for (int i = 0; i < byOffset.size(); ++i) {
+                byOffset.get(i).localEnd = i + 1 < byOffset.size() ? byOffset.get(i + 1).localOffset : archive.centralDirectoryOffset;
+            }
+
+            try (final FileChannel output = FileChannel.open(out, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                /*mutable*/ int count = 0;
+                for (@Nonnull final CentralRecord record : byOffset) {
+                    if (!entryFilter.test(record.name)) continue;
+                    record.newLocalOffset = output.position();
+                    transfer(input, record.localOffset, record.localEnd - record.localOffset, output);
+                }
+
+                final long centralDirectoryOffset = output.position();
+                for (@Nonnull final CentralRecord record : archive.records) {
+                    if (!entryFilter.test(record.name)) continue;
+                    final ByteBuffer patched = record.record.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+                    patched.putInt(42, (int) record.newLocalOffset);
+                    writeFully(output, patched);
+                    ++count;
+                }
+                final long centralDirectorySize = output.position() - centralDirectoryOffset;
+
+                final byte[] commentBytes = comment.getBytes(StandardCharsets.UTF_8);
+                final ByteBuffer end = ByteBuffer.allocate(END_OF_CENTRAL_DIRECTORY_SIZE + commentBytes.length).order(ByteOrder.LITTLE_ENDIAN);
+                end.putInt(END_OF_CENTRAL_DIRECTORY_SIGNATURE)
+                        .putShort((short) 0)
+                        .putShort((short) 0)
+                        .putShort((short) count)
+                        .putShort((short) count)
+                        .putInt((int) centralDirectorySize)
+                        .putInt((int) centralDirectoryOffset)
+                        .putShort((short) commentBytes.length)
+                        .put(commentBytes);
+                end.flip();
+                writeFully(output, end);
+            }
+            return true;
+        }
+    }
+
+    @Nonnull
+    static Optional<String> readComment(@Nonnull final Path file) {
+        try (final FileChannel input = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readArchive(input).map(it -> it.comment);
+        } catch (@Nonnull final IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Nonnull
+    private static Optional<Archive> readArchive(@Nonnull final FileChannel input) throws IOException {
+        final long size = input.size();
+        if (size < END_OF_CENTRAL_DIRECTORY_SIZE) return Optional.empty();
+
+        final int tailSize = (int) Math.min(size, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        final long tailStart = size - tailSize;
+        final ByteBuffer tail = read(input, tailStart, tailSize);
+
+        /*mutable*/ int end = -1;
+        for (int i = tailSize - END_OF_CENTRAL_DIRECTORY_SIZE; i >= 0; --i) {
+            if (tail.getInt(i) == END_OF_CENTRAL_DIRECTORY_SIGNATURE && i + END_OF_CENTRAL_DIRECTORY_SIZE + Short.toUnsignedInt(tail.getShort(i + 20)) == tailSize) {
+                end = i;
+                break;
+            }
+        }
+        if (end == -1) return Optional.empty();
+
+        final int disk = Short.toUnsignedInt(tail.getShort(end + 4));
+        final int centralDirectoryDisk = Short.toUnsignedInt(tail.getShort(end + 6));
+        final int entriesOnDisk = Short.toUnsignedInt(tail.getShort(end + 8));
+        final int entries = Short.toUnsignedInt(tail.getShort(end + 10));
+        final long centralDirectorySize = Integer.toUnsignedLong(tail.getInt(end + 12));
+        final long centralDirectoryOffset = Integer.toUnsignedLong(tail.getInt(end + 16));
+        final int commentLength = Short.toUnsignedInt(tail.getShort(end + 20));
+
+        if (disk != 0 || centralDirectoryDisk != 0 || entriesOnDisk != entries) return Optional.empty();
+        if (entries == 0xFFFF || centralDirectorySize == 0xFFFFFFFFL || centralDirectoryOffset == 0xFFFFFFFFL) return Optional.empty();
+        if (end >= 20 && tail.getInt(end - 20) == ZIP64_LOCATOR_SIGNATURE) return Optional.empty();
+        if (centralDirectoryOffset + centralDirectorySize != tailStart + end) return Optional.empty();
+
+        final byte[] commentBytes = new byte[commentLength];
+        ((ByteBuffer) tail.duplicate().position(end + END_OF_CENTRAL_DIRECTORY_SIZE)).get(commentBytes);
+
+        final ByteBuffer centralDirectory = read(input, centralDirectoryOffset, (int) centralDirectorySize);
+        final List<CentralRecord> records = Lists.newArrayListWithExpectedSize(entries);
+        /*mutable*/ int position = 0;
+        for (int i = 0; i < entries; ++i) {
+            if (position + CENTRAL_RECORD_SIZE > centralDirectorySize || centralDirectory.getInt(position) != CENTRAL_RECORD_SIGNATURE) return Optional.empty();
+            final int flags = Short.toUnsignedInt(centralDirectory.getShort(position + 8));
+            final int nameLength = Short.toUnsignedInt(centralDirectory.getShort(position + 28));
+            final int extraLength = Short.toUnsignedInt(centralDirectory.getShort(position + 30));
+            final int entryCommentLength = Short.toUnsignedInt(centralDirectory.getShort(position + 32));
+            final long localOffset = Integer.toUnsignedLong(centralDirectory.getInt(position + 42));
+            final int recordLength = CENTRAL_RECORD_SIZE + nameLength + extraLength + entryCommentLength;
+            if (localOffset == 0xFFFFFFFFL || position + recordLength > centralDirectorySize) return Optional.empty();
+
+            final byte[] nameBytes = new byte[nameLength];
+            ((ByteBuffer) centralDirectory.duplicate().position(position + CENTRAL_RECORD_SIZE)).get(nameBytes);
+            final Charset charset = (flags & UTF_8_FLAG) != 0 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+
+            final ByteBuffer record = ((ByteBuffer) centralDirectory.duplicate().position(position).limit(position + recordLength)).slice();
+            records.add(new CentralRecord(new String(nameBytes, charset), record, localOffset));
+            position += recordLength;
+        }
+
+        return Optional.of(new Archive(records, centralDirectoryOffset, new String(commentBytes, StandardCharsets.UTF_8)));
+    }
+
+    @Nonnull
+    private static ByteBuffer read(@Nonnull final FileChannel input, final long position, final int length) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+        while (buffer.hasRemaining()) {
+            if (input.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of file while reading ZIP structure");
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void transfer(@Nonnull final FileChannel input, final long position, final long length, @Nonnull final FileChannel output) throws IOException {
+        /*mutable*/ long transferred = 0;
+        while (transferred < length) {
+            final long current = input.transferTo(position + transferred, length - transferred, output);
+            if (current <= 0) throw new IOException("Unable to transfer ZIP entry data");
+            transferred += current;
+        }
+    }
+
+    private static void writeFully(@Nonnull final FileChannel output, @Nonnull final ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) output.write(buffer);
+    }
+}
@@ -0,0 +1,108 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+
+final class ScannedJar {
+    private final Path path;
+    private final long size;
+    private final long lastModified;
+    private final String hash;
+    private final boolean isLaunchPlugin;
+    private final List<String> launchPluginClasses;
+    private final boolean isFermionJar;
+    private final String lazyLaunchPluginDeclarations;
+
+    ScannedJar(@Nonnull final Path path, final long size, final long lastModified, @Nonnull final String hash,
+               final boolean isLaunchPlugin, @Nonnull final List<String> launchPluginClasses, final boolean isFermionJar,
+               @Nonnull final String lazyLaunchPluginDeclarations) {
+        this.path = path;
+        this.size = size;
+        this.lastModified = lastModified;
+        this.hash = hash;
+        this.isLaunchPlugin = isLaunchPlugin;
+        this.launchPluginClasses = ImmutableList.copyOf(launchPluginClasses);
+        this.isFermionJar = isFermionJar;
+        this.lazyLaunchPluginDeclarations = lazyLaunchPluginDeclarations;
+    }
+
+    @Nonnull
+    Path getPath() {
+        return this.path;
+    }
+
+    long getSize() {
+        return this.size;
+    }
+
+    long getLastModified() {
+        return this.lastModified;
+    }
+
+    @Nonnull
+    String getHash() {
+        return this.hash;
+    }
+
+    boolean isLaunchPlugin() {
+        return this.isLaunchPlugin;
+    }
+
+    @Nonnull
+    List<String> getLaunchPluginClasses() {
+        return this.launchPluginClasses;
+    }
+
+    boolean isFermionJar() {
+        return this.isFermionJar;
+    }
+
+    // Raw contents of the declarations file, or an empty string if there is none
+    @Nonnull
+    String getLazyLaunchPluginDeclarations() {
+        return this.lazyLaunchPluginDeclarations;
+    }
+
+    boolean hasLazyLaunchPlugins() {
+        return !this.lazyLaunchPluginDeclarations.isEmpty();
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || this.getClass() != o.getClass()) return false;
+        final ScannedJar that = (ScannedJar) o;
+        return this.size == that.size &&
+                this.lastModified == that.lastModified &&
+                this.isLaunchPlugin == that.isLaunchPlugin &&
+                this.isFermionJar == that.isFermionJar &&
+                Objects.equals(this.path, that.path) &&
+                Objects.equals(this.hash, that.hash) &&
+                Objects.equals(this.launchPluginClasses, that.launchPluginClasses) &&
+                Objects.equals(this.lazyLaunchPluginDeclarations, that.lazyLaunchPluginDeclarations);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(this.path, this.size, this.lastModified, this.hash, this.isLaunchPlugin, this.launchPluginClasses, this.isFermionJar,
+                this.lazyLaunchPluginDeclarations);
+    }
+
+    @Override
+    public String toString() {
+        return "ScannedJar{" +
+                "path=" + this.path +
+                ", size=" + this.size +
+                ", lastModified=" + this.lastModified +
+                ", hash='" + this.hash + '\'' +
+                ", isLaunchPlugin=" + this.isLaunchPlugin +
+                ", launchPluginClasses=" + this.launchPluginClasses +
+                ", isFermionJar=" + this.isFermionJar +
+                ", hasLazyLaunchPlugins=" + this.hasLazyLaunchPlugins() +
+                '}';
+    }
+}
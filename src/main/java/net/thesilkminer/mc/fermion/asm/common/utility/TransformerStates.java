@@ -0,0 +1,63 @@
+package net.thesilkminer.mc.fermion.asm.common.utility;
+
+import com.google.common.collect.ImmutableMap;
+
+import javax.annotation.Nonnull;
+import java.util.BitSet;
+import java.util.Map;
+
+// Immutable view of which transformers are enabled, indexed by the order in which they were registered. A new instance
+// is published every time the configuration changes, so readers never need to synchronize.
+public final class TransformerStates {
+
+    public static final int UNKNOWN_ORDINAL = -1;
+
+    private static final TransformerStates EMPTY = new TransformerStates(ImmutableMap.of(), new BitSet());
+
+    private final Map<String, Integer> ordinals;
+    private final BitSet enabled;
+
+    private TransformerStates(@Nonnull final Map<String, Integer> ordinals, @Nonnull final BitSet enabled) {
+        this.ordinals = ordinals;
+        this.enabled = enabled;
+    }
+
+    @Nonnull
+    static TransformerStates empty() {
+        return EMPTY;
+    }
+
+    @Nonnull
+    static TransformerStates of(@Nonnull final Map<String, Integer> ordinals, @Nonnull final BitSet enabled) {
+        return new TransformerStates(ImmutableMap.copyOf(ordinals), (BitSet) enabled.clone());
+    }
+
+    public int ordinalOf(@Nonnull final String registryName) {
+        final Integer ordinal = this.ordinals.get(registryName);
+        return ordinal == null ? UNKNOWN_ORDINAL : ordinal;
+    }
+
+    public boolean isKnown(@Nonnull final String registryName) {
+        return this.ordinals.containsKey(registryName);
+    }
+
+    public boolean isEnabled(final int ordinal) {
+        return ordinal != UNKNOWN_ORDINAL && this.enabled.get(ordinal);
+    }
+
+    public boolean isEnabled(@Nonnull final String registryName) {
+        return this.isEnabled(this.ordinalOf(registryName));
+    }
+
+    public int size() {
+        return this.ordinals.size();
+    }
+
+    @Override
+    public String toString() {
+        return "TransformerStates{" +
+                "transformers=" + this.ordinals.size() +
+                ", enabled=" + this.enabled.cardinality() +
+                '}';
+    }
+}
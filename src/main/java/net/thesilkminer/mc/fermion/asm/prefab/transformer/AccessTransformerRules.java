@@ -0,0 +1,519 @@
+package net.thesilkminer.mc.fermion.asm.prefab.transformer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Holds a list of access changes to apply to classes, fields, and methods,
+ * to be used with a {@link BulkAccessTransformer}.
+ *
+ * <p>Rules can be added one by one through the {@link Builder}, or read in
+ * bulk from either a text file or a JSON array. The text format is the same
+ * one that is used by Forge's {@code accesstransformer.cfg} files, i.e. one
+ * rule per line in the form {@code <access>[-f|+f] <class> [<member>]},
+ * where the member is either a field name, a method name immediately followed
+ * by its descriptor, {@code *} to target all fields, or {@code *()} to target
+ * all methods. Everything after a {@code #} is a comment.</p>
+ *
+ * <pre>
+ * # Widens a class, a field and a method, also removing the final modifier
+ * public net.minecraft.world.World
+ * public-f net.minecraft.world.World field_72995_K
+ * protected net.minecraft.world.World func_72866_a(Lnet/minecraft/entity/Entity;Z)V
+ * </pre>
+ *
+ * <p>The JSON format is an array of objects, each having a {@code class}
+ * and an {@code access} property, an optional {@code final} property, whose
+ * value is either {@code "add"} or {@code "remove"}, and at most one between
+ * a {@code field} and a {@code method} property, which follow the same
+ * syntax as the member in the text format.</p>
+ *
+ * <pre>
+ * [
+ *     { "access": "public", "class": "net.minecraft.world.World" },
+ *     { "access": "public", "final": "remove", "class": "net.minecraft.world.World", "field": "field_72995_K" }
+ * ]
+ * </pre>
+ *
+ * <p>Member names are expected to be SRG names and they are remapped
+ * automatically when needed. Access is never narrowed: if a member is
+ * already more visible than what a rule requests, its access is left as is.
+ * If more than one rule targets the same element, the widest access wins and
+ * the final modifier is removed if any of the rules requests so.</p>
+ *
+ * @since 1.1.0
+ */
+public final class AccessTransformerRules {
+
+    /**
+     * Represents the access level that an element should have after the
+     * transformation.
+     *
+     * @since 1.1.0
+     */
+    public enum Access {
+        /**
+         * Represents the {@code private} access level.
+         *
+         * @since 1.1.0
+         */
+        PRIVATE(Opcodes.ACC_PRIVATE),
+        /**
+         * Represents the package-private access level.
+         *
+         * @since 1.1.0
+         */
+        DEFAULT(0),
+        /**
+         * Represents the {@code protected} access level.
+         *
+         * @since 1.1.0
+         */
+        PROTECTED(Opcodes.ACC_PROTECTED),
+        /**
+         * Represents the {@code public} access level.
+         *
+         * @since 1.1.0
+         */
+        PUBLIC(Opcodes.ACC_PUBLIC);
+
+        private static final int ACCESS_MASK = Opcodes.ACC_PUBLIC | Opcodes.ACC_PROTECTED | Opcodes.ACC_PRIVATE;
+
+        private final int flag;
+
+        Access(final int flag) {
+            this.flag = flag;
+        }
+
+        @Nonnull
+        static Access of(final int access) {
+            if ((access & Opcodes.ACC_PUBLIC) != 0) return PUBLIC;
+            if ((access & Opcodes.ACC_PROTECTED) != 0) return PROTECTED;
+            if ((access & Opcodes.ACC_PRIVATE) != 0) return PRIVATE;
+            return DEFAULT;
+        }
+
+        @Nonnull
+        static Access of(@Nonnull final String name) {
+            switch (name) {
+                case "public": return PUBLIC;
+                case "protected": return PROTECTED;
+                case "default": return DEFAULT;
+                case "private": return PRIVATE;
+                default: throw new IllegalArgumentException("Unknown access level '" + name + "'");
+            }
+        }
+    }
+
+    /**
+     * Represents what should happen to the {@code final} modifier of an
+     * element after the transformation.
+     *
+     * @since 1.1.0
+     */
+    public enum FinalModifier {
+        /**
+         * The {@code final} modifier is left as is.
+         *
+         * @since 1.1.0
+         */
+        UNCHANGED,
+        /**
+         * The {@code final} modifier is added.
+         *
+         * @since 1.1.0
+         */
+        ADD,
+        /**
+         * The {@code final} modifier is removed.
+         *
+         * @since 1.1.0
+         */
+        REMOVE
+    }
+
+    /**
+     * A builder used to create instances of {@link AccessTransformerRules}.
+     *
+     * <p>Builder instances can be reused, as in their {@link #build()} method
+     * can be called multiple times to build multiple rule sets.</p>
+     *
+     * @since 1.1.0
+     */
+    public static final class Builder {
+
+        private static final String WILDCARD = "*";
+        private static final String METHOD_WILDCARD = "*()";
+
+        private final Map<ClassDescriptor, ClassRules.Builder> classes;
+
+        private Builder() {
+            this.classes = Maps.newLinkedHashMap();
+        }
+
+        /**
+         * Creates a new, empty, builder instance.
+         *
+         * @return
+         *      A new, ready to be used, builder instance.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public static Builder create() {
+            return new Builder();
+        }
+
+        /**
+         * Changes the access of the given class.
+         *
+         * @param target
+         *      The class whose access should be changed. It cannot be null.
+         * @param access
+         *      The access the class should have. It cannot be null.
+         * @param finalModifier
+         *      What should happen to the class' {@code final} modifier. It
+         *      cannot be null.
+         * @return
+         *      This builder, for chaining.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder addClass(@Nonnull final ClassDescriptor target, @Nonnull final Access access,
+                                @Nonnull final FinalModifier finalModifier) {
+            this.rulesFor(target).mergeClass(AccessChange.of(access, finalModifier));
+            return this;
+        }
+
+        /**
+         * Changes the access of the given field.
+         *
+         * @param owner
+         *      The class where the field is declared. It cannot be null.
+         * @param name
+         *      The SRG name of the field, or {@code *} to target all fields
+         *      of the class. It cannot be null.
+         * @param access
+         *      The access the field should have. It cannot be null.
+         * @param finalModifier
+         *      What should happen to the field's {@code final} modifier. It
+         *      cannot be null.
+         * @return
+         *      This builder, for chaining.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder addField(@Nonnull final ClassDescriptor owner, @Nonnull final String name, @Nonnull final Access access,
+                                @Nonnull final FinalModifier finalModifier) {
+            this.rulesFor(owner).mergeField(Preconditions.checkNotNull(name), AccessChange.of(access, finalModifier));
+            return this;
+        }
+
+        /**
+         * Changes the access of the given method.
+         *
+         * @param owner
+         *      The class where the method is declared. It cannot be null.
+         * @param method
+         *      The method, identified by its SRG name. It cannot be null.
+         * @param access
+         *      The access the method should have. It cannot be null.
+         * @param finalModifier
+         *      What should happen to the method's {@code final} modifier. It
+         *      cannot be null.
+         * @return
+         *      This builder, for chaining.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder addMethod(@Nonnull final ClassDescriptor owner, @Nonnull final MethodDescriptor method, @Nonnull final Access access,
+                                 @Nonnull final FinalModifier finalModifier) {
+            Preconditions.checkNotNull(method);
+            this.rulesFor(owner).mergeMethod(method.getName(), method.toAsmDescriptor(), AccessChange.of(access, finalModifier));
+            return this;
+        }
+
+        /**
+         * Changes the access of all the methods declared in the given class.
+         *
+         * @param owner
+         *      The class whose methods should be changed. It cannot be null.
+         * @param access
+         *      The access the methods should have. It cannot be null.
+         * @param finalModifier
+         *      What should happen to the methods' {@code final} modifier. It
+         *      cannot be null.
+         * @return
+         *      This builder, for chaining.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder addAllMethods(@Nonnull final ClassDescriptor owner, @Nonnull final Access access,
+                                     @Nonnull final FinalModifier finalModifier) {
+            this.rulesFor(owner).mergeMethod(WILDCARD, WILDCARD, AccessChange.of(access, finalModifier));
+            return this;
+        }
+
+        /**
+         * Reads all the rules in the given text, written in the same format
+         * as Forge's {@code accesstransformer.cfg} files.
+         *
+         * <p>The reader is not closed by this method.</p>
+         *
+         * @param reader
+         *      The reader to read the rules from. It cannot be null.
+         * @return
+         *      This builder, for chaining.
+         * @throws IOException
+         *      If an error occurs while reading.
+         * @throws IllegalArgumentException
+         *      If one of the rules is malformed.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder readText(@Nonnull final Reader reader) throws IOException {
+            final BufferedReader lines = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+            /*mutable*/ int lineNumber = 0;
+            for (/*mutable*/ String line = lines.readLine(); line != null; line = lines.readLine()) {
+                ++lineNumber;
+                final int comment = line.indexOf('#');
+                final String rule = (comment == -1 ? line : line.substring(0, comment)).trim();
+                if (rule.isEmpty()) continue;
+                final String[] parts = rule.split("\\s+");
+                if (parts.length < 2 || parts.length > 3) {
+                    throw new IllegalArgumentException("Malformed access transformer rule at line " + lineNumber + ": " + line);
+                }
+                try {
+                    this.addRule(parts[0], parts[1], parts.length == 3 ? parts[2] : null);
+                } catch (@Nonnull final IllegalArgumentException e) {
+                    throw new IllegalArgumentException("Malformed access transformer rule at line " + lineNumber + ": " + line, e);
+                }
+            }
+            return this;
+        }
+
+        /**
+         * Reads all the rules in the given JSON array, written in the format
+         * specified in the documentation of {@link AccessTransformerRules}.
+         *
+         * @param rules
+         *      The array to read the rules from. It cannot be null.
+         * @return
+         *      This builder, for chaining.
+         * @throws IllegalArgumentException
+         *      If one of the rules is malformed.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public Builder readJson(@Nonnull final JsonArray rules) {
+            for (@Nonnull final JsonElement element : Preconditions.checkNotNull(rules)) {
+                Preconditions.checkArgument(element.isJsonObject(), "Access transformer rules must be objects, but found " + element);
+                final JsonObject rule = element.getAsJsonObject();
+                Preconditions.checkArgument(rule.has("class") && rule.has("access"), "Access transformer rule " + rule + " needs both 'class' and 'access'");
+                Preconditions.checkArgument(!(rule.has("field") && rule.has("method")), "Access transformer rule " + rule + " cannot target both a field and a method");
+
+                final String finalModifier = rule.has("final") ? rule.get("final").getAsString() : null;
+                final String access = rule.get("access").getAsString() + ("add".equals(finalModifier) ? "+f" : "remove".equals(finalModifier) ? "-f" : "");
+                Preconditions.checkArgument(finalModifier == null || "add".equals(finalModifier) || "remove".equals(finalModifier),
+                        "Access transformer rule " + rule + " has an invalid 'final' value: only 'add' and 'remove' are allowed");
+
+                /*mutable*/ String member = null;
+                if (rule.has("field")) member = rule.get("field").getAsString();
+                if (rule.has("method")) {
+                    member = rule.get("method").getAsString();
+                    Preconditions.checkArgument(member.indexOf('(') != -1, "Access transformer rule " + rule + " has a method without descriptor");
+                }
+
+                this.addRule(access, rule.get("class").getAsString(), member);
+            }
+            return this;
+        }
+
+        /**
+         * Builds a new rule set with all the rules that have been added up to
+         * now.
+         *
+         * @return
+         *      A new set of rules. Guaranteed not to be null.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public AccessTransformerRules build() {
+            final ImmutableMap.Builder<ClassDescriptor, ClassRules> classes = ImmutableMap.builder();
+            this.classes.forEach((target, rules) -> classes.put(target, rules.build()));
+            return new AccessTransformerRules(classes.build());
+        }
+
+        @Nonnull
+        private ClassRules.Builder rulesFor(@Nonnull final ClassDescriptor target) {
+            return this.classes.computeIfAbsent(Preconditions.checkNotNull(target), k -> new ClassRules.Builder());
+        }
+
+        private void addRule(@Nonnull final String modifier, @Nonnull final String className, @Nullable final String member) {
+            final String lowerModifier = modifier.toLowerCase(Locale.ENGLISH);
+            /*mutable*/ FinalModifier finalModifier = FinalModifier.UNCHANGED;
+            /*mutable*/ String accessName = lowerModifier;
+            if (lowerModifier.endsWith("-f")) finalModifier = FinalModifier.REMOVE;
+            if (lowerModifier.endsWith("+f")) finalModifier = FinalModifier.ADD;
+            if (finalModifier != FinalModifier.UNCHANGED) accessName = lowerModifier.substring(0, lowerModifier.length() - 2);
+
+            final AccessChange change = AccessChange.of(Access.of(accessName), finalModifier);
+            final ClassRules.Builder rules = this.rulesFor(ClassDescriptor.of(className));
+
+            if (member == null) {
+                rules.mergeClass(change);
+            } else if (METHOD_WILDCARD.equals(member)) {
+                rules.mergeMethod(WILDCARD, WILDCARD, change);
+            } else if (member.indexOf('(') != -1) {
+                final int descriptorStart = member.indexOf('(');
+                rules.mergeMethod(member.substring(0, descriptorStart), member.substring(descriptorStart), change);
+            } else {
+                rules.mergeField(member, change);
+            }
+        }
+    }
+
+    // What a single rule, or the merge of more rules, does to an access
+    static final class AccessChange {
+
+        private final Access access;
+        private final FinalModifier finalModifier;
+
+        private AccessChange(@Nonnull final Access access, @Nonnull final FinalModifier finalModifier) {
+            this.access = access;
+            this.finalModifier = finalModifier;
+        }
+
+        @Nonnull
+        static AccessChange of(@Nonnull final Access access, @Nonnull final FinalModifier finalModifier) {
+            return new AccessChange(Preconditions.checkNotNull(access), Preconditions.checkNotNull(finalModifier));
+        }
+
+        @Nonnull
+        static AccessChange merge(@Nullable final AccessChange a, @Nullable final AccessChange b) {
+            if (a == null) return Objects.requireNonNull(b);
+            if (b == null) return a;
+            final Access access = a.access.compareTo(b.access) >= 0 ? a.access : b.access;
+            /*mutable*/ FinalModifier finalModifier = FinalModifier.UNCHANGED;
+            if (a.finalModifier == FinalModifier.ADD || b.finalModifier == FinalModifier.ADD) finalModifier = FinalModifier.ADD;
+            if (a.finalModifier == FinalModifier.REMOVE || b.finalModifier == FinalModifier.REMOVE) finalModifier = FinalModifier.REMOVE;
+            return new AccessChange(access, finalModifier);
+        }
+
+        int apply(final int access) {
+            /*mutable*/ int result = access;
+            if (this.access.compareTo(Access.of(access)) > 0) result = (result & ~Access.ACCESS_MASK) | this.access.flag;
+            if (this.finalModifier == FinalModifier.ADD) result |= Opcodes.ACC_FINAL;
+            if (this.finalModifier == FinalModifier.REMOVE) result &= ~Opcodes.ACC_FINAL;
+            return result;
+        }
+
+        boolean makesAccessible() {
+            return this.access != Access.PRIVATE;
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return this.access.name().toLowerCase(Locale.ENGLISH) + (this.finalModifier == FinalModifier.ADD ? "+f" : this.finalModifier == FinalModifier.REMOVE ? "-f" : "");
+        }
+    }
+
+    // Rules for a single class, with unmapped member names; '*' stands for all fields or all methods
+    static final class ClassRules {
+
+        private static final class Builder {
+
+            private AccessChange classChange;
+            private final Map<String, AccessChange> fields = Maps.newLinkedHashMap();
+            private final Map<String, Map<String, AccessChange>> methods = Maps.newLinkedHashMap();
+
+            void mergeClass(@Nonnull final AccessChange change) {
+                this.classChange = AccessChange.merge(this.classChange, change);
+            }
+
+            void mergeField(@Nonnull final String name, @Nonnull final AccessChange change) {
+                this.fields.merge(name, change, AccessChange::merge);
+            }
+
+            void mergeMethod(@Nonnull final String name, @Nonnull final String descriptor, @Nonnull final AccessChange change) {
+                this.methods.computeIfAbsent(name, k -> Maps.newLinkedHashMap()).merge(descriptor, change, AccessChange::merge);
+            }
+
+            @Nonnull
+            ClassRules build() {
+                final ImmutableMap.Builder<String, Map<String, AccessChange>> methods = ImmutableMap.builder();
+                this.methods.forEach((name, descriptors) -> methods.put(name, ImmutableMap.copyOf(descriptors)));
+                return new ClassRules(this.classChange, ImmutableMap.copyOf(this.fields), methods.build());
+            }
+        }
+
+        private final AccessChange classChange;
+        private final Map<String, AccessChange> fields;
+        private final Map<String, Map<String, AccessChange>> methods;
+
+        private ClassRules(@Nullable final AccessChange classChange, @Nonnull final Map<String, AccessChange> fields,
+                           @Nonnull final Map<String, Map<String, AccessChange>> methods) {
+            this.classChange = classChange;
+            this.fields = fields;
+            this.methods = methods;
+        }
+
+        @Nullable
+        AccessChange getClassChange() {
+            return this.classChange;
+        }
+
+        @Nonnull
+        Map<String, AccessChange> getFields() {
+            return this.fields;
+        }
+
+        @Nonnull
+        Map<String, Map<String, AccessChange>> getMethods() {
+            return this.methods;
+        }
+    }
+
+    private final Map<ClassDescriptor, ClassRules> classes;
+
+    private AccessTransformerRules(@Nonnull final Map<ClassDescriptor, ClassRules> classes) {
+        this.classes = classes;
+    }
+
+    @Nonnull
+    Map<ClassDescriptor, ClassRules> getClasses() {
+        return this.classes;
+    }
+
+    @Nonnull
+    @Override
+    public String toString() {
+        return "AccessTransformerRules{" +
+                "classes=" + this.classes.size() +
+                '}';
+    }
+}
@@ -0,0 +1,229 @@
+package net.thesilkminer.mc.fermion.asm.prefab.transformer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import net.thesilkminer.mc.fermion.asm.api.MappingUtilities;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import net.thesilkminer.mc.fermion.asm.prefab.AbstractTransformer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Transformer that changes the access of any amount of classes, fields, and
+ * methods, as specified by a set of {@link AccessTransformerRules}.
+ *
+ * <p>In other words, this is the bulk counterpart of
+ * {@link RuntimeFieldAccessTransformer} and
+ * {@link RuntimeMethodAccessTransformer}, that works like Forge's
+ * {@code accesstransformer.cfg} files: no accessor methods are generated and
+ * elements are simply made accessible. All the rules are compiled in a single
+ * lookup table, indexed by class, so that a plugin can widen access on
+ * hundreds of elements through a single transformer, which costs a single
+ * visitor per transformed class.</p>
+ *
+ * <p>When a private method is made accessible, all calls to it that are
+ * made from within its own class are updated accordingly, since private
+ * methods are called with {@code INVOKESPECIAL}, which would otherwise skip
+ * any overrides.</p>
+ *
+ * <p>To ensure safety in this implementation, most of the methods that need
+ * to be untouched have been made non-virtual and non-overridable (i.e.
+ * final). All the added methods, that represent this transformer's public
+ * API are documented in depth.</p>
+ *
+ * @since 1.1.0
+ */
+public abstract class BulkAccessTransformer extends AbstractTransformer {
+
+    // Rules for a single class, with remapped member names
+    private static final class CompiledClass {
+
+        private final AccessTransformerRules.AccessChange classChange;
+        private final Map<String, AccessTransformerRules.AccessChange> fields;
+        private final AccessTransformerRules.AccessChange allFields;
+        private final MemberIndex<AccessTransformerRules.AccessChange> methods;
+        private final AccessTransformerRules.AccessChange allMethods;
+
+        private CompiledClass(@Nullable final AccessTransformerRules.AccessChange classChange,
+                              @Nonnull final Map<String, AccessTransformerRules.AccessChange> fields,
+                              @Nullable final AccessTransformerRules.AccessChange allFields,
+                              @Nonnull final MemberIndex<AccessTransformerRules.AccessChange> methods,
+                              @Nullable final AccessTransformerRules.AccessChange allMethods) {
+            this.classChange = classChange;
+            this.fields = fields;
+            this.allFields = allFields;
+            this.methods = methods;
+            this.allMethods = allMethods;
+        }
+
+        @Nonnull
+        static CompiledClass of(@Nonnull final AccessTransformerRules.ClassRules rules) {
+            final Map<String, AccessTransformerRules.AccessChange> fields = Maps.newHashMap();
+            rules.getFields().forEach((name, change) -> {
+                if (!WILDCARD.equals(name)) fields.merge(MappingUtilities.INSTANCE.mapField(name), change, AccessTransformerRules.AccessChange::merge);
+            });
+            final MemberIndex.Builder<AccessTransformerRules.AccessChange> methods = MemberIndex.Builder.create();
+            rules.getMethods().forEach((name, descriptors) -> {
+                if (WILDCARD.equals(name)) return;
+                final String mappedName = MappingUtilities.INSTANCE.mapMethod(name);
+                descriptors.forEach((descriptor, change) -> methods.add(mappedName, descriptor, change));
+            });
+            final Map<String, AccessTransformerRules.AccessChange> allMethods = rules.getMethods().get(WILDCARD);
+            return new CompiledClass(rules.getClassChange(), ImmutableMap.copyOf(fields), rules.getFields().get(WILDCARD),
+                    methods.build(), allMethods == null ? null : allMethods.get(WILDCARD));
+        }
+
+        @Nullable
+        AccessTransformerRules.AccessChange getClassChange() {
+            return this.classChange;
+        }
+
+        @Nullable
+        AccessTransformerRules.AccessChange findField(@Nonnull final String name) {
+            final AccessTransformerRules.AccessChange change = this.fields.get(name);
+            return change == null ? this.allFields : this.allFields == null ? change : AccessTransformerRules.AccessChange.merge(change, this.allFields);
+        }
+
+        @Nullable
+        AccessTransformerRules.AccessChange findMethod(@Nonnull final String name, @Nonnull final String descriptor) {
+            final AccessTransformerRules.AccessChange change = this.methods.get(name, descriptor);
+            return change == null ? this.allMethods : this.allMethods == null ? change : AccessTransformerRules.AccessChange.merge(change, this.allMethods);
+        }
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("BulkAccessTransformer");
+    private static final String WILDCARD = "*";
+    private static final String CONSTRUCTOR_NAME = "<init>";
+
+    private final Marker marker;
+    private final AccessTransformerRules rules;
+
+    private volatile Map<String, CompiledClass> compiledRules;
+
+    /**
+     * Constructs a new instance of this transformer.
+     *
+     * @param data
+     *      The data that identifies this transformer. Refer to
+     *      {@link TransformerData} for more information. It cannot be null.
+     * @param rules
+     *      The {@link AccessTransformerRules} that this transformer should
+     *      apply. They must target at least one class.
+     *
+     * @since 1.1.0
+     */
+    protected BulkAccessTransformer(@Nonnull final TransformerData data, @Nonnull final AccessTransformerRules rules) {
+        super(data, Preconditions.checkNotNull(rules).getClasses().keySet().toArray(new ClassDescriptor[0]));
+        this.rules = rules;
+        this.marker = MarkerManager.getMarker(data.getOwningPluginId() + ":" + data.getName());
+        rules.getClasses().values().forEach(it -> {
+            MappingUtilities.INSTANCE.preResolveFields(it.getFields().keySet());
+            MappingUtilities.INSTANCE.preResolveMethods(it.getMethods().keySet());
+        });
+    }
+
+    @Nonnull
+    @Override
+    public final BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
+        // Compiled on first use rather than on construction, since names can be remapped only once the game is launching
+        if (this.compiledRules == null) {
+            this.compiledRules = ImmutableMap.copyOf(this.rules.getClasses()
+                    .entrySet()
+                    .stream()
+                    .collect(Collectors.toMap(it -> it.getKey().toAsmName(), it -> CompiledClass.of(it.getValue()))));
+        }
+        final Map<String, CompiledClass> compiledRules = this.compiledRules;
+        return (v, cw) -> new ClassVisitor(v, cw) {
+            private String className;
+            private boolean isInterface;
+            private CompiledClass rules;
+
+            @Override
+            public void visit(final int version, final int access, @Nonnull final String name, @Nullable final String signature,
+                              @Nullable final String superName, @Nullable final String[] interfaces) {
+                this.className = name;
+                this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+                this.rules = compiledRules.get(name);
+                /*mutable*/ int newAccess = this.transformClassAccess(name, access);
+                // Class headers can only be public or package-private: the real access of nested classes is in InnerClasses
+                if ((newAccess & Opcodes.ACC_PROTECTED) != 0) newAccess = (newAccess & ~Opcodes.ACC_PROTECTED) | Opcodes.ACC_PUBLIC;
+                super.visit(version, newAccess & ~Opcodes.ACC_PRIVATE, name, signature, superName, interfaces);
+            }
+
+            @Override
+            public void visitInnerClass(@Nonnull final String name, @Nullable final String outerName, @Nullable final String innerName, final int access) {
+                // The access of nested classes is also stored in the InnerClasses attribute, which must stay consistent
+                super.visitInnerClass(name, outerName, innerName, this.transformClassAccess(name, access));
+            }
+
+            @Nullable
+            @Override
+            public FieldVisitor visitField(final int access, @Nonnull final String name, @Nonnull final String descriptor,
+                                           @Nullable final String signature, @Nullable final Object value) {
+                final AccessTransformerRules.AccessChange change = this.rules == null ? null : this.rules.findField(name);
+                final int newAccess = change == null ? access : change.apply(access);
+                if (newAccess != access) {
+                    LOGGER.debug(BulkAccessTransformer.this.marker, "Changed access of field '" + this.className + "." + name + "' to " + change);
+                }
+                return super.visitField(newAccess, name, descriptor, signature, value);
+            }
+
+            @Nullable
+            @Override
+            public MethodVisitor visitMethod(final int access, @Nonnull final String name, @Nonnull final String descriptor,
+                                             @Nullable final String signature, @Nullable final String[] exceptions) {
+                final CompiledClass rules = this.rules;
+                final AccessTransformerRules.AccessChange change = rules == null ? null : rules.findMethod(name, descriptor);
+                final int newAccess = change == null ? access : change.apply(access);
+                if (newAccess != access) {
+                    LOGGER.debug(BulkAccessTransformer.this.marker, "Changed access of method '" + this.className + "." + name + descriptor + "' to " + change);
+                }
+                final MethodVisitor parent = super.visitMethod(newAccess, name, descriptor, signature, exceptions);
+                if (rules == null || parent == null) return parent;
+
+                final String className = this.className;
+                final int invokeOpcode = this.isInterface ? Opcodes.INVOKEINTERFACE : Opcodes.INVOKEVIRTUAL;
+                return new MethodVisitor(v, parent) {
+                    @Override
+                    public void visitMethodInsn(final int opcode, @Nonnull final String owner, @Nonnull final String name,
+                                                @Nonnull final String descriptor, final boolean isInterface) {
+                        // Only private methods of the class itself are called through INVOKESPECIAL with the class as owner
+                        if (opcode == Opcodes.INVOKESPECIAL && !CONSTRUCTOR_NAME.equals(name) && className.equals(owner)) {
+                            final AccessTransformerRules.AccessChange target = rules.findMethod(name, descriptor);
+                            if (target != null && target.makesAccessible()) {
+                                super.visitMethodInsn(invokeOpcode, owner, name, descriptor, isInterface);
+                                return;
+                            }
+                        }
+                        super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                    }
+                };
+            }
+
+            private int transformClassAccess(@Nonnull final String name, final int access) {
+                final CompiledClass rules = compiledRules.get(name);
+                final AccessTransformerRules.AccessChange change = rules == null ? null : rules.getClassChange();
+                if (change == null) return access;
+                final int newAccess = change.apply(access);
+                if (newAccess != access) {
+                    LOGGER.debug(BulkAccessTransformer.this.marker, "Changed access of class '" + name + "' to " + change);
+                }
+                return newAccess;
+            }
+        };
+    }
+}
@@ -0,0 +1,448 @@
+package net.thesilkminer.mc.fermion.asm.prefab.transformer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.thesilkminer.mc.fermion.asm.api.MappingUtilities;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import net.thesilkminer.mc.fermion.asm.prefab.AbstractTransformer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Transformer that redirects calls to the given methods to static hooks.
+ *
+ * <p>In other words, every {@code INVOKEVIRTUAL}, {@code INVOKESTATIC}, and
+ * {@code INVOKEINTERFACE} instruction in the target classes that calls one
+ * of the redirected methods is replaced with an {@code INVOKESTATIC} of the
+ * corresponding hook. Redirects are specified through
+ * {@link RedirectDescriptor}s, so that no visitor needs to be written.</p>
+ *
+ * <p>When more than one transformer of this kind targets the same class,
+ * possibly from different plugins, Fermion applies all of their redirects
+ * together, in a single pass over the class, at the position of the first of
+ * them. If two transformers redirect the same call, the one that was
+ * registered first wins.</p>
+ *
+ * <p>To ensure safety in this implementation, most of the methods that need
+ * to be untouched have been made non-virtual and non-overridable (i.e.
+ * final). All the added methods, that represent this transformer's public
+ * API are documented in depth.</p>
+ *
+ * @since 1.1.0
+ */
+public abstract class CallSiteRedirectTransformer extends AbstractTransformer {
+
+    /**
+     * Describes one of the redirects of the
+     * {@link CallSiteRedirectTransformer}.
+     *
+     * <p>This descriptor stores the class whose calls should be redirected,
+     * the method whose calls should be redirected, along with the class where
+     * it is declared, and the hook the calls should be redirected to.</p>
+     *
+     * <p>Note that instances of this class do not cause class loading neither
+     * during normal usage or construction, if used properly.</p>
+     *
+     * @since 1.1.0
+     */
+    protected static final class RedirectDescriptor {
+
+        /**
+         * A builder used to create instances of a {@link RedirectDescriptor}.
+         *
+         * <p>Builder instances can be reused, as in their {@link #build()}
+         * method can be called multiple times to build multiple redirect
+         * descriptors.</p>
+         *
+         * @since 1.1.0
+         */
+        public static final class Builder {
+
+            private ClassDescriptor targetClass;
+            private ClassDescriptor methodOwner;
+            private MethodDescriptor method;
+            private ClassDescriptor hookClass;
+            private String hookName;
+
+            private Builder() {}
+
+            /**
+             * Creates a new builder instance to construct an instance of a
+             * {@link RedirectDescriptor}.
+             *
+             * <p>No properties are populated with default values. Rather, they
+             * all require explicit initialization before calling
+             * {@link #build()}.</p>
+             *
+             * @return
+             *      A new, ready to be used, builder instance.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public static Builder create() {
+                return new Builder();
+            }
+
+            /**
+             * Sets the class whose calls should be redirected.
+             *
+             * <p>Only calls made from within this class are redirected: calls
+             * to the same method made from other classes are left alone.</p>
+             *
+             * @param targetClass
+             *      The class whose calls should be redirected. It cannot be
+             *      null.
+             * @return
+             *      This builder for chaining.
+             * @throws IllegalStateException
+             *      If the target class has already been set.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder setTargetClass(@Nonnull final ClassDescriptor targetClass) {
+                if (this.targetClass != null) throw new IllegalStateException("You can set the target class only once");
+                this.targetClass = Preconditions.checkNotNull(targetClass);
+                return this;
+            }
+
+            /**
+             * Sets the method whose calls should be redirected.
+             *
+             * <p>The method name is expected to be a SRG name, if applicable,
+             * and it is remapped automatically when needed. Calls are matched
+             * on the owner that the call instruction refers to, which is the
+             * static type of the receiver in source code: a call to a method
+             * of {@code List} through an {@code ArrayList} variable is thus
+             * not matched by a redirect of {@code List}'s method.</p>
+             *
+             * @param owner
+             *      The class the calls refer to. It cannot be null.
+             * @param method
+             *      The method whose calls should be redirected. It cannot be
+             *      null.
+             * @return
+             *      This builder for chaining.
+             * @throws IllegalStateException
+             *      If the redirected method has already been set.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder setRedirectedMethod(@Nonnull final ClassDescriptor owner, @Nonnull final MethodDescriptor method) {
+                if (this.methodOwner != null || this.method != null) throw new IllegalStateException("You can set the redirected method only once");
+                Preconditions.checkNotNull(owner);
+                this.method = Preconditions.checkNotNull(method);
+                this.methodOwner = owner;
+                return this;
+            }
+
+            /**
+             * Sets the hook that calls should be redirected to.
+             *
+             * <p>The hook must be a public static method. If the redirected
+             * method is static, the hook must have the exact same descriptor.
+             * Otherwise, the hook must take the receiver as its first
+             * parameter, whose type is exactly the owner of the redirected
+             * method, followed by the parameters of the redirected method, and
+             * must have the same return type.</p>
+             *
+             * @param hookClass
+             *      The class where the hook is located. It cannot be null.
+             * @param hookName
+             *      The name of the hook. It is never remapped. It cannot be
+             *      null.
+             * @return
+             *      This builder for chaining.
+             * @throws IllegalStateException
+             *      If the hook has already been set.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder setHookMethod(@Nonnull final ClassDescriptor hookClass, @Nonnull final String hookName) {
+                if (this.hookClass != null || this.hookName != null) throw new IllegalStateException("You can set the hook method only once");
+                Preconditions.checkNotNull(hookClass);
+                this.hookName = Preconditions.checkNotNull(hookName);
+                this.hookClass = hookClass;
+                return this;
+            }
+
+            /**
+             * Builds a new instance of {@link RedirectDescriptor} with the
+             * provided data.
+             *
+             * @return
+             *      A new instance of {@link RedirectDescriptor}. Guaranteed
+             *      not to be null.
+             * @throws NullPointerException
+             *      If one or more of the required properties hasn't been set
+             *      previously.
+             * @throws IllegalArgumentException
+             *      If the redirected method is a constructor or a static
+             *      initializer, which cannot be redirected.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public RedirectDescriptor build() {
+                Preconditions.checkNotNull(this.targetClass, "Class whose calls should be redirected cannot be null");
+                Preconditions.checkNotNull(this.method, "Redirected method cannot be null");
+                Preconditions.checkNotNull(this.methodOwner, "Class the redirected calls refer to cannot be null");
+                Preconditions.checkNotNull(this.hookName, "Hook method cannot be null");
+                Preconditions.checkNotNull(this.hookClass, "Class where the hook method is located cannot be null");
+                Preconditions.checkArgument(!this.method.getName().startsWith("<"), "Constructors and static initializers cannot be redirected");
+                return new RedirectDescriptor(this);
+            }
+        }
+
+        private final ClassDescriptor targetClass;
+        private final ClassDescriptor methodOwner;
+        private final MethodDescriptor method;
+        private final ClassDescriptor hookClass;
+        private final String hookName;
+
+        private RedirectDescriptor(@Nonnull final Builder from) {
+            this.targetClass = from.targetClass;
+            this.methodOwner = from.methodOwner;
+            this.method = from.method;
+            this.hookClass = from.hookClass;
+            this.hookName = from.hookName;
+        }
+
+        @Nonnull
+        ClassDescriptor getTargetClass() {
+            return this.targetClass;
+        }
+
+        @Nonnull
+        ClassDescriptor getMethodOwner() {
+            return this.methodOwner;
+        }
+
+        @Nonnull
+        MethodDescriptor getMethod() {
+            return this.method;
+        }
+
+        @Nonnull
+        ClassDescriptor getHookClass() {
+            return this.hookClass;
+        }
+
+        @Nonnull
+        String getHookName() {
+            return this.hookName;
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return "RedirectDescriptor{" +
+                    "targetClass=" + this.targetClass +
+                    ", methodOwner=" + this.methodOwner +
+                    ", method=" + this.method +
+                    ", hookClass=" + this.hookClass +
+                    ", hookName='" + this.hookName + '\'' +
+                    '}';
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object o) {
+            if (this == o) return true;
+            if (o == null || this.getClass() != o.getClass()) return false;
+            final RedirectDescriptor that = (RedirectDescriptor) o;
+            return Objects.equals(this.targetClass, that.targetClass) &&
+                    Objects.equals(this.methodOwner, that.methodOwner) &&
+                    Objects.equals(this.method, that.method) &&
+                    Objects.equals(this.hookClass, that.hookClass) &&
+                    Objects.equals(this.hookName, that.hookName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.targetClass, this.methodOwner, this.method, this.hookClass, this.hookName);
+        }
+    }
+
+    // A redirect with remapped names and the raw strings call instructions need
+    private static final class Hook {
+
+        private final ClassDescriptor methodOwner;
+        private final String methodName;
+        private final String methodDescriptor;
+        private final String hookClass;
+        private final String hookName;
+        private final String instanceHookDescriptor;
+        private final String source;
+
+        private Hook(@Nonnull final RedirectDescriptor descriptor, @Nonnull final String source) {
+            this.methodOwner = descriptor.getMethodOwner();
+            this.methodName = MappingUtilities.INSTANCE.mapMethod(descriptor.getMethod().getName());
+            this.methodDescriptor = descriptor.getMethod().toAsmDescriptor();
+            this.hookClass = descriptor.getHookClass().toAsmName();
+            this.hookName = descriptor.getHookName();
+            // Instance methods pass the receiver as the first argument of the hook
+            this.instanceHookDescriptor = "(" + this.methodOwner.toAsmMethodDescriptor() + this.methodDescriptor.substring(1);
+            this.source = source;
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return this.methodOwner.toAsmName() + "." + this.methodName + this.methodDescriptor + " -> " + this.hookClass + "." + this.hookName;
+        }
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("CallSiteRedirectTransformer");
+    private static final Marker SHARED_MARKER = MarkerManager.getMarker("shared");
+
+    private final Marker marker;
+    private final List<RedirectDescriptor> redirects;
+
+    private volatile Map<String, List<Hook>> hooks;
+
+    /**
+     * Constructs a new instance of this transformer.
+     *
+     * @param data
+     *      The data that identifies this transformer. Refer to
+     *      {@link TransformerData} for more information. It cannot be null.
+     * @param redirects
+     *      A list of {@link RedirectDescriptor}s that identifies the calls
+     *      that should be redirected and where. There must be at least one
+     *      redirect descriptor.
+     *
+     * @since 1.1.0
+     */
+    protected CallSiteRedirectTransformer(@Nonnull final TransformerData data, @Nonnull final RedirectDescriptor... redirects) {
+        super(data, Arrays.stream(Preconditions.checkNotNull(redirects)).map(RedirectDescriptor::getTargetClass).toArray(ClassDescriptor[]::new));
+        Preconditions.checkArgument(redirects.length > 0, "At least one redirect must be given");
+        this.redirects = ImmutableList.copyOf(redirects);
+        MappingUtilities.INSTANCE.preResolveMethods(this.redirects.stream().map(it -> it.getMethod().getName()).collect(Collectors.toSet()));
+        this.marker = MarkerManager.getMarker(data.getOwningPluginId() + ":" + data.getName());
+    }
+
+    /**
+     * Creates a visitor creator that applies the redirects of all the given
+     * transformers in a single pass.
+     *
+     * <p>This method is used by Fermion to merge the redirects that different
+     * transformers apply to the same class: there is no need for plugins to
+     * call it. Redirects of transformers that come earlier in the list win
+     * over redirects of later ones that match the same call.</p>
+     *
+     * @param transformers
+     *      The transformers whose redirects should be applied. It cannot be
+     *      null nor empty.
+     * @return
+     *      A visitor creator that applies all the given redirects.
+     *
+     * @since 1.1.0
+     */
+    @Nonnull
+    public static BiFunction<Integer, ClassVisitor, ClassVisitor> createSharedVisitorCreator(@Nonnull final List<CallSiteRedirectTransformer> transformers) {
+        Preconditions.checkArgument(!Preconditions.checkNotNull(transformers).isEmpty(), "At least one transformer must be given");
+        final List<Map<String, List<Hook>>> hooks = transformers.stream().map(CallSiteRedirectTransformer::getHooks).collect(Collectors.toList());
+        final Marker marker = transformers.size() == 1 ? transformers.get(0).marker : SHARED_MARKER;
+        return (v, cw) -> new ClassVisitor(v, cw) {
+            private String className;
+            private Map<String, MemberIndex<Hook>> redirects = ImmutableMap.of();
+            private int redirected;
+
+            @Override
+            public void visit(final int version, final int access, @Nonnull final String name, @Nullable final String signature,
+                              @Nullable final String superName, @Nullable final String[] interfaces) {
+                super.visit(version, access, name, signature, superName, interfaces);
+                this.className = name;
+                this.redirects = buildIndex(name, hooks, marker);
+            }
+
+            @Nullable
+            @Override
+            public MethodVisitor visitMethod(final int access, @Nonnull final String name, @Nonnull final String descriptor,
+                                             @Nullable final String signature, @Nullable final String[] exceptions) {
+                final MethodVisitor parent = super.visitMethod(access, name, descriptor, signature, exceptions);
+                if (parent == null || this.redirects.isEmpty()) return parent;
+                return new MethodVisitor(v, parent) {
+                    @Override
+                    public void visitMethodInsn(final int opcode, @Nonnull final String owner, @Nonnull final String name,
+                                                @Nonnull final String descriptor, final boolean isInterface) {
+                        final Hook hook = opcode == Opcodes.INVOKESPECIAL ? null : findHook(owner, name, descriptor);
+                        if (hook == null) {
+                            super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                            return;
+                        }
+                        // Both calls take the same values from the stack and push the same result, so frames need no changes
+                        final String hookDescriptor = opcode == Opcodes.INVOKESTATIC ? descriptor : hook.instanceHookDescriptor;
+                        super.visitMethodInsn(Opcodes.INVOKESTATIC, hook.hookClass, hook.hookName, hookDescriptor, false);
+                        ++redirected;
+                    }
+                };
+            }
+
+            @Override
+            public void visitEnd() {
+                LOGGER.info(marker, "Redirected " + this.redirected + " call sites in class '" + this.className + "'");
+                super.visitEnd();
+            }
+
+            @Nullable
+            private Hook findHook(@Nonnull final String owner, @Nonnull final String name, @Nonnull final String descriptor) {
+                final MemberIndex<Hook> index = this.redirects.get(owner);
+                return index == null ? null : index.get(name, descriptor);
+            }
+        };
+    }
+
+    @Nonnull
+    @Override
+    public final BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
+        return createSharedVisitorCreator(ImmutableList.of(this));
+    }
+
+    @Nonnull
+    private Map<String, List<Hook>> getHooks() {
+        // Built on first use rather than on construction, since names can be remapped only once the game is launching
+        if (this.hooks == null) {
+            final Map<String, List<Hook>> hooks = Maps.newHashMap();
+            final String source = this.getData().getOwningPluginId() + ":" + this.getData().getName();
+            this.redirects.forEach(it -> hooks.computeIfAbsent(it.getTargetClass().toAsmName(), k -> Lists.newArrayList()).add(new Hook(it, source)));
+            this.hooks = ImmutableMap.copyOf(hooks);
+        }
+        return this.hooks;
+    }
+
+    @Nonnull
+    private static Map<String, MemberIndex<Hook>> buildIndex(@Nonnull final String className, @Nonnull final List<Map<String, List<Hook>>> hooks,
+                                                            @Nonnull final Marker marker) {
+        final MemberIndex.ByOwner<Hook> index = MemberIndex.ByOwner.create();
+        hooks.forEach(it -> it.getOrDefault(className, ImmutableList.of()).forEach(hook -> {
+            if (!index.forOwner(hook.methodOwner).add(hook.methodName, hook.methodDescriptor, hook)) {
+                LOGGER.warn(marker, "Redirect '" + hook + "' from '" + hook.source + "' in class '" + className
+                        + "' conflicts with an earlier redirect of the same method: it will be ignored");
+            }
+        }));
+        return index.build();
+    }
+}
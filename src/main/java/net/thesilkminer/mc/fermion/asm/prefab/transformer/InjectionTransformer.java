@@ -0,0 +1,684 @@
+package net.thesilkminer.mc.fermion.asm.prefab.transformer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import net.thesilkminer.mc.fermion.asm.api.MappingUtilities;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.FieldDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Transformer that injects calls to static hooks at the given points of the
+ * methods of a class.
+ *
+ * <p>In other words, this transformer allows to specify declaratively what
+ * would otherwise require a hand-written {@link MethodVisitor}, such as
+ * calling a hook at the start of a method, before each of its returns, or
+ * before or after a specific call or field access. Injections are specified
+ * through {@link InjectionDescriptor}s and all the injections that target the
+ * same method are applied by a single visitor, in a single pass.</p>
+ *
+ * <p>Hooks can receive the receiver of the target method, if any, and its
+ * parameters, but they cannot alter the control flow of the method: they must
+ * return {@code void}. No line numbers are emitted, so hook calls are
+ * reported as part of the line they are injected into.</p>
+ *
+ * <p>In constructors, the receiver is not initialized until the superclass
+ * constructor has been called, so hooks that expect the receiver are not
+ * called at the points that come before that call.</p>
+ *
+ * <p>To ensure safety in this implementation, most of the methods that need
+ * to be untouched have been made non-virtual and non-overridable (i.e.
+ * final). All the added methods, that represent this transformer's public
+ * API are documented in depth.</p>
+ *
+ * @since 1.1.0
+ */
+public abstract class InjectionTransformer extends TargetMethodTransformer {
+
+    /**
+     * Identifies where in a method a hook call should be injected.
+     *
+     * @since 1.1.0
+     */
+    public static final class InjectionPoint {
+
+        private enum Kind {
+            HEAD, RETURN, BEFORE_INVOKE, AFTER_INVOKE, BEFORE_FIELD, AFTER_FIELD
+        }
+
+        private static final InjectionPoint HEAD = new InjectionPoint(Kind.HEAD, null, null, null);
+        private static final InjectionPoint RETURN = new InjectionPoint(Kind.RETURN, null, null, null);
+
+        private final Kind kind;
+        private final ClassDescriptor owner;
+        private final MethodDescriptor method;
+        private final FieldDescriptor field;
+
+        private InjectionPoint(@Nonnull final Kind kind, @Nullable final ClassDescriptor owner, @Nullable final MethodDescriptor method,
+                               @Nullable final FieldDescriptor field) {
+            this.kind = kind;
+            this.owner = owner;
+            this.method = method;
+            this.field = field;
+        }
+
+        /**
+         * Identifies the start of the method.
+         *
+         * <p>In constructors, this is before the call to the superclass
+         * constructor, which means that the receiver cannot be passed to the
+         * hook.</p>
+         *
+         * @return
+         *      The injection point. Guaranteed not to be null.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public static InjectionPoint head() {
+            return HEAD;
+        }
+
+        /**
+         * Identifies every return instruction of the method.
+         *
+         * <p>The hook is called right before each return, after the value to
+         * return, if any, has been computed. Exceptions that are thrown out
+         * of the method are not considered returns.</p>
+         *
+         * @return
+         *      The injection point. Guaranteed not to be null.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public static InjectionPoint eachReturn() {
+            return RETURN;
+        }
+
+        /**
+         * Identifies every call to the given method, right before the call
+         * happens.
+         *
+         * <p>The method name is expected to be a SRG name, if applicable, and
+         * it is remapped automatically when needed. Calls are matched on the
+         * owner that the call instruction refers to.</p>
+         *
+         * @param owner
+         *      The class the calls refer to. It cannot be null.
+         * @param method
+         *      The called method. It cannot be null.
+         * @return
+         *      The injection point. Guaranteed not to be null.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public static InjectionPoint beforeInvoke(@Nonnull final ClassDescriptor owner, @Nonnull final MethodDescriptor method) {
+            return new InjectionPoint(Kind.BEFORE_INVOKE, Preconditions.checkNotNull(owner), Preconditions.checkNotNull(method), null);
+        }
+
+        /**
+         * Identifies every call to the given method, right after the call
+         * returns.
+         *
+         * <p>Refer to {@link #beforeInvoke(ClassDescriptor, MethodDescriptor)}
+         * for more information on how calls are matched.</p>
+         *
+         * @param owner
+         *      The class the calls refer to. It cannot be null.
+         * @param method
+         *      The called method. It cannot be null.
+         * @return
+         *      The injection point. Guaranteed not to be null.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public static InjectionPoint afterInvoke(@Nonnull final ClassDescriptor owner, @Nonnull final MethodDescriptor method) {
+            return new InjectionPoint(Kind.AFTER_INVOKE, Preconditions.checkNotNull(owner), Preconditions.checkNotNull(method), null);
+        }
+
+        /**
+         * Identifies every access to the given field, either a read or a
+         * write, right before the access happens.
+         *
+         * <p>The field name is expected to be a SRG name, if applicable, and
+         * it is remapped automatically when needed.</p>
+         *
+         * @param owner
+         *      The class the accesses refer to. It cannot be null.
+         * @param field
+         *      The accessed field. It cannot be null.
+         * @return
+         *      The injection point. Guaranteed not to be null.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public static InjectionPoint beforeFieldAccess(@Nonnull final ClassDescriptor owner, @Nonnull final FieldDescriptor field) {
+            return new InjectionPoint(Kind.BEFORE_FIELD, Preconditions.checkNotNull(owner), null, Preconditions.checkNotNull(field));
+        }
+
+        /**
+         * Identifies every access to the given field, either a read or a
+         * write, right after the access happens.
+         *
+         * <p>Refer to {@link #beforeFieldAccess(ClassDescriptor, FieldDescriptor)}
+         * for more information.</p>
+         *
+         * @param owner
+         *      The class the accesses refer to. It cannot be null.
+         * @param field
+         *      The accessed field. It cannot be null.
+         * @return
+         *      The injection point. Guaranteed not to be null.
+         *
+         * @since 1.1.0
+         */
+        @Nonnull
+        public static InjectionPoint afterFieldAccess(@Nonnull final ClassDescriptor owner, @Nonnull final FieldDescriptor field) {
+            return new InjectionPoint(Kind.AFTER_FIELD, Preconditions.checkNotNull(owner), null, Preconditions.checkNotNull(field));
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            if (this.method != null) return this.kind + "(" + this.owner + "." + this.method + ")";
+            if (this.field != null) return this.kind + "(" + this.owner + "." + this.field + ")";
+            return this.kind.toString();
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object o) {
+            if (this == o) return true;
+            if (o == null || this.getClass() != o.getClass()) return false;
+            final InjectionPoint that = (InjectionPoint) o;
+            return this.kind == that.kind &&
+                    Objects.equals(this.owner, that.owner) &&
+                    Objects.equals(this.method, that.method) &&
+                    Objects.equals(this.field, that.field);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.kind, this.owner, this.method, this.field);
+        }
+    }
+
+    /**
+     * Describes one of the injections of the {@link InjectionTransformer}.
+     *
+     * <p>This descriptor stores the method the hook call should be injected
+     * into, where the hook call should be injected, and the hook itself,
+     * along with the class where it is located.</p>
+     *
+     * <p>Note that instances of this class do not cause class loading neither
+     * during normal usage or construction, if used properly.</p>
+     *
+     * @since 1.1.0
+     */
+    protected static final class InjectionDescriptor {
+
+        /**
+         * A builder used to create instances of an
+         * {@link InjectionDescriptor}.
+         *
+         * <p>Builder instances can be reused, as in their {@link #build()}
+         * method can be called multiple times to build multiple injection
+         * descriptors.</p>
+         *
+         * @since 1.1.0
+         */
+        public static final class Builder {
+
+            private MethodDescriptor targetMethod;
+            private boolean isTargetStatic;
+            private InjectionPoint point;
+            private ClassDescriptor hookClass;
+            private MethodDescriptor hook;
+
+            private Builder() {}
+
+            /**
+             * Creates a new builder instance to construct an instance of an
+             * {@link InjectionDescriptor}.
+             *
+             * <p>No properties are populated with default values. Rather, they
+             * all require explicit initialization before calling
+             * {@link #build()}.</p>
+             *
+             * @return
+             *      A new, ready to be used, builder instance.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public static Builder create() {
+                return new Builder();
+            }
+
+            /**
+             * Sets the method the hook call should be injected into.
+             *
+             * <p>The method must be declared in the class targeted by the
+             * transformer. Its name is expected to be a SRG name, if
+             * applicable, and it is remapped automatically when needed.</p>
+             *
+             * @param targetMethod
+             *      The method the hook call should be injected into. It cannot
+             *      be null.
+             * @param isStatic
+             *      Whether the method is static.
+             * @return
+             *      This builder for chaining.
+             * @throws IllegalStateException
+             *      If the target method has already been set.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder setTargetMethod(@Nonnull final MethodDescriptor targetMethod, final boolean isStatic) {
+                if (this.targetMethod != null) throw new IllegalStateException("You can set the target method only once");
+                this.targetMethod = Preconditions.checkNotNull(targetMethod);
+                this.isTargetStatic = isStatic;
+                return this;
+            }
+
+            /**
+             * Sets where the hook call should be injected.
+             *
+             * @param point
+             *      The {@link InjectionPoint}. It cannot be null.
+             * @return
+             *      This builder for chaining.
+             * @throws IllegalStateException
+             *      If the injection point has already been set.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder setInjectionPoint(@Nonnull final InjectionPoint point) {
+                if (this.point != null) throw new IllegalStateException("You can set the injection point only once");
+                this.point = Preconditions.checkNotNull(point);
+                return this;
+            }
+
+            /**
+             * Sets the hook that should be called.
+             *
+             * <p>The hook must be a public static method that returns
+             * {@code void}. Its parameters define what it is passed: they
+             * must be a prefix of the receiver of the target method, if the
+             * target method is not static, followed by the parameters of the
+             * target method. In other words, a hook for the non-static method
+             * {@code foo(int, String)} of the class {@code Bar} can take no
+             * parameters, a {@code Bar}, a {@code Bar} and an {@code int}, or
+             * a {@code Bar}, an {@code int}, and a {@code String}. Types must
+             * match exactly.</p>
+             *
+             * <p>Parameters are read from the local variables that hold them,
+             * so if the target method reassigns one of its parameters before
+             * the injection point, the hook receives the new value.</p>
+             *
+             * @param hookClass
+             *      The class where the hook is located. It cannot be null.
+             * @param hook
+             *      The hook. It is never remapped. It cannot be null.
+             * @return
+             *      This builder for chaining.
+             * @throws IllegalStateException
+             *      If the hook has already been set.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder setHookMethod(@Nonnull final ClassDescriptor hookClass, @Nonnull final MethodDescriptor hook) {
+                if (this.hookClass != null || this.hook != null) throw new IllegalStateException("You can set the hook method only once");
+                Preconditions.checkNotNull(hookClass);
+                this.hook = Preconditions.checkNotNull(hook);
+                this.hookClass = hookClass;
+                return this;
+            }
+
+            /**
+             * Builds a new instance of {@link InjectionDescriptor} with the
+             * provided data.
+             *
+             * <p>The class the target method is declared in cannot be checked
+             * here, so the receiver parameter of the hook, if present, is only
+             * checked when the transformer is constructed.</p>
+             *
+             * @return
+             *      A new instance of {@link InjectionDescriptor}. Guaranteed
+             *      not to be null.
+             * @throws NullPointerException
+             *      If one or more of the required properties hasn't been set
+             *      previously.
+             * @throws IllegalArgumentException
+             *      If the hook does not respect the correct structure. Refer
+             *      to {@link #setHookMethod(ClassDescriptor, MethodDescriptor)}
+             *      for more information.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public InjectionDescriptor build() {
+                Preconditions.checkNotNull(this.targetMethod, "Target method cannot be null");
+                Preconditions.checkNotNull(this.point, "Injection point cannot be null");
+                Preconditions.checkNotNull(this.hook, "Hook method cannot be null");
+                Preconditions.checkNotNull(this.hookClass, "Class where the hook method is located cannot be null");
+
+                Preconditions.checkArgument(ClassDescriptor.of(void.class).equals(this.hook.getReturnType()), "Hook return type must be void");
+                final int receiverCount = this.isTargetStatic? 0 : 1;
+                final List<ClassDescriptor> hookArguments = this.hook.getArguments();
+                final List<ClassDescriptor> targetArguments = this.targetMethod.getArguments();
+                Preconditions.checkArgument(hookArguments.size() <= receiverCount + targetArguments.size(),
+                        "Wrong arguments: hook method has more arguments than the target method can provide");
+                for (int i = receiverCount; i < hookArguments.size(); ++i) {
+                    Preconditions.checkArgument(hookArguments.get(i).equals(targetArguments.get(i - receiverCount)),
+                            "Wrong type: hook method parameter " + i + " must be the same as the matching target method parameter");
+                }
+                final boolean isConstructor = "<init>".equals(this.targetMethod.getName());
+                Preconditions.checkArgument(!isConstructor || this.point.kind != InjectionPoint.Kind.HEAD || receiverCount == 0 || hookArguments.isEmpty(),
+                        "The receiver cannot be passed to a hook injected at the head of a constructor");
+
+                return new InjectionDescriptor(this);
+            }
+        }
+
+        private final MethodDescriptor targetMethod;
+        private final boolean isTargetStatic;
+        private final InjectionPoint point;
+        private final ClassDescriptor hookClass;
+        private final MethodDescriptor hook;
+
+        private InjectionDescriptor(@Nonnull final Builder from) {
+            this.targetMethod = from.targetMethod;
+            this.isTargetStatic = from.isTargetStatic;
+            this.point = from.point;
+            this.hookClass = from.hookClass;
+            this.hook = from.hook;
+        }
+
+        @Nonnull
+        MethodDescriptor getTargetMethod() {
+            return this.targetMethod;
+        }
+
+        boolean isTargetStatic() {
+            return this.isTargetStatic;
+        }
+
+        @Nonnull
+        InjectionPoint getPoint() {
+            return this.point;
+        }
+
+        @Nonnull
+        ClassDescriptor getHookClass() {
+            return this.hookClass;
+        }
+
+        @Nonnull
+        MethodDescriptor getHook() {
+            return this.hook;
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return "InjectionDescriptor{" +
+                    "targetMethod=" + this.targetMethod +
+                    ", isTargetStatic=" + this.isTargetStatic +
+                    ", point=" + this.point +
+                    ", hookClass=" + this.hookClass +
+                    ", hook=" + this.hook +
+                    '}';
+        }
+
+        @Override
+        public boolean equals(@Nullable final Object o) {
+            if (this == o) return true;
+            if (o == null || this.getClass() != o.getClass()) return false;
+            final InjectionDescriptor that = (InjectionDescriptor) o;
+            return this.isTargetStatic == that.isTargetStatic &&
+                    Objects.equals(this.targetMethod, that.targetMethod) &&
+                    Objects.equals(this.point, that.point) &&
+                    Objects.equals(this.hookClass, that.hookClass) &&
+                    Objects.equals(this.hook, that.hook);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(this.targetMethod, this.isTargetStatic, this.point, this.hookClass, this.hook);
+        }
+    }
+
+    // All the injections of a single method, ready to be emitted; matched points use remapped names
+    private static final class MethodInjections {
+
+        private final List<InjectionDescriptor> head = Lists.newArrayList();
+        private final List<InjectionDescriptor> returns = Lists.newArrayList();
+        private final Map<String, MemberIndex<List<InjectionDescriptor>>> beforeInvoke;
+        private final Map<String, MemberIndex<List<InjectionDescriptor>>> afterInvoke;
+        private final Map<String, MemberIndex<List<InjectionDescriptor>>> beforeField;
+        private final Map<String, MemberIndex<List<InjectionDescriptor>>> afterField;
+        private final int extraStack;
+
+        private MethodInjections(@Nonnull final List<InjectionDescriptor> injections) {
+            final Map<InjectionPoint, List<InjectionDescriptor>> byPoint = Maps.newLinkedHashMap();
+            injections.forEach(it -> {
+                if (it.getPoint().kind == InjectionPoint.Kind.HEAD) this.head.add(it);
+                else if (it.getPoint().kind == InjectionPoint.Kind.RETURN) this.returns.add(it);
+                else byPoint.computeIfAbsent(it.getPoint(), k -> Lists.newArrayList()).add(it);
+            });
+            this.beforeInvoke = buildIndex(byPoint, InjectionPoint.Kind.BEFORE_INVOKE);
+            this.afterInvoke = buildIndex(byPoint, InjectionPoint.Kind.AFTER_INVOKE);
+            this.beforeField = buildIndex(byPoint, InjectionPoint.Kind.BEFORE_FIELD);
+            this.afterField = buildIndex(byPoint, InjectionPoint.Kind.AFTER_FIELD);
+            // The stack depth at an injection point is unknown, but it can never exceed the method's own maximum
+            this.extraStack = injections.stream()
+                    .mapToInt(it -> Type.getArgumentsAndReturnSizes(it.getHook().toAsmDescriptor()) >> 2)
+                    .max()
+                    .orElse(0);
+        }
+
+        @Nonnull
+        private static Map<String, MemberIndex<List<InjectionDescriptor>>> buildIndex(@Nonnull final Map<InjectionPoint, List<InjectionDescriptor>> byPoint,
+                                                                                     @Nonnull final InjectionPoint.Kind kind) {
+            final MemberIndex.ByOwner<List<InjectionDescriptor>> index = MemberIndex.ByOwner.create();
+            byPoint.forEach((point, injections) -> {
+                if (point.kind != kind) return;
+                if (point.method != null) {
+                    index.forOwner(point.owner).add(MappingUtilities.INSTANCE.mapMethod(point.method.getName()), point.method.toAsmDescriptor(),
+                            ImmutableList.copyOf(injections));
+                } else {
+                    index.forOwner(point.owner).add(MappingUtilities.INSTANCE.mapField(point.field.getName()),
+                            point.field.getType().toAsmMethodDescriptor(), ImmutableList.copyOf(injections));
+                }
+            });
+            return index.build();
+        }
+
+        @Nullable
+        static List<InjectionDescriptor> find(@Nonnull final Map<String, MemberIndex<List<InjectionDescriptor>>> index, @Nonnull final String owner,
+                                              @Nonnull final String name, @Nonnull final String descriptor) {
+            final MemberIndex<List<InjectionDescriptor>> members = index.get(owner);
+            return members == null ? null : members.get(name, descriptor);
+        }
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("InjectionTransformer");
+
+    private final Marker marker;
+    private final Map<MethodDescriptor, List<InjectionDescriptor>> injections;
+
+    /**
+     * Constructs a new instance of this transformer.
+     *
+     * @param data
+     *      The data that identifies this transformer. Refer to
+     *      {@link TransformerData} for more information. It cannot be null.
+     * @param targetClass
+     *      The {@link ClassDescriptor} representing the class to transform.
+     *      It cannot be null.
+     * @param injections
+     *      The {@link InjectionDescriptor}s that identify the hook calls that
+     *      should be injected. There must be at least one injection.
+     *      Injections at the same point are performed in the given order.
+     * @throws IllegalArgumentException
+     *      If a hook expects a receiver whose type is not the target class.
+     *
+     * @since 1.1.0
+     */
+    protected InjectionTransformer(@Nonnull final TransformerData data, @Nonnull final ClassDescriptor targetClass,
+                                   @Nonnull final InjectionDescriptor... injections) {
+        super(data, targetClass, getTargetMethods(injections));
+        this.marker = MarkerManager.getMarker(data.getOwningPluginId() + ":" + data.getName());
+        final Map<MethodDescriptor, List<InjectionDescriptor>> byMethod = Maps.newLinkedHashMap();
+        for (@Nonnull final InjectionDescriptor injection : injections) {
+            final List<ClassDescriptor> hookArguments = injection.getHook().getArguments();
+            Preconditions.checkArgument(injection.isTargetStatic() || hookArguments.isEmpty() || targetClass.equals(hookArguments.get(0)),
+                    "Wrong type: hook method first parameter must be the target class");
+            byMethod.computeIfAbsent(injection.getTargetMethod(), k -> Lists.newArrayList()).add(injection);
+        }
+        this.injections = ImmutableMap.copyOf(byMethod);
+        MappingUtilities.INSTANCE.preResolveMethods(this.injections.values()
+                .stream()
+                .flatMap(List::stream)
+                .map(it -> it.getPoint().method)
+                .filter(Objects::nonNull)
+                .map(MethodDescriptor::getName)
+                .collect(Collectors.toSet()));
+        MappingUtilities.INSTANCE.preResolveFields(this.injections.values()
+                .stream()
+                .flatMap(List::stream)
+                .map(it -> it.getPoint().field)
+                .filter(Objects::nonNull)
+                .map(FieldDescriptor::getName)
+                .collect(Collectors.toSet()));
+    }
+
+    @Nonnull
+    private static MethodDescriptor[] getTargetMethods(@Nonnull final InjectionDescriptor... injections) {
+        Preconditions.checkArgument(Preconditions.checkNotNull(injections).length > 0, "At least one injection must be given");
+        return Arrays.stream(injections).map(InjectionDescriptor::getTargetMethod).distinct().toArray(MethodDescriptor[]::new);
+    }
+
+    @Nonnull
+    @Override
+    protected final Map<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>> getMethodVisitorCreators() {
+        final ImmutableMap.Builder<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>> builder = ImmutableMap.builder();
+        this.injections.forEach((method, injections) -> {
+            // Built here rather than on construction, since names can be remapped only once the game is launching
+            final MethodInjections compiled = new MethodInjections(injections);
+            builder.put(method, (desc, pair) -> this.createInjectingVisitor(desc, compiled, pair.getLeft(), pair.getRight()));
+        });
+        return builder.build();
+    }
+
+    @Nonnull
+    private MethodVisitor createInjectingVisitor(@Nonnull final MethodDescriptor method, @Nonnull final MethodInjections injections, final int api,
+                                                 @Nonnull final MethodVisitor parent) {
+        return new MethodVisitor(api, parent) {
+            private int injected;
+            private boolean isReceiverInitialized = !"<init>".equals(method.getName());
+            private int uninitializedObjects;
+
+            @Override
+            public void visitCode() {
+                super.visitCode();
+                injections.head.forEach(this::inject);
+            }
+
+            @Override
+            public void visitInsn(final int opcode) {
+                if (opcode >= Opcodes.IRETURN && opcode <= Opcodes.RETURN) injections.returns.forEach(this::inject);
+                super.visitInsn(opcode);
+            }
+
+            @Override
+            public void visitTypeInsn(final int opcode, @Nonnull final String type) {
+                if (opcode == Opcodes.NEW && !this.isReceiverInitialized) ++this.uninitializedObjects;
+                super.visitTypeInsn(opcode, type);
+            }
+
+            @Override
+            public void visitMethodInsn(final int opcode, @Nonnull final String owner, @Nonnull final String name, @Nonnull final String descriptor,
+                                        final boolean isInterface) {
+                this.injectAll(MethodInjections.find(injections.beforeInvoke, owner, name, descriptor));
+                super.visitMethodInsn(opcode, owner, name, descriptor, isInterface);
+                if (opcode == Opcodes.INVOKESPECIAL && "<init>".equals(name) && !this.isReceiverInitialized) {
+                    // Constructor calls nest like the objects they initialize: the one that finds no pending object is super() or this()
+                    if (this.uninitializedObjects > 0) --this.uninitializedObjects;
+                    else this.isReceiverInitialized = true;
+                }
+                this.injectAll(MethodInjections.find(injections.afterInvoke, owner, name, descriptor));
+            }
+
+            @Override
+            public void visitFieldInsn(final int opcode, @Nonnull final String owner, @Nonnull final String name, @Nonnull final String descriptor) {
+                this.injectAll(MethodInjections.find(injections.beforeField, owner, name, descriptor));
+                super.visitFieldInsn(opcode, owner, name, descriptor);
+                this.injectAll(MethodInjections.find(injections.afterField, owner, name, descriptor));
+            }
+
+            @Override
+            public void visitMaxs(final int maxStack, final int maxLocals) {
+                super.visitMaxs(maxStack + injections.extraStack, maxLocals);
+            }
+
+            @Override
+            public void visitEnd() {
+                LOGGER.info(InjectionTransformer.this.marker, "Injected " + this.injected + " hook calls into method '" + method + "'");
+                super.visitEnd();
+            }
+
+            private void injectAll(@Nullable final List<InjectionDescriptor> injections) {
+                if (injections != null) injections.forEach(this::inject);
+            }
+
+            private void inject(@Nonnull final InjectionDescriptor injection) {
+                final List<ClassDescriptor> hookArguments = injection.getHook().getArguments();
+                if (!this.isReceiverInitialized && !injection.isTargetStatic() && !hookArguments.isEmpty()) {
+                    LOGGER.warn(InjectionTransformer.this.marker, "Skipped a call to hook '" + injection.getHook().getName() + "' in method '" + method
+                            + "': the receiver is not initialized until the superclass constructor is called");
+                    return;
+                }
+                // Parameters are loaded from their local variables, in order, which also holds for the receiver in slot 0
+                /*mutable*/ int slot = 0;
+                for (@Nonnull final ClassDescriptor argument : hookArguments) {
+                    final Type type = Type.getType(argument.toAsmMethodDescriptor());
+                    super.visitVarInsn(type.getOpcode(Opcodes.ILOAD), slot);
+                    slot += type.getSize();
+                }
+                super.visitMethodInsn(Opcodes.INVOKESTATIC, injection.getHookClass().toAsmName(), injection.getHook().getName(),
+                        injection.getHook().toAsmDescriptor(), false);
+                ++this.injected;
+            }
+        };
+    }
+}
@@ -0,0 +1,112 @@
+package net.thesilkminer.mc.fermion.asm.prefab.transformer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.FieldDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+
+// Indexes members by the raw name and descriptor strings ASM passes to visitors, so that checking whether a member is
+// a target never needs to parse its descriptor or allocate: members whose name does not match cost a single lookup
+final class MemberIndex<V> {
+
+    static final class Builder<V> {
+
+        private final Map<String, Map<String, V>> members = Maps.newHashMap();
+
+        private Builder() {}
+
+        @Nonnull
+        static <V> Builder<V> create() {
+            return new Builder<>();
+        }
+
+        // Returns false if the member was already in the index, in which case the old value is kept
+        boolean add(@Nonnull final String name, @Nonnull final String descriptor, @Nonnull final V value) {
+            Preconditions.checkNotNull(name);
+            Preconditions.checkNotNull(descriptor);
+            Preconditions.checkNotNull(value);
+            return this.members.computeIfAbsent(name, k -> Maps.newHashMap()).putIfAbsent(descriptor, value) == null;
+        }
+
+        boolean add(@Nonnull final MethodDescriptor method, @Nonnull final V value) {
+            return this.add(method.getName(), method.toAsmDescriptor(), value);
+        }
+
+        boolean add(@Nonnull final FieldDescriptor field, @Nonnull final V value) {
+            return this.add(field.getName(), field.getType().toAsmMethodDescriptor(), value);
+        }
+
+        @Nonnull
+        MemberIndex<V> build() {
+            final ImmutableMap.Builder<String, Map<String, V>> builder = ImmutableMap.builder();
+            this.members.forEach((name, descriptors) -> builder.put(name, ImmutableMap.copyOf(descriptors)));
+            return new MemberIndex<>(builder.build());
+        }
+    }
+
+    // Indexes members by the internal name of the class that declares them
+    static final class ByOwner<V> {
+
+        private final Map<String, Builder<V>> owners = Maps.newHashMap();
+
+        private ByOwner() {}
+
+        @Nonnull
+        static <V> ByOwner<V> create() {
+            return new ByOwner<>();
+        }
+
+        @Nonnull
+        Builder<V> forOwner(@Nonnull final ClassDescriptor owner) {
+            return this.owners.computeIfAbsent(owner.toAsmName(), k -> Builder.create());
+        }
+
+        @Nonnull
+        Map<String, MemberIndex<V>> build() {
+            final ImmutableMap.Builder<String, MemberIndex<V>> builder = ImmutableMap.builder();
+            this.owners.forEach((owner, members) -> builder.put(owner, members.build()));
+            return builder.build();
+        }
+    }
+
+    private static final MemberIndex<?> EMPTY = new MemberIndex<>(ImmutableMap.of());
+
+    private final Map<String, Map<String, V>> members;
+
+    private MemberIndex(@Nonnull final Map<String, Map<String, V>> members) {
+        this.members = members;
+    }
+
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    static <V> MemberIndex<V> empty() {
+        return (MemberIndex<V>) EMPTY;
+    }
+
+    @Nullable
+    V get(@Nonnull final String name, @Nonnull final String descriptor) {
+        final Map<String, V> descriptors = this.members.get(name);
+        return descriptors == null ? null : descriptors.get(descriptor);
+    }
+
+    boolean isEmpty() {
+        return this.members.isEmpty();
+    }
+
+    int size() {
+        return this.members.values().stream().mapToInt(Map::size).sum();
+    }
+
+    @Override
+    public String toString() {
+        return "MemberIndex{" +
+                "members=" + this.members +
+                '}';
+    }
+}
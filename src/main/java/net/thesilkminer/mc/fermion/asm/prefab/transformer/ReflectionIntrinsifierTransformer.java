@@ -0,0 +1,801 @@
+package net.thesilkminer.mc.fermion.asm.prefab.transformer;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import net.thesilkminer.mc.fermion.asm.api.MappingUtilities;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.FieldDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import net.thesilkminer.mc.fermion.asm.prefab.AbstractTransformer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.tree.AbstractInsnNode;
+import org.objectweb.asm.tree.ClassNode;
+import org.objectweb.asm.tree.FieldInsnNode;
+import org.objectweb.asm.tree.FieldNode;
+import org.objectweb.asm.tree.IntInsnNode;
+import org.objectweb.asm.tree.JumpInsnNode;
+import org.objectweb.asm.tree.LabelNode;
+import org.objectweb.asm.tree.LdcInsnNode;
+import org.objectweb.asm.tree.LookupSwitchInsnNode;
+import org.objectweb.asm.tree.MethodInsnNode;
+import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.tree.TableSwitchInsnNode;
+import org.objectweb.asm.tree.TryCatchBlockNode;
+import org.objectweb.asm.tree.TypeInsnNode;
+import org.objectweb.asm.tree.VarInsnNode;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiFunction;
+
+/**
+ * Transformer that replaces reflective accesses to fields and methods with
+ * direct accesses, whenever the accessed member is provably constant.
+ *
+ * <p>In other words, this transformer looks for classes that look up a
+ * {@link java.lang.reflect.Field} or a {@link java.lang.reflect.Method}
+ * through {@link Class#getDeclaredField(String)} or
+ * {@link Class#getDeclaredMethod(String, Class[])} with constant arguments,
+ * store the result in a {@code static final} field and make it accessible
+ * through {@code setAccessible(true)}, which is the usual way of caching
+ * reflective lookups. The static initializer must always perform that call:
+ * members that may not be accessible are left alone, since reflection would
+ * throw an {@link IllegalAccessException} when accessing them. Calls to
+ * {@link java.lang.reflect.Field#get(Object)} and
+ * {@link java.lang.reflect.Method#invoke(Object, Object...)} in those
+ * classes are then redirected to a generated method that checks whether the
+ * receiver is one of those cached members and, if so, accesses the member
+ * directly, with a {@code GETFIELD} or an {@code INVOKEVIRTUAL}. In every
+ * other case, including when arguments don't have exactly the types the
+ * member expects, the original reflective call is performed, so that
+ * behavior never changes. Exceptions thrown by an invoked method are still
+ * wrapped in an {@link java.lang.reflect.InvocationTargetException}.</p>
+ *
+ * <p>The members that may be accessed directly must be declared in advance
+ * through a {@link Targets} instance, together with the classes that access
+ * them: the transformer then also makes those members public, as the
+ * {@link BulkAccessTransformer} does, so that direct accesses are legal.
+ * Lookups of members that are not declared are left alone. Member names are
+ * expected to be SRG names and they are remapped automatically when needed,
+ * while the names used in the reflective lookups are compared as they
+ * are.</p>
+ *
+ * <p>To ensure safety in this implementation, most of the methods that need
+ * to be untouched have been made non-virtual and non-overridable (i.e.
+ * final). All the added methods, that represent this transformer's public
+ * API are documented in depth.</p>
+ *
+ * @since 1.1.0
+ */
+public abstract class ReflectionIntrinsifierTransformer extends AbstractTransformer {
+
+    /**
+     * Identifies the members that may be accessed directly and the classes
+     * whose reflective accesses should be replaced.
+     *
+     * @since 1.1.0
+     */
+    public static final class Targets {
+
+        /**
+         * A builder used to create instances of {@link Targets}.
+         *
+         * @since 1.1.0
+         */
+        public static final class Builder {
+
+            private final Set<ClassDescriptor> callSites;
+            private final Map<ClassDescriptor, Set<FieldDescriptor>> fields;
+            private final Map<ClassDescriptor, Set<Pair>> methods;
+
+            private Builder() {
+                this.callSites = Sets.newLinkedHashSet();
+                this.fields = Maps.newLinkedHashMap();
+                this.methods = Maps.newLinkedHashMap();
+            }
+
+            /**
+             * Creates a new, empty, builder instance.
+             *
+             * @return
+             *      A new, ready to be used, builder instance.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public static Builder create() {
+                return new Builder();
+            }
+
+            /**
+             * Adds a class whose reflective accesses should be replaced with
+             * direct accesses.
+             *
+             * @param callSite
+             *      The class that performs reflective accesses. It cannot be
+             *      null.
+             * @return
+             *      This builder, for chaining.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder addCallSite(@Nonnull final ClassDescriptor callSite) {
+                this.callSites.add(Preconditions.checkNotNull(callSite));
+                return this;
+            }
+
+            /**
+             * Adds a field that may be accessed directly.
+             *
+             * @param owner
+             *      The class where the field is declared. It cannot be null.
+             * @param field
+             *      The field, identified by its SRG name. Whether the field
+             *      is static must be specified correctly. It cannot be null.
+             * @return
+             *      This builder, for chaining.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder addField(@Nonnull final ClassDescriptor owner, @Nonnull final FieldDescriptor field) {
+                this.fields.computeIfAbsent(Preconditions.checkNotNull(owner), k -> Sets.newLinkedHashSet()).add(Preconditions.checkNotNull(field));
+                return this;
+            }
+
+            /**
+             * Adds a method that may be invoked directly.
+             *
+             * @param owner
+             *      The class where the method is declared. It cannot be null.
+             *      It must not be an interface.
+             * @param method
+             *      The method, identified by its SRG name. It cannot be null.
+             * @param isStatic
+             *      Whether the method is static.
+             * @return
+             *      This builder, for chaining.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder addMethod(@Nonnull final ClassDescriptor owner, @Nonnull final MethodDescriptor method, final boolean isStatic) {
+                this.methods.computeIfAbsent(Preconditions.checkNotNull(owner), k -> Sets.newLinkedHashSet())
+                        .add(new Pair(Preconditions.checkNotNull(method), isStatic));
+                return this;
+            }
+
+            /**
+             * Builds a new instance of the targets.
+             *
+             * @return
+             *      A new set of targets. Guaranteed not to be null.
+             * @throws IllegalStateException
+             *      If no call site or no member has been added.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Targets build() {
+                Preconditions.checkState(!this.callSites.isEmpty(), "At least one call site must be given");
+                Preconditions.checkState(!this.fields.isEmpty() || !this.methods.isEmpty(), "At least one field or method must be given");
+                return new Targets(this);
+            }
+        }
+
+        // A method, plus whether it is static, which a MethodDescriptor does not know
+        private static final class Pair {
+
+            private final MethodDescriptor method;
+            private final boolean isStatic;
+
+            private Pair(@Nonnull final MethodDescriptor method, final boolean isStatic) {
+                this.method = method;
+                this.isStatic = isStatic;
+            }
+
+            @Override
+            public boolean equals(@Nullable final Object o) {
+                if (this == o) return true;
+                if (o == null || this.getClass() != o.getClass()) return false;
+                final Pair that = (Pair) o;
+                return this.isStatic == that.isStatic && this.method.equals(that.method);
+            }
+
+            @Override
+            public int hashCode() {
+                return Objects.hash(this.method, this.isStatic);
+            }
+        }
+
+        private final Set<ClassDescriptor> callSites;
+        private final Map<ClassDescriptor, Set<FieldDescriptor>> fields;
+        private final Map<ClassDescriptor, Set<Pair>> methods;
+
+        private Targets(@Nonnull final Builder builder) {
+            this.callSites = ImmutableSet.copyOf(builder.callSites);
+            this.fields = Maps.newLinkedHashMap();
+            builder.fields.forEach((owner, fields) -> this.fields.put(owner, ImmutableSet.copyOf(fields)));
+            this.methods = Maps.newLinkedHashMap();
+            builder.methods.forEach((owner, methods) -> this.methods.put(owner, ImmutableSet.copyOf(methods)));
+        }
+
+        @Nonnull
+        ClassDescriptor[] getAllClasses() {
+            final Set<ClassDescriptor> classes = Sets.newLinkedHashSet(this.callSites);
+            classes.addAll(this.fields.keySet());
+            classes.addAll(this.methods.keySet());
+            return classes.toArray(new ClassDescriptor[0]);
+        }
+
+        @Nonnull
+        AccessTransformerRules toAccessRules() {
+            final AccessTransformerRules.Builder builder = AccessTransformerRules.Builder.create();
+            // The owner itself must be accessible too, or the call site would not even be able to refer to it
+            this.fields.keySet().forEach(it -> builder.addClass(it, AccessTransformerRules.Access.PUBLIC, AccessTransformerRules.FinalModifier.UNCHANGED));
+            this.methods.keySet().forEach(it -> builder.addClass(it, AccessTransformerRules.Access.PUBLIC, AccessTransformerRules.FinalModifier.UNCHANGED));
+            this.fields.forEach((owner, fields) -> fields.forEach(it -> builder.addField(owner, it.getName(),
+                    AccessTransformerRules.Access.PUBLIC, AccessTransformerRules.FinalModifier.UNCHANGED)));
+            this.methods.forEach((owner, methods) -> methods.forEach(it -> builder.addMethod(owner, it.method,
+                    AccessTransformerRules.Access.PUBLIC, AccessTransformerRules.FinalModifier.UNCHANGED)));
+            return builder.build();
+        }
+    }
+
+    // A member that a reflective lookup resolved to, with names already remapped
+    private static final class Member {
+
+        private final boolean isMethod;
+        private final String owner;
+        private final String name;
+        private final String descriptor;
+        private final boolean isStatic;
+
+        private Member(final boolean isMethod, @Nonnull final String owner, @Nonnull final String name, @Nonnull final String descriptor,
+                       final boolean isStatic) {
+            this.isMethod = isMethod;
+            this.owner = owner;
+            this.name = name;
+            this.descriptor = descriptor;
+            this.isStatic = isStatic;
+        }
+
+        @Nonnull
+        @Override
+        public String toString() {
+            return this.owner + "." + this.name + (this.isMethod ? "" : ":") + this.descriptor;
+        }
+    }
+
+    // Values tracked while simulating the static initializer: only what may end up in a lookup is interesting
+    private static final class Value {
+
+        private static final Value UNKNOWN = new Value(null, null, null, null);
+
+        private final Type type;
+        private final String string;
+        private final Integer integer;
+        private final Type[] array;
+        private final String[] lookup; // owner, name, descriptor of the arguments or null for fields
+        private boolean isAccessible;
+
+        private Value(@Nullable final Type type, @Nullable final String string, @Nullable final Integer integer, @Nullable final Type[] array) {
+            this(type, string, integer, array, null);
+        }
+
+        private Value(@Nullable final Type type, @Nullable final String string, @Nullable final Integer integer, @Nullable final Type[] array,
+                      @Nullable final String[] lookup) {
+            this.type = type;
+            this.string = string;
+            this.integer = integer;
+            this.array = array;
+            this.lookup = lookup;
+        }
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("ReflectionIntrinsifierTransformer");
+
+    private static final String CLASS = "java/lang/Class";
+    private static final String FIELD = "java/lang/reflect/Field";
+    private static final String METHOD = "java/lang/reflect/Method";
+    private static final String FIELD_DESCRIPTOR = "Ljava/lang/reflect/Field;";
+    private static final String METHOD_DESCRIPTOR = "Ljava/lang/reflect/Method;";
+    private static final String GET_DESCRIPTOR = "(Ljava/lang/Object;)Ljava/lang/Object;";
+    private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+    private static final String GET_BRIDGE_PREFIX = "fermion$intrinsic$get$";
+    private static final String GET_BRIDGE_DESCRIPTOR = "(Ljava/lang/reflect/Field;Ljava/lang/Object;)Ljava/lang/Object;";
+    private static final String INVOKE_BRIDGE_PREFIX = "fermion$intrinsic$invoke$";
+    private static final String INVOKE_BRIDGE_DESCRIPTOR = "(Ljava/lang/reflect/Method;Ljava/lang/Object;[Ljava/lang/Object;)Ljava/lang/Object;";
+    private static final String STATIC_INITIALIZER = "<clinit>";
+    private static final Map<String, String> PRIMITIVE_HOLDERS = Maps.newHashMap();
+
+    static {
+        PRIMITIVE_HOLDERS.put("java/lang/Boolean", "Z");
+        PRIMITIVE_HOLDERS.put("java/lang/Character", "C");
+        PRIMITIVE_HOLDERS.put("java/lang/Byte", "B");
+        PRIMITIVE_HOLDERS.put("java/lang/Short", "S");
+        PRIMITIVE_HOLDERS.put("java/lang/Integer", "I");
+        PRIMITIVE_HOLDERS.put("java/lang/Float", "F");
+        PRIMITIVE_HOLDERS.put("java/lang/Long", "J");
+        PRIMITIVE_HOLDERS.put("java/lang/Double", "D");
+    }
+
+    private final Marker marker;
+    private final Targets targets;
+    private final Set<String> callSites;
+    private final BulkAccessTransformer widener;
+    private final String getBridgeName;
+    private final String invokeBridgeName;
+
+    /**
+     * Constructs a new instance of this transformer.
+     *
+     * @param data
+     *      The data that identifies this transformer. Refer to
+     *      {@link TransformerData} for more information. It cannot be null.
+     * @param targets
+     *      The {@link Targets} that identify the members that may be accessed
+     *      directly and the classes whose reflective accesses should be
+     *      replaced. It cannot be null.
+     *
+     * @since 1.1.0
+     */
+    protected ReflectionIntrinsifierTransformer(@Nonnull final TransformerData data, @Nonnull final Targets targets) {
+        super(data, Preconditions.checkNotNull(targets).getAllClasses());
+        this.targets = targets;
+        this.marker = MarkerManager.getMarker(data.getOwningPluginId() + ":" + data.getName());
+        this.callSites = targets.callSites.stream().map(ClassDescriptor::toAsmName).collect(ImmutableSet.toImmutableSet());
+        this.widener = new BulkAccessTransformer(data, targets.toAccessRules()) {};
+        // Other intrinsifiers may target the same class, so every transformer needs its own bridges
+        final String bridgeSuffix = (data.getOwningPluginId() + "$" + data.getName()).replaceAll("[^A-Za-z0-9_]", "\\$");
+        this.getBridgeName = GET_BRIDGE_PREFIX + bridgeSuffix;
+        this.invokeBridgeName = INVOKE_BRIDGE_PREFIX + bridgeSuffix;
+    }
+
+    @Nonnull
+    @Override
+    public final BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
+        final BiFunction<Integer, ClassVisitor, ClassVisitor> widenerCreator = this.widener.getClassVisitorCreator();
+        return (v, cw) -> {
+            final ClassVisitor widener = widenerCreator.apply(v, cw);
+            return new ClassNode(v) {
+                @Override
+                public void visitEnd() {
+                    super.visitEnd();
+                    if (ReflectionIntrinsifierTransformer.this.callSites.contains(this.name)) {
+                        ReflectionIntrinsifierTransformer.this.intrinsify(this);
+                    }
+                    this.accept(widener);
+                }
+            };
+        };
+    }
+
+    private void intrinsify(@Nonnull final ClassNode node) {
+        if ((node.access & Opcodes.ACC_INTERFACE) != 0) {
+            LOGGER.warn(this.marker, "Class '" + node.name + "' is an interface: reflective accesses will not be replaced");
+            return;
+        }
+
+        final Map<FieldNode, Member> constants = this.findConstantLookups(node);
+        if (constants.isEmpty()) {
+            LOGGER.info(this.marker, "No constant reflective lookups of known members were found in class '" + node.name + "'");
+            return;
+        }
+
+        final Map<FieldNode, Member> fields = Maps.filterValues(constants, it -> !it.isMethod);
+        final Map<FieldNode, Member> methods = Maps.filterValues(constants, it -> it.isMethod);
+        final boolean hasFrames = (node.version & 0xFFFF) >= Opcodes.V1_6;
+        /*mutable*/ int replaced = 0;
+
+        for (@Nonnull final MethodNode method : node.methods) {
+            for (@Nonnull final AbstractInsnNode instruction : method.instructions.toArray()) {
+                if (instruction.getOpcode() != Opcodes.INVOKEVIRTUAL) continue;
+                final MethodInsnNode call = (MethodInsnNode) instruction;
+                if (!fields.isEmpty() && FIELD.equals(call.owner) && "get".equals(call.name) && GET_DESCRIPTOR.equals(call.desc)) {
+                    method.instructions.set(call, new MethodInsnNode(Opcodes.INVOKESTATIC, node.name, this.getBridgeName, GET_BRIDGE_DESCRIPTOR, false));
+                    ++replaced;
+                } else if (!methods.isEmpty() && METHOD.equals(call.owner) && "invoke".equals(call.name) && INVOKE_DESCRIPTOR.equals(call.desc)) {
+                    method.instructions.set(call, new MethodInsnNode(Opcodes.INVOKESTATIC, node.name, this.invokeBridgeName, INVOKE_BRIDGE_DESCRIPTOR, false));
+                    ++replaced;
+                }
+            }
+        }
+
+        if (!fields.isEmpty()) this.generateGetBridge(node, fields, hasFrames);
+        if (!methods.isEmpty()) this.generateInvokeBridge(node, methods, hasFrames);
+
+        LOGGER.info(this.marker, "Replaced " + replaced + " reflective calls in class '" + node.name + "', which may now directly access "
+                + constants.values());
+    }
+
+    // Only a static final field assigned exactly once, in the static initializer, from a lookup whose arguments are all
+    // constants in straight-line code, and that is then always made accessible, is considered constant
+    @Nonnull
+    private Map<FieldNode, Member> findConstantLookups(@Nonnull final ClassNode node) {
+        final Map<String, FieldNode> candidates = Maps.newHashMap();
+        for (@Nonnull final FieldNode field : node.fields) {
+            final boolean isStaticFinal = (field.access & (Opcodes.ACC_STATIC | Opcodes.ACC_FINAL)) == (Opcodes.ACC_STATIC | Opcodes.ACC_FINAL);
+            if (isStaticFinal && (FIELD_DESCRIPTOR.equals(field.desc) || METHOD_DESCRIPTOR.equals(field.desc))) candidates.put(field.name, field);
+        }
+        if (candidates.isEmpty()) return Maps.newHashMap();
+
+        final Map<String, Integer> assignments = Maps.newHashMap();
+        /*mutable*/ MethodNode initializer = null;
+        for (@Nonnull final MethodNode method : node.methods) {
+            if (STATIC_INITIALIZER.equals(method.name)) initializer = method;
+            for (@Nonnull final AbstractInsnNode instruction : method.instructions.toArray()) {
+                if (instruction.getOpcode() != Opcodes.PUTSTATIC) continue;
+                final FieldInsnNode put = (FieldInsnNode) instruction;
+                if (node.name.equals(put.owner) && candidates.containsKey(put.name)) assignments.merge(put.name, 1, Integer::sum);
+            }
+        }
+        if (initializer == null) return Maps.newHashMap();
+
+        final Map<String, Value> values = this.simulate(node.name, initializer, candidates.keySet());
+        final Map<FieldNode, Member> constants = Maps.newLinkedHashMap();
+        values.forEach((name, value) -> {
+            if (assignments.getOrDefault(name, 0) != 1 || value.lookup == null) return;
+            if (!value.isAccessible) {
+                LOGGER.debug(this.marker, "Constant reflective lookup '" + String.join(" ", Arrays.asList(value.lookup)) + "' in class '" + node.name
+                        + "' is not always made accessible: it will be left alone");
+                return;
+            }
+            final Member member = this.findMember(value.lookup);
+            if (member == null) {
+                LOGGER.debug(this.marker, "Constant reflective lookup '" + String.join(" ", Arrays.asList(value.lookup)) + "' in class '" + node.name
+                        + "' does not target a known member: it will be left alone");
+                return;
+            }
+            if (member.isMethod != METHOD_DESCRIPTOR.equals(candidates.get(name).desc)) return;
+            constants.put(candidates.get(name), member);
+        });
+        return constants;
+    }
+
+    @Nonnull
+    private Map<String, Value> simulate(@Nonnull final String owner, @Nonnull final MethodNode initializer, @Nonnull final Set<String> candidates) {
+        final Set<LabelNode> joins = Sets.newHashSet();
+        final Set<LabelNode> pendingTargets = Sets.newHashSet();
+        final Set<TryCatchBlockNode> openTryBlocks = Sets.newHashSet();
+        final Map<Integer, Integer> stores = Maps.newHashMap();
+        initializer.tryCatchBlocks.forEach(it -> joins.add(it.handler));
+        for (@Nonnull final AbstractInsnNode instruction : initializer.instructions.toArray()) {
+            if (instruction instanceof JumpInsnNode) joins.add(((JumpInsnNode) instruction).label);
+            if (instruction instanceof TableSwitchInsnNode) {
+                joins.add(((TableSwitchInsnNode) instruction).dflt);
+                joins.addAll(((TableSwitchInsnNode) instruction).labels);
+            }
+            if (instruction instanceof LookupSwitchInsnNode) {
+                joins.add(((LookupSwitchInsnNode) instruction).dflt);
+                joins.addAll(((LookupSwitchInsnNode) instruction).labels);
+            }
+            if (instruction.getOpcode() == Opcodes.ASTORE) stores.merge(((VarInsnNode) instruction).var, 1, Integer::sum);
+        }
+
+        final Map<String, Value> values = Maps.newHashMap();
+        final Map<Integer, Value> locals = Maps.newHashMap();
+        final Deque<Value> stack = Lists.newLinkedList();
+
+        for (@Nonnull final AbstractInsnNode instruction : initializer.instructions.toArray()) {
+            final int opcode = instruction.getOpcode();
+            if (opcode == -1) {
+                // Values on the stack may come from somewhere else if the code can be jumped into from here
+                if (instruction instanceof LabelNode && joins.contains(instruction)) stack.clear();
+                pendingTargets.remove(instruction);
+                // Ranges exclude their end label, which may also be the start of the next one
+                initializer.tryCatchBlocks.stream().filter(it -> it.end == instruction).forEach(openTryBlocks::remove);
+                initializer.tryCatchBlocks.stream().filter(it -> it.start == instruction).forEach(openTryBlocks::add);
+                continue;
+            }
+            // Code between a jump and its target may be skipped; backwards targets never leave the set, which is only more careful
+            if (instruction instanceof JumpInsnNode) pendingTargets.add(((JumpInsnNode) instruction).label);
+            if (instruction instanceof TableSwitchInsnNode) {
+                pendingTargets.add(((TableSwitchInsnNode) instruction).dflt);
+                pendingTargets.addAll(((TableSwitchInsnNode) instruction).labels);
+            }
+            if (instruction instanceof LookupSwitchInsnNode) {
+                pendingTargets.add(((LookupSwitchInsnNode) instruction).dflt);
+                pendingTargets.addAll(((LookupSwitchInsnNode) instruction).labels);
+            }
+            if (opcode >= Opcodes.ICONST_M1 && opcode <= Opcodes.ICONST_5) {
+                stack.push(new Value(null, null, opcode - Opcodes.ICONST_0, null));
+            } else if (opcode == Opcodes.BIPUSH || opcode == Opcodes.SIPUSH) {
+                stack.push(new Value(null, null, ((IntInsnNode) instruction).operand, null));
+            } else if (opcode == Opcodes.LDC) {
+                final Object constant = ((LdcInsnNode) instruction).cst;
+                if (constant instanceof Type && ((Type) constant).getSort() != Type.METHOD) {
+                    stack.push(new Value((Type) constant, null, null, null));
+                } else if (constant instanceof String) {
+                    stack.push(new Value(null, (String) constant, null, null));
+                } else {
+                    stack.clear();
+                }
+            } else if (opcode == Opcodes.GETSTATIC && "TYPE".equals(((FieldInsnNode) instruction).name)
+                    && PRIMITIVE_HOLDERS.containsKey(((FieldInsnNode) instruction).owner)) {
+                stack.push(new Value(Type.getType(PRIMITIVE_HOLDERS.get(((FieldInsnNode) instruction).owner)), null, null, null));
+            } else if (opcode == Opcodes.GETSTATIC && owner.equals(((FieldInsnNode) instruction).owner)
+                    && candidates.contains(((FieldInsnNode) instruction).name)) {
+                stack.push(values.getOrDefault(((FieldInsnNode) instruction).name, Value.UNKNOWN));
+            } else if (opcode == Opcodes.ANEWARRAY && CLASS.equals(((TypeInsnNode) instruction).desc)) {
+                final Value size = pop(stack);
+                stack.push(size.integer == null ? Value.UNKNOWN : new Value(null, null, null, new Type[size.integer]));
+            } else if (opcode == Opcodes.DUP) {
+                final Value top = pop(stack);
+                stack.push(top);
+                stack.push(top);
+            } else if (opcode == Opcodes.AASTORE) {
+                final Value element = pop(stack);
+                final Value index = pop(stack);
+                final Value array = pop(stack);
+                if (array.array == null) continue;
+                if (element.type == null || index.integer == null || index.integer < 0 || index.integer >= array.array.length) {
+                    // The array is not constant anymore: make sure it can never be completed
+                    Arrays.fill(array.array, null);
+                } else {
+                    array.array[index.integer] = element.type;
+                }
+            } else if (opcode == Opcodes.ASTORE) {
+                final int index = ((VarInsnNode) instruction).var;
+                locals.put(index, stores.get(index) == 1 ? pop(stack) : Value.UNKNOWN);
+            } else if (opcode == Opcodes.ALOAD) {
+                stack.push(locals.getOrDefault(((VarInsnNode) instruction).var, Value.UNKNOWN));
+            } else if (opcode == Opcodes.INVOKEVIRTUAL && CLASS.equals(((MethodInsnNode) instruction).owner)
+                    && "getDeclaredField".equals(((MethodInsnNode) instruction).name)) {
+                final Value name = pop(stack);
+                final Value type = pop(stack);
+                final boolean isConstant = name.string != null && type.type != null && type.type.getSort() == Type.OBJECT;
+                stack.push(isConstant ? new Value(null, null, null, null, new String[] { type.type.getInternalName(), name.string, null }) : Value.UNKNOWN);
+            } else if (opcode == Opcodes.INVOKEVIRTUAL && CLASS.equals(((MethodInsnNode) instruction).owner)
+                    && "getDeclaredMethod".equals(((MethodInsnNode) instruction).name)) {
+                final Value arguments = pop(stack);
+                final Value name = pop(stack);
+                final Value type = pop(stack);
+                final boolean isConstant = arguments.array != null && Arrays.stream(arguments.array).allMatch(Objects::nonNull)
+                        && name.string != null && type.type != null && type.type.getSort() == Type.OBJECT;
+                stack.push(isConstant ? new Value(null, null, null, null, new String[] {
+                        type.type.getInternalName(), name.string, Type.getMethodDescriptor(Type.VOID_TYPE, arguments.array)
+                }) : Value.UNKNOWN);
+            } else if (opcode == Opcodes.INVOKEVIRTUAL && "setAccessible".equals(((MethodInsnNode) instruction).name)
+                    && "(Z)V".equals(((MethodInsnNode) instruction).desc)) {
+                final Value flag = pop(stack);
+                final Value member = pop(stack);
+                // Only a call that is always performed, with a constant true, proves that the member is accessible: anything in a try
+                // block may be skipped by an exception thrown before it
+                if (member.lookup != null) {
+                    member.isAccessible = pendingTargets.isEmpty() && openTryBlocks.isEmpty() && flag.integer != null && flag.integer == 1;
+                }
+            } else if (opcode == Opcodes.PUTSTATIC && owner.equals(((FieldInsnNode) instruction).owner)
+                    && candidates.contains(((FieldInsnNode) instruction).name)) {
+                values.put(((FieldInsnNode) instruction).name, pop(stack));
+            } else {
+                // Anything else may do whatever it wants with the stack, so we know nothing anymore
+                stack.clear();
+            }
+        }
+        return values;
+    }
+
+    @Nonnull
+    private static Value pop(@Nonnull final Deque<Value> stack) {
+        return stack.isEmpty() ? Value.UNKNOWN : stack.pop();
+    }
+
+    @Nullable
+    private Member findMember(@Nonnull final String[] lookup) {
+        final ClassDescriptor owner = ClassDescriptor.of(lookup[0].replace('/', '.'));
+        if (lookup[2] == null) {
+            final Set<FieldDescriptor> fields = this.targets.fields.get(owner);
+            if (fields == null) return null;
+            for (@Nonnull final FieldDescriptor field : fields) {
+                if (!lookup[1].equals(MappingUtilities.INSTANCE.mapField(field.getName()))) continue;
+                return new Member(false, lookup[0], lookup[1], field.getType().toAsmMethodDescriptor(), field.isStatic());
+            }
+            return null;
+        }
+        final Set<Targets.Pair> methods = this.targets.methods.get(owner);
+        if (methods == null) return null;
+        for (@Nonnull final Targets.Pair pair : methods) {
+            final String descriptor = pair.method.toAsmDescriptor();
+            if (!lookup[1].equals(MappingUtilities.INSTANCE.mapMethod(pair.method.getName()))) continue;
+            if (!lookup[2].substring(0, lookup[2].indexOf(')') + 1).equals(descriptor.substring(0, descriptor.indexOf(')') + 1))) continue;
+            return new Member(true, lookup[0], lookup[1], descriptor, pair.isStatic);
+        }
+        return null;
+    }
+
+    // if (field == CONSTANT && receiver is valid) return (boxed) receiver.field; ... return field.get(receiver);
+    private void generateGetBridge(@Nonnull final ClassNode node, @Nonnull final Map<FieldNode, Member> fields, final boolean hasFrames) {
+        final MethodVisitor mv = node.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, this.getBridgeName,
+                GET_BRIDGE_DESCRIPTOR, null, null);
+        mv.visitCode();
+        fields.forEach((constant, member) -> {
+            final Label next = new Label();
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETSTATIC, node.name, constant.name, constant.desc);
+            mv.visitJumpInsn(Opcodes.IF_ACMPNE, next);
+            if (member.isStatic) {
+                mv.visitFieldInsn(Opcodes.GETSTATIC, member.owner, member.name, member.descriptor);
+            } else {
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitTypeInsn(Opcodes.INSTANCEOF, member.owner);
+                mv.visitJumpInsn(Opcodes.IFEQ, next);
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitTypeInsn(Opcodes.CHECKCAST, member.owner);
+                mv.visitFieldInsn(Opcodes.GETFIELD, member.owner, member.name, member.descriptor);
+            }
+            box(mv, Type.getType(member.descriptor));
+            mv.visitInsn(Opcodes.ARETURN);
+            visitLabelAndFrame(mv, next, hasFrames);
+        });
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, FIELD, "get", GET_DESCRIPTOR, false);
+        mv.visitInsn(Opcodes.ARETURN);
+        mv.visitMaxs(4, 2);
+        mv.visitEnd();
+    }
+
+    // Same as above, but arguments are also checked to have exactly the expected types, so that reflection can deal
+    // with conversions and errors; exceptions thrown by the target are wrapped as reflection would
+    private void generateInvokeBridge(@Nonnull final ClassNode node, @Nonnull final Map<FieldNode, Member> methods, final boolean hasFrames) {
+        final MethodVisitor mv = node.visitMethod(Opcodes.ACC_PRIVATE | Opcodes.ACC_STATIC | Opcodes.ACC_SYNTHETIC, this.invokeBridgeName,
+                INVOKE_BRIDGE_DESCRIPTOR, null, null);
+        mv.visitCode();
+        final List<Label> handlers = Lists.newArrayList();
+        /*mutable*/ int maxStack = 4;
+        for (@Nonnull final Map.Entry<FieldNode, Member> entry : methods.entrySet()) {
+            final FieldNode constant = entry.getKey();
+            final Member member = entry.getValue();
+            final Type[] arguments = Type.getArgumentTypes(member.descriptor);
+            final Label next = new Label();
+
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+            mv.visitFieldInsn(Opcodes.GETSTATIC, node.name, constant.name, constant.desc);
+            mv.visitJumpInsn(Opcodes.IF_ACMPNE, next);
+            if (!member.isStatic) {
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitTypeInsn(Opcodes.INSTANCEOF, member.owner);
+                mv.visitJumpInsn(Opcodes.IFEQ, next);
+            }
+            if (arguments.length == 0) {
+                final Label noArguments = new Label();
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                mv.visitJumpInsn(Opcodes.IFNULL, noArguments);
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                mv.visitInsn(Opcodes.ARRAYLENGTH);
+                mv.visitJumpInsn(Opcodes.IFNE, next);
+                visitLabelAndFrame(mv, noArguments, hasFrames);
+            } else {
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                mv.visitJumpInsn(Opcodes.IFNULL, next);
+                mv.visitVarInsn(Opcodes.ALOAD, 2);
+                mv.visitInsn(Opcodes.ARRAYLENGTH);
+                pushInt(mv, arguments.length);
+                mv.visitJumpInsn(Opcodes.IF_ICMPNE, next);
+            }
+            for (int i = 0; i < arguments.length; ++i) {
+                final boolean isPrimitive = arguments[i].getSort() != Type.OBJECT && arguments[i].getSort() != Type.ARRAY;
+                final Label valid = new Label();
+                if (!isPrimitive) {
+                    loadArgument(mv, i);
+                    mv.visitJumpInsn(Opcodes.IFNULL, valid);
+                }
+                loadArgument(mv, i);
+                mv.visitTypeInsn(Opcodes.INSTANCEOF, isPrimitive ? boxedType(arguments[i]) : arguments[i].getInternalName());
+                mv.visitJumpInsn(Opcodes.IFEQ, next);
+                if (!isPrimitive) visitLabelAndFrame(mv, valid, hasFrames);
+            }
+
+            final Label start = new Label();
+            final Label end = new Label();
+            final Label handler = new Label();
+            mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+            handlers.add(handler);
+
+            mv.visitLabel(start);
+            if (!member.isStatic) {
+                mv.visitVarInsn(Opcodes.ALOAD, 1);
+                mv.visitTypeInsn(Opcodes.CHECKCAST, member.owner);
+            }
+            for (int i = 0; i < arguments.length; ++i) {
+                loadArgument(mv, i);
+                unbox(mv, arguments[i]);
+            }
+            mv.visitMethodInsn(member.isStatic ? Opcodes.INVOKESTATIC : Opcodes.INVOKEVIRTUAL, member.owner, member.name, member.descriptor, false);
+            mv.visitLabel(end);
+            final Type returnType = Type.getReturnType(member.descriptor);
+            if (returnType.getSort() == Type.VOID) {
+                mv.visitInsn(Opcodes.ACONST_NULL);
+            } else {
+                box(mv, returnType);
+            }
+            mv.visitInsn(Opcodes.ARETURN);
+            visitLabelAndFrame(mv, next, hasFrames);
+
+            maxStack = Math.max(maxStack, 1 + Arrays.stream(arguments).mapToInt(Type::getSize).sum() + 2);
+        }
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, METHOD, "invoke", INVOKE_DESCRIPTOR, false);
+        mv.visitInsn(Opcodes.ARETURN);
+
+        for (@Nonnull final Label handler : handlers) {
+            mv.visitLabel(handler);
+            if (hasFrames) mv.visitFrame(Opcodes.F_SAME1, 0, null, 1, new Object[] { "java/lang/Throwable" });
+            mv.visitTypeInsn(Opcodes.NEW, "java/lang/reflect/InvocationTargetException");
+            mv.visitInsn(Opcodes.DUP_X1);
+            mv.visitInsn(Opcodes.SWAP);
+            mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/reflect/InvocationTargetException", "<init>", "(Ljava/lang/Throwable;)V", false);
+            mv.visitInsn(Opcodes.ATHROW);
+        }
+        mv.visitMaxs(maxStack, 3);
+        mv.visitEnd();
+    }
+
+    // Every jump target in the bridges is reached with an empty stack and only the parameters as locals
+    private static void visitLabelAndFrame(@Nonnull final MethodVisitor mv, @Nonnull final Label label, final boolean hasFrames) {
+        mv.visitLabel(label);
+        if (hasFrames) mv.visitFrame(Opcodes.F_SAME, 0, null, 0, null);
+    }
+
+    private static void loadArgument(@Nonnull final MethodVisitor mv, final int index) {
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        pushInt(mv, index);
+        mv.visitInsn(Opcodes.AALOAD);
+    }
+
+    private static void pushInt(@Nonnull final MethodVisitor mv, final int value) {
+        if (value <= 5) {
+            mv.visitInsn(Opcodes.ICONST_0 + value);
+        } else {
+            mv.visitIntInsn(value <= Byte.MAX_VALUE ? Opcodes.BIPUSH : Opcodes.SIPUSH, value);
+        }
+    }
+
+    @Nonnull
+    private static String boxedType(@Nonnull final Type type) {
+        return PRIMITIVE_HOLDERS.entrySet()
+                .stream()
+                .filter(it -> it.getValue().equals(type.getDescriptor()))
+                .map(Map.Entry::getKey)
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Not a primitive type: " + type));
+    }
+
+    private static void box(@Nonnull final MethodVisitor mv, @Nonnull final Type type) {
+        if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) return;
+        final String holder = boxedType(type);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, holder, "valueOf", "(" + type.getDescriptor() + ")L" + holder + ";", false);
+    }
+
+    private static void unbox(@Nonnull final MethodVisitor mv, @Nonnull final Type type) {
+        if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) {
+            mv.visitTypeInsn(Opcodes.CHECKCAST, type.getInternalName());
+            return;
+        }
+        final String holder = boxedType(type);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, holder);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, holder, type.getClassName() + "Value", "()" + type.getDescriptor(), false);
+    }
+}
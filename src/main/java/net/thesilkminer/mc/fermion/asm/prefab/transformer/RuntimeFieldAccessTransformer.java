@@ -2,7 +2,6 @@ package net.thesilkminer.mc.fermion.asm.prefab.transformer;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 import net.thesilkminer.mc.fermion.asm.api.MappingUtilities;
 import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
 import net.thesilkminer.mc.fermion.asm.api.descriptor.FieldDescriptor;
@@ -19,16 +18,15 @@ import org.objectweb.asm.FieldVisitor;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.Type;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
@@ -36,7 +34,7 @@ import java.util.stream.Collectors;
 /**
  * Transformer that automatically makes the access of the given field public
  * and allows external code to access it through a given method (called
- * "accessor method").
+ * "accessor method"), which can either read or write the field.
  *
  * <p>In other words, this is a sort of Access Transformer that is implemented
  * using raw bytecode manipulation inside of a Fermion environment rather than
@@ -58,7 +56,8 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
      *
      * <p>This descriptor stores the field that should be made public, along
      * with the class where the field is located, and the "accessor" method,
-     * along with the class where it is located.</p>
+     * along with the class where it is located. The accessor method can
+     * either be a getter or a setter.</p>
      *
      * <p>Note that instances of this class do not cause class loading neither
      * during normal usage or construction, if used properly.</p>
@@ -82,6 +81,8 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
             private FieldDescriptor field;
             private ClassDescriptor accessorClass;
             private MethodDescriptor accessor;
+            private boolean setter;
+            private boolean finalModifierRemoved;
 
             private Builder() {}
 
@@ -123,6 +124,14 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
                 return this.accessor;
             }
 
+            boolean isSetter() {
+                return this.setter;
+            }
+
+            boolean isFinalModifierRemoved() {
+                return this.finalModifierRemoved;
+            }
+
             /**
              * Sets the field that acts as a target for this target descriptor.
              *
@@ -234,6 +243,79 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
                 return this;
             }
 
+            /**
+             * Sets the method that acts as a setter for the "target field" of
+             * this target descriptor.
+             *
+             * <p>A setter is an "accessor method" that writes to the "target
+             * field" instead of reading from it. Refer to
+             * {@link #setAccessorMethod(ClassDescriptor, MethodDescriptor)}
+             * for the general definition of "accessor method". Only one
+             * between a getter and a setter can be set on the same target
+             * descriptor: to generate both, use two descriptors with the same
+             * "target field".</p>
+             *
+             * <p>A setter must have a {@code void} return type. If the
+             * "target field" is static, the setter must have exactly one
+             * parameter, excluding the receiver parameter if present, whose
+             * type is exactly the "target field"'s type. If the "target
+             * field" is non-static, the setter must have exactly two
+             * parameters: the first one must have exactly the "target
+             * field"'s class as a type, the second one the "target field"'s
+             * type. As for getters, the receiver parameter must never be
+             * specified in the descriptor.</p>
+             *
+             * <p>If the "target field" is {@code final}, writing to it is
+             * illegal unless its {@code final} modifier is also removed,
+             * which must be requested explicitly through
+             * {@link #setFinalModifierRemoved()}.</p>
+             *
+             * @param accessorClass
+             *      The class where the setter is located. It cannot be null.
+             * @param setter
+             *      The setter. It cannot be null.
+             * @return
+             *      This builder for chaining.
+             * @throws IllegalStateException
+             *      If the "accessor method" has already been set, either as a
+             *      getter or as a setter.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder setSetterMethod(@Nonnull final ClassDescriptor accessorClass, @Nonnull final MethodDescriptor setter) {
+                this.setAccessorMethod(accessorClass, setter);
+                this.setter = true;
+                return this;
+            }
+
+            /**
+             * Requests the {@code final} modifier of the "target field" to be
+             * removed, so that its setter can write to it.
+             *
+             * <p>The modifier is removed only if it is safe to do so. In
+             * particular, fields whose value is a compile-time constant are
+             * never changed, since the compiler copies their value wherever
+             * they are used and writes would never be seen, and neither are
+             * fields declared in interfaces, which must be final. In these
+             * cases, an error is logged and the field is left alone.</p>
+             *
+             * <p>Note that removing the {@code final} modifier of a static
+             * field prevents the JIT from treating the field as a constant,
+             * which may make reads slower. For this reason, it can only be
+             * requested for setters.</p>
+             *
+             * @return
+             *      This builder for chaining.
+             *
+             * @since 1.1.0
+             */
+            @Nonnull
+            public Builder setFinalModifierRemoved() {
+                this.finalModifierRemoved = true;
+                return this;
+            }
+
             /**
              * Builds a new instance of {@link TargetDescriptor} with the
              * provided data.
@@ -246,8 +328,10 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
              *      previously.
              * @throws IllegalArgumentException
              *      If the "accessor method" does not respect the correct
-             *      structure. Refer to
+             *      structure, or if the removal of the {@code final} modifier
+             *      has been requested for a getter. Refer to
              *      {@link #setAccessorMethod(ClassDescriptor, MethodDescriptor)}
+             *      and {@link #setSetterMethod(ClassDescriptor, MethodDescriptor)}
              *      for more information.
              *
              * @since 1.0.0
@@ -259,6 +343,10 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
                 Preconditions.checkNotNull(this.field, "Field to access cannot be null");
                 Preconditions.checkNotNull(this.fieldClass, "Class where the field is located cannot be null");
 
+                if (this.setter) return this.buildSetter();
+
+                Preconditions.checkArgument(!this.finalModifierRemoved, "The final modifier can be removed only for setters");
+
                 final ClassDescriptor fieldType = this.field.getType();
                 final ClassDescriptor returnType = this.accessor.getReturnType();
                 Preconditions.checkArgument(fieldType.equals(returnType), "Accessor return type must be the same as the field type");
@@ -278,18 +366,42 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
 
                 return new TargetDescriptor(this);
             }
+
+            @Nonnull
+            private TargetDescriptor buildSetter() {
+                Preconditions.checkArgument(ClassDescriptor.of(void.class).equals(this.accessor.getReturnType()), "Setter return type must be void");
+
+                final boolean fieldStatic = this.field.isStatic();
+                final List<ClassDescriptor> arguments = this.accessor.getArguments();
+
+                Preconditions.checkArgument(arguments.size() == (fieldStatic? 1 : 2), fieldStatic?
+                        "Wrong arguments: setter method must have 1 argument if field to access is static" :
+                        "Wrong arguments: setter method must have 2 arguments if field to access is non-static");
+                if (!fieldStatic) {
+                    Preconditions.checkArgument(this.fieldClass.equals(arguments.get(0)),
+                            "Wrong type: setter method first parameter must be the same as the field's class");
+                }
+                Preconditions.checkArgument(this.field.getType().equals(arguments.get(arguments.size() - 1)),
+                        "Wrong type: setter method last parameter must be the same as the field type");
+
+                return new TargetDescriptor(this);
+            }
         }
 
         private final ClassDescriptor fieldClass;
         private final FieldDescriptor field;
         private final ClassDescriptor accessorClass;
         private final MethodDescriptor accessor;
+        private final boolean setter;
+        private final boolean finalModifierRemoved;
 
         private TargetDescriptor(@Nonnull final TargetDescriptor.Builder from) {
             this.fieldClass = from.getFieldClass();
             this.field = from.getField();
             this.accessorClass = from.getAccessorClass();
             this.accessor = from.getAccessor();
+            this.setter = from.isSetter();
+            this.finalModifierRemoved = from.isFinalModifierRemoved();
         }
 
         @Nonnull
@@ -312,6 +424,14 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
             return this.accessor;
         }
 
+        boolean isSetter() {
+            return this.setter;
+        }
+
+        boolean isFinalModifierRemoved() {
+            return this.finalModifierRemoved;
+        }
+
         @Nonnull
         @Override
         public String toString() {
@@ -320,6 +440,8 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
                     ", field=" + this.field +
                     ", accessorClass=" + this.accessorClass +
                     ", accessor=" + this.accessor +
+                    ", setter=" + this.setter +
+                    ", finalModifierRemoved=" + this.finalModifierRemoved +
                     '}';
         }
 
@@ -331,12 +453,14 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
             return Objects.equals(this.fieldClass, that.fieldClass) &&
                     Objects.equals(this.field, that.field) &&
                     Objects.equals(this.accessorClass, that.accessorClass) &&
-                    Objects.equals(this.accessor, that.accessor);
+                    Objects.equals(this.accessor, that.accessor) &&
+                    this.setter == that.setter &&
+                    this.finalModifierRemoved == that.finalModifierRemoved;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(this.fieldClass, this.field, this.accessorClass, this.accessor);
+            return Objects.hash(this.fieldClass, this.field, this.accessorClass, this.accessor, this.setter, this.finalModifierRemoved);
         }
     }
 
@@ -357,15 +481,23 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
 
         @Override
         public void visitCode() {
+            final ClassDescriptor fieldType = this.descriptor.getField().getType();
+            final boolean isSetter = this.descriptor.isSetter();
+            // Longs and doubles take two slots, both on the stack and in the local variables
+            final int fieldSize = this.getSizeFromType(fieldType);
+            final int instanceSlot = this.isMethodStatic ? 0 : 1;
+            final int valueSlot = instanceSlot + (this.isFieldStatic ? 0 : 1);
+
             this.visitor.visitCode();
             final Label l0 = new Label();
             this.visitor.visitLabel(l0);
-            if (!this.isFieldStatic) this.visitor.visitVarInsn(Opcodes.ALOAD, this.isMethodStatic ? 0 : 1);
-            this.visitor.visitFieldInsn(this.isFieldStatic? Opcodes.GETSTATIC : Opcodes.GETFIELD,
+            if (!this.isFieldStatic) this.visitor.visitVarInsn(Opcodes.ALOAD, instanceSlot);
+            if (isSetter) this.visitor.visitVarInsn(this.getLoadOpcodeFromType(fieldType), valueSlot);
+            this.visitor.visitFieldInsn(this.getFieldOpcode(isSetter),
                     this.descriptor.getFieldClass().toAsmName(),
-                    this.descriptor.getField().getName(),
-                    this.descriptor.getField().getType().toAsmMethodDescriptor());
-            this.visitor.visitInsn(this.getReturnOpcodeFromType(this.descriptor.getField().getType()));
+                    MappingUtilities.INSTANCE.mapField(this.descriptor.getField().getName()),
+                    fieldType.toAsmMethodDescriptor());
+            this.visitor.visitInsn(isSetter ? Opcodes.RETURN : this.getReturnOpcodeFromType(fieldType));
             final Label l1 = new Label();
             this.visitor.visitLabel(l1);
             if (!this.isMethodStatic) {
@@ -374,9 +506,13 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
             }
             if (!this.isFieldStatic) {
                 this.visitor.visitLocalVariable("instance", this.descriptor.getFieldClass().toAsmMethodDescriptor(),
-                        null, l0, l1, this.isMethodStatic ? 0 : 1);
+                        null, l0, l1, instanceSlot);
             }
-            this.visitor.visitMaxs(1, this.isMethodStatic ? (this.isFieldStatic? 0 : 1) : (this.isFieldStatic? 1 : 2));
+            if (isSetter) {
+                this.visitor.visitLocalVariable("value", fieldType.toAsmMethodDescriptor(), null, l0, l1, valueSlot);
+            }
+            final int maxStack = (isSetter && !this.isFieldStatic ? 1 : 0) + fieldSize;
+            this.visitor.visitMaxs(maxStack, valueSlot + (isSetter ? fieldSize : 0));
             this.visitor.visitEnd();
         }
 
@@ -390,6 +526,11 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
             return this.visitor.visitParameterAnnotation(parameter, descriptor, visible);
         }
 
+        private int getFieldOpcode(final boolean isSetter) {
+            if (this.isFieldStatic) return isSetter ? Opcodes.PUTSTATIC : Opcodes.GETSTATIC;
+            return isSetter ? Opcodes.PUTFIELD : Opcodes.GETFIELD;
+        }
+
         private int getReturnOpcodeFromType(@Nonnull final ClassDescriptor descriptor) {
             switch (descriptor.toAsmMethodDescriptor().toCharArray()[0]) {
                 case 'V': return Opcodes.RETURN;
@@ -397,10 +538,26 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
                 case 'F': return Opcodes.FRETURN;
                 case 'J': return Opcodes.LRETURN;
                 case 'D': return Opcodes.DRETURN;
-                case 'L': return Opcodes.ARETURN;
+                case 'L': case '[': return Opcodes.ARETURN;
+                default: throw new IllegalStateException("Not a valid descriptor");
+            }
+        }
+
+        private int getLoadOpcodeFromType(@Nonnull final ClassDescriptor descriptor) {
+            switch (descriptor.toAsmMethodDescriptor().toCharArray()[0]) {
+                case 'Z': case 'C': case 'B': case 'S': case 'I': return Opcodes.ILOAD;
+                case 'F': return Opcodes.FLOAD;
+                case 'J': return Opcodes.LLOAD;
+                case 'D': return Opcodes.DLOAD;
+                case 'L': case '[': return Opcodes.ALOAD;
                 default: throw new IllegalStateException("Not a valid descriptor");
             }
         }
+
+        private int getSizeFromType(@Nonnull final ClassDescriptor descriptor) {
+            final char type = descriptor.toAsmMethodDescriptor().toCharArray()[0];
+            return type == 'J' || type == 'D' ? 2 : 1;
+        }
     }
 
     private static final Logger LOGGER = LogManager.getLogger("RuntimeFieldAccessTransformer");
@@ -408,6 +565,9 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
     private final Marker marker;
     private final Set<TargetDescriptor> descriptors;
 
+    private volatile Map<String, MemberIndex<TargetDescriptor>> targetFields;
+    private volatile Map<String, MemberIndex<TargetDescriptor>> accessorMethods;
+
     /**
      * Constructs a new instance of this transformer.
      *
@@ -424,6 +584,7 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
     protected RuntimeFieldAccessTransformer(@Nonnull final TransformerData data, @Nonnull final TargetDescriptor... descriptors) {
         super(data, getClassesFromTargets(descriptors));
         this.descriptors = ImmutableSet.copyOf(new HashSet<>(Arrays.asList(descriptors)));
+        MappingUtilities.INSTANCE.preResolveFields(this.descriptors.stream().map(it -> it.getField().getName()).collect(Collectors.toSet()));
         this.marker = MarkerManager.getMarker(data.getOwningPluginId() + ":" + data.getName());
     }
 
@@ -446,30 +607,31 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
     @Nonnull
     @Override
     public final BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
+        // Built on first use rather than on construction, since names can be remapped only once the game is launching
+        if (this.targetFields == null) this.buildIndexes();
+        final Map<String, MemberIndex<TargetDescriptor>> targetFieldsByOwner = this.targetFields;
+        final Map<String, MemberIndex<TargetDescriptor>> accessorMethodsByOwner = this.accessorMethods;
         return (v, cw) -> new ClassVisitor(v, cw) {
-            private final Map<TargetDescriptor, Boolean> targetDescriptors = Maps.newIdentityHashMap();
+            private boolean isInterface;
+            private MemberIndex<TargetDescriptor> targetFields = MemberIndex.empty();
+            private MemberIndex<TargetDescriptor> accessorMethods = MemberIndex.empty();
 
             @Override
             public void visit(final int version, final int access, @Nonnull final String name, @Nullable final String signature,
                               @Nonnull final String superName, @Nullable final String[] interfaces) {
                 super.visit(version, access, name, signature, superName, interfaces);
 
-                final ClassDescriptor descriptor = ClassDescriptor.of(name);
-
-                for (@Nonnull final TargetDescriptor desc : RuntimeFieldAccessTransformer.this.descriptors) {
-                    final ClassDescriptor fieldClass = desc.getFieldClass();
-                    final ClassDescriptor accessorClass = desc.getAccessorClass();
-
-                    if (descriptor.equals(fieldClass)) {
-                        this.targetDescriptors.put(desc, true);
-                        LOGGER.info(RuntimeFieldAccessTransformer.this.marker,
-                                "Found class '" + name + "' matching target field '" + desc.getField().getName() + "'");
-                    }
-                    if (descriptor.equals(accessorClass)) {
-                        this.targetDescriptors.put(desc, false);
-                        LOGGER.info(RuntimeFieldAccessTransformer.this.marker,
-                                "Found class '" + name + "' matching accessor '" + desc.getAccessor().toString() + "'");
-                    }
+                this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+                this.targetFields = targetFieldsByOwner.getOrDefault(name, MemberIndex.empty());
+                this.accessorMethods = accessorMethodsByOwner.getOrDefault(name, MemberIndex.empty());
+
+                if (!this.targetFields.isEmpty()) {
+                    LOGGER.info(RuntimeFieldAccessTransformer.this.marker,
+                            "Found class '" + name + "' matching " + this.targetFields.size() + " target fields");
+                }
+                if (!this.accessorMethods.isEmpty()) {
+                    LOGGER.info(RuntimeFieldAccessTransformer.this.marker,
+                            "Found class '" + name + "' matching " + this.accessorMethods.size() + " accessors");
                 }
             }
 
@@ -478,34 +640,17 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
             public FieldVisitor visitField(final int access, @Nonnull final String name, @Nonnull final String descriptor,
                                            @Nullable final String signature, @Nullable final Object value) {
 
-                /*mutable*/ int newAccess = access;
-
-                final Type fieldType = Type.getType(descriptor);
-                final FieldDescriptor fieldDescriptor = FieldDescriptor.of(name, ClassDescriptor.of(fieldType));
-                final FieldDescriptor staticFieldDescriptor = FieldDescriptor.of(name, ClassDescriptor.of(fieldType), true);
-
-                /*mutable*/ Optional<FieldDescriptor> opt = this.targetDescriptors.entrySet().stream()
-                        .filter(Map.Entry::getValue)
-                        .map(Map.Entry::getKey)
-                        .map(TargetDescriptor::getField)
-                        .map(this::remapNameIfNeeded)
-                        .filter(it -> Objects.equals(it, fieldDescriptor))
-                        .findAny();
-
-                if (!opt.isPresent()) {
-                    opt = this.targetDescriptors.entrySet().stream()
-                            .filter(Map.Entry::getValue)
-                            .map(Map.Entry::getKey)
-                            .map(TargetDescriptor::getField)
-                            .map(this::remapNameIfNeeded)
-                            .filter(it -> Objects.equals(it, staticFieldDescriptor))
-                            .findAny();
-                }
+                final TargetDescriptor target = this.targetFields.get(name, descriptor);
+
+                if (target == null) return super.visitField(access, name, descriptor, signature, value);
 
-                if (opt.isPresent()) newAccess = ((access & ~Opcodes.ACC_PRIVATE) & ~Opcodes.ACC_PROTECTED) | Opcodes.ACC_PUBLIC;
+                /*mutable*/ int newAccess = ((access & ~Opcodes.ACC_PRIVATE) & ~Opcodes.ACC_PROTECTED) | Opcodes.ACC_PUBLIC;
+                if ((access & Opcodes.ACC_FINAL) != 0 && target.isSetter()) {
+                    newAccess = this.removeFinalIfSafe(name, descriptor, value, newAccess, target);
+                }
 
                 if (newAccess != access) LOGGER.info(RuntimeFieldAccessTransformer.this.marker,
-                        "Made field '" + fieldDescriptor.toString() + "' public (new access: " + newAccess + ")");
+                        "Made field '" + name + "' of type '" + descriptor + "' public (new access: " + newAccess + ")");
 
                 return super.visitField(newAccess, name, descriptor, signature, value);
             }
@@ -516,30 +661,11 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
                                              @Nullable final String signature, @Nonnull final String[] exceptions) {
                 final MethodVisitor parent = super.visitMethod(access, name, descriptor, signature, exceptions);
 
-                final Type methodType = Type.getType(descriptor);
-                final Type[] argumentTypes = methodType.getArgumentTypes();
-                final Type returnType = methodType.getReturnType();
-
-                final ClassDescriptor returnDesc = ClassDescriptor.of(returnType);
-                final List<ClassDescriptor> arguments = Arrays.stream(argumentTypes)
-                        .map(ClassDescriptor::of)
-                        .collect(Collectors.toList());
-
-                final MethodDescriptor methodDescriptor = MethodDescriptor.of(name, arguments, returnDesc);
-
-                // Accessor methods won't be remapped because you're supposed to be able to access them since it is
-                // your own mod code
-                final Optional<TargetDescriptor> opt = this.targetDescriptors.entrySet().stream()
-                        .filter(it -> !it.getValue())
-                        .map(Map.Entry::getKey)
-                        .filter(it -> Objects.equals(it.getAccessor(), methodDescriptor))
-                        .findAny();
-
-                if (opt.isPresent()) {
-                    final TargetDescriptor found = opt.get();
+                final TargetDescriptor found = this.accessorMethods.get(name, descriptor);
 
+                if (found != null) {
                     LOGGER.info(RuntimeFieldAccessTransformer.this.marker,
-                            "Found accessor method '" + methodDescriptor.toString() + "': overwriting with access code");
+                            "Found accessor method '" + found.getAccessor().toString() + "': overwriting with access code");
 
                     return new MethodCallerVisitor(v, parent, found, (access & Opcodes.ACC_STATIC) != 0);
                 }
@@ -547,10 +673,45 @@ public abstract class RuntimeFieldAccessTransformer extends AbstractTransformer
                 return parent;
             }
 
-            @Nonnull
-            private FieldDescriptor remapNameIfNeeded(@Nonnull final FieldDescriptor in) {
-                return FieldDescriptor.of(MappingUtilities.INSTANCE.mapField(in.getName()), in.getType(), in.isStatic());
+            private int removeFinalIfSafe(@Nonnull final String name, @Nonnull final String descriptor, @Nullable final Object value,
+                                          final int access, @Nonnull final TargetDescriptor target) {
+                if (!target.isFinalModifierRemoved()) {
+                    LOGGER.error(RuntimeFieldAccessTransformer.this.marker, "Field '" + name + "' of type '" + descriptor + "' is final, "
+                            + "but its setter '" + target.getAccessor() + "' did not request the final modifier to be removed: writes will fail");
+                    return access;
+                }
+                // Constants are inlined by the compiler and interface fields must be final: writing to them is never safe
+                if (value != null || this.isInterface) {
+                    LOGGER.error(RuntimeFieldAccessTransformer.this.marker, "Field '" + name + "' of type '" + descriptor + "' is "
+                            + (value != null ? "a compile-time constant" : "declared in an interface")
+                            + ": its final modifier cannot be removed safely and writes will fail");
+                    return access;
+                }
+                LOGGER.info(RuntimeFieldAccessTransformer.this.marker, "Removed final modifier from field '" + name + "' of type '" + descriptor + "'");
+                return access & ~Opcodes.ACC_FINAL;
             }
         };
     }
+
+    private void buildIndexes() {
+        final MemberIndex.ByOwner<TargetDescriptor> targetFields = MemberIndex.ByOwner.create();
+        final MemberIndex.ByOwner<TargetDescriptor> accessorMethods = MemberIndex.ByOwner.create();
+        // Only one descriptor per field is kept in the index, so those that need the final modifier removed must win
+        final List<TargetDescriptor> descriptors = this.descriptors.stream()
+                .sorted(Comparator.comparing(it -> !(it.isSetter() && it.isFinalModifierRemoved())))
+                .collect(Collectors.toList());
+        for (@Nonnull final TargetDescriptor desc : descriptors) {
+            targetFields.forOwner(desc.getFieldClass()).add(this.remapNameIfNeeded(desc.getField()), desc);
+            // Accessor methods won't be remapped because you're supposed to be able to access them since it is
+            // your own mod code
+            accessorMethods.forOwner(desc.getAccessorClass()).add(desc.getAccessor(), desc);
+        }
+        this.accessorMethods = accessorMethods.build();
+        this.targetFields = targetFields.build();
+    }
+
+    @Nonnull
+    private FieldDescriptor remapNameIfNeeded(@Nonnull final FieldDescriptor in) {
+        return FieldDescriptor.of(MappingUtilities.INSTANCE.mapField(in.getName()), in.getType(), in.isStatic());
+    }
 }
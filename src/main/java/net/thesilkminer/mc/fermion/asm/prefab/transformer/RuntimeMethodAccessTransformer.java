@@ -2,7 +2,6 @@ package net.thesilkminer.mc.fermion.asm.prefab.transformer;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableSet;
-import com.google.common.collect.Maps;
 import net.thesilkminer.mc.fermion.asm.api.MappingUtilities;
 import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
 import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
@@ -17,7 +16,6 @@ import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.Label;
 import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
-import org.objectweb.asm.Type;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -26,7 +24,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
@@ -446,7 +443,7 @@ public abstract class RuntimeMethodAccessTransformer extends AbstractTransformer
             this.visitor.visitMethodInsn(
                     this.descriptor.isTargetMethodStatic()? Opcodes.INVOKESTATIC : Opcodes.INVOKEVIRTUAL,
                     this.descriptor.getMethodClass().toAsmName(),
-                    this.descriptor.getMethod().getName(),
+                    MappingUtilities.INSTANCE.mapMethod(this.descriptor.getMethod().getName()),
                     this.descriptor.getMethod().toAsmDescriptor(),
                     false);
             this.visitor.visitInsn(this.getReturnOpcodeFromType(this.descriptor.getMethod().getReturnType()));
@@ -512,6 +509,9 @@ public abstract class RuntimeMethodAccessTransformer extends AbstractTransformer
     private final Marker marker;
     private final Set<TargetDescriptor> descriptors;
 
+    private volatile Map<String, MemberIndex<TargetDescriptor>> targetMethods;
+    private volatile Map<String, MemberIndex<TargetDescriptor>> accessorMethods;
+
     /**
      * Constructs a new instance of this transformer.
      *
@@ -528,6 +528,7 @@ public abstract class RuntimeMethodAccessTransformer extends AbstractTransformer
     protected RuntimeMethodAccessTransformer(@Nonnull final TransformerData data, @Nonnull final TargetDescriptor... descriptors) {
         super(data, getClassesFromTargets(descriptors));
         this.descriptors = ImmutableSet.copyOf(new HashSet<>(Arrays.asList(descriptors)));
+        MappingUtilities.INSTANCE.preResolveMethods(this.descriptors.stream().map(it -> it.getMethod().getName()).collect(Collectors.toSet()));
         this.marker = MarkerManager.getMarker(data.getOwningPluginId() + ":" + data.getName());
     }
 
@@ -551,30 +552,29 @@ public abstract class RuntimeMethodAccessTransformer extends AbstractTransformer
     @Nonnull
     @Override
     public final BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
+        // Built on first use rather than on construction, since names can be remapped only once the game is launching
+        if (this.targetMethods == null) this.buildIndexes();
+        final Map<String, MemberIndex<TargetDescriptor>> targetMethodsByOwner = this.targetMethods;
+        final Map<String, MemberIndex<TargetDescriptor>> accessorMethodsByOwner = this.accessorMethods;
         return (v, cw) -> new ClassVisitor(v, cw) {
-            private final Map<TargetDescriptor, Boolean> targetDescriptors = Maps.newIdentityHashMap();
+            private MemberIndex<TargetDescriptor> targetMethods = MemberIndex.empty();
+            private MemberIndex<TargetDescriptor> accessorMethods = MemberIndex.empty();
 
             @Override
             public void visit(final int version, final int access, @Nonnull final String name, @Nullable final String signature,
                               @Nonnull final String superName, @Nullable final String[] interfaces) {
                 super.visit(version, access, name, signature, superName, interfaces);
 
-                final ClassDescriptor descriptor = ClassDescriptor.of(name);
-
-                for (@Nonnull final TargetDescriptor desc : RuntimeMethodAccessTransformer.this.descriptors) {
-                    final ClassDescriptor methodClass = desc.getMethodClass();
-                    final ClassDescriptor accessorClass = desc.getAccessorClass();
+                this.targetMethods = targetMethodsByOwner.getOrDefault(name, MemberIndex.empty());
+                this.accessorMethods = accessorMethodsByOwner.getOrDefault(name, MemberIndex.empty());
 
-                    if (descriptor.equals(methodClass)) {
-                        this.targetDescriptors.put(desc, true);
-                        LOGGER.info(RuntimeMethodAccessTransformer.this.marker,
-                                "Found class '" + name + "' matching target method '" + desc.getMethod().getName() + "'");
-                    }
-                    if (descriptor.equals(accessorClass)) {
-                        this.targetDescriptors.put(desc, false);
-                        LOGGER.info(RuntimeMethodAccessTransformer.this.marker,
-                                "Found class '" + name + "' matching accessor '" + desc.getAccessor().toString() + "'");
-                    }
+                if (!this.targetMethods.isEmpty()) {
+                    LOGGER.info(RuntimeMethodAccessTransformer.this.marker,
+                            "Found class '" + name + "' matching " + this.targetMethods.size() + " target methods");
+                }
+                if (!this.accessorMethods.isEmpty()) {
+                    LOGGER.info(RuntimeMethodAccessTransformer.this.marker,
+                            "Found class '" + name + "' matching " + this.accessorMethods.size() + " accessors");
                 }
             }
 
@@ -583,77 +583,53 @@ public abstract class RuntimeMethodAccessTransformer extends AbstractTransformer
             public MethodVisitor visitMethod(final int access, @Nonnull final String name, @Nonnull final String descriptor,
                                              @Nullable final String signature, @Nonnull final String[] exceptions) {
 
-                final Type methodType = Type.getType(descriptor);
-                final Type[] argumentTypes = methodType.getArgumentTypes();
-                final Type returnType = methodType.getReturnType();
-
-                final ClassDescriptor returnDesc = ClassDescriptor.of(returnType);
-                final List<ClassDescriptor> arguments = Arrays.stream(argumentTypes)
-                        .map(ClassDescriptor::of)
-                        .collect(Collectors.toList());
-
-                final MethodDescriptor methodDescriptor = MethodDescriptor.of(name, arguments, returnDesc);
-
-                final int newAccess = this.checkForAccessTransformation(access, methodDescriptor);
+                final int newAccess = this.checkForAccessTransformation(access, name, descriptor);
 
                 if (newAccess != access) {
                     // This is a method to transform, and a method cannot be the accessor of itself, so...
                     LOGGER.info(RuntimeMethodAccessTransformer.this.marker,
-                            "Made method '" + methodDescriptor.toString() + "' public (new access: " + newAccess + ")");
+                            "Made method '" + name + descriptor + "' public (new access: " + newAccess + ")");
                     return super.visitMethod(newAccess, name, descriptor, signature, exceptions);
                 }
 
                 // No method transformed: let's keep on going
                 final MethodVisitor parent = super.visitMethod(access, name, descriptor, signature, exceptions);
 
-                final BiFunction<Integer, MethodVisitor, MethodVisitor> getMethodVisitor =
-                        this.getVisitorForMethod(access, methodDescriptor);
-
-                final MethodVisitor methodVisitor = getMethodVisitor.apply(v, parent);
-
-                return methodVisitor == null? parent : methodVisitor;
-            }
-
-            private int checkForAccessTransformation(final int access, @Nonnull final MethodDescriptor descriptor) {
-                final Optional<MethodDescriptor> opt = this.targetDescriptors.entrySet().stream()
-                        .filter(Map.Entry::getValue)
-                        .map(Map.Entry::getKey)
-                        .filter(it -> ((access & Opcodes.ACC_STATIC) != 0 && it.isTargetMethodStatic())
-                                || ((access & Opcodes.ACC_STATIC) == 0 && !it.isTargetMethodStatic()))
-                        .map(TargetDescriptor::getMethod)
-                        .map(this::remapNameIfNeeded)
-                        .filter(it -> Objects.equals(it, descriptor))
-                        .findAny();
-
-                return opt.isPresent()? ((access & ~Opcodes.ACC_PRIVATE) & ~Opcodes.ACC_PROTECTED) | Opcodes.ACC_PUBLIC : access;
-            }
-
-            @Nonnull
-            private BiFunction<Integer, MethodVisitor, MethodVisitor> getVisitorForMethod(final int access, final MethodDescriptor descriptor) {
-                // Accessor methods won't be remapped because you're supposed to be able to access them since it is
-                // your own mod code
-                final Optional<TargetDescriptor> opt = this.targetDescriptors.entrySet().stream()
-                        .filter(it -> !it.getValue())
-                        .map(Map.Entry::getKey)
-                        .filter(it -> Objects.equals(it.getAccessor(), descriptor))
-                        .findAny();
-
-                if (opt.isPresent()) {
-                    final TargetDescriptor found = opt.get();
+                final TargetDescriptor found = this.accessorMethods.get(name, descriptor);
 
+                if (found != null) {
                     LOGGER.info(RuntimeMethodAccessTransformer.this.marker,
-                            "Found accessor method '" + descriptor.toString() + "': overwriting with access code");
+                            "Found accessor method '" + found.getAccessor().toString() + "': overwriting with access code");
 
-                    return (v, mv) -> new MethodCallerVisitor(v, mv, found, (access & Opcodes.ACC_STATIC) != 0);
+                    return new MethodCallerVisitor(v, parent, found, (access & Opcodes.ACC_STATIC) != 0);
                 }
 
-                return (v, mv) -> null;
+                return parent;
             }
 
-            @Nonnull
-            private MethodDescriptor remapNameIfNeeded(@Nonnull final MethodDescriptor in) {
-                return MethodDescriptor.of(MappingUtilities.INSTANCE.mapField(in.getName()), in.getArguments(), in.getReturnType());
+            private int checkForAccessTransformation(final int access, @Nonnull final String name, @Nonnull final String descriptor) {
+                final TargetDescriptor target = this.targetMethods.get(name, descriptor);
+                if (target == null || ((access & Opcodes.ACC_STATIC) != 0) != target.isTargetMethodStatic()) return access;
+                return ((access & ~Opcodes.ACC_PRIVATE) & ~Opcodes.ACC_PROTECTED) | Opcodes.ACC_PUBLIC;
             }
         };
     }
+
+    private void buildIndexes() {
+        final MemberIndex.ByOwner<TargetDescriptor> targetMethods = MemberIndex.ByOwner.create();
+        final MemberIndex.ByOwner<TargetDescriptor> accessorMethods = MemberIndex.ByOwner.create();
+        for (@Nonnull final TargetDescriptor desc : this.descriptors) {
+            targetMethods.forOwner(desc.getMethodClass()).add(this.remapNameIfNeeded(desc.getMethod()), desc);
+            // Accessor methods won't be remapped because you're supposed to be able to access them since it is
+            // your own mod code
+            accessorMethods.forOwner(desc.getAccessorClass()).add(desc.getAccessor(), desc);
+        }
+        this.accessorMethods = accessorMethods.build();
+        this.targetMethods = targetMethods.build();
+    }
+
+    @Nonnull
+    private MethodDescriptor remapNameIfNeeded(@Nonnull final MethodDescriptor in) {
+        return MethodDescriptor.of(MappingUtilities.INSTANCE.mapMethod(in.getName()), in.getArguments(), in.getReturnType());
+    }
 }
@@ -2,6 +2,7 @@ package net.thesilkminer.mc.fermion.asm.prefab.transformer;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
 import net.thesilkminer.mc.fermion.asm.api.MappingUtilities;
 import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
 import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
@@ -15,11 +16,9 @@ import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
 import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.MethodVisitor;
-import org.objectweb.asm.Type;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import java.util.AbstractMap;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -51,7 +50,7 @@ public abstract class TargetMethodTransformer extends AbstractTransformer {
     private final Marker marker;
     private final List<MethodDescriptor> targetMethods;
 
-    private Map<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>> methodVisitors;
+    private MemberIndex<Pair<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>>> methodVisitors;
 
     /**
      * Constructs a new instance of this transformer.
@@ -74,6 +73,7 @@ public abstract class TargetMethodTransformer extends AbstractTransformer {
         super(data, targetClass);
         Preconditions.checkArgument(Preconditions.checkNotNull(targetMethods).length > 0, "At least one method target must be given");
         this.targetMethods = ImmutableList.copyOf(Arrays.asList(targetMethods));
+        MappingUtilities.INSTANCE.preResolveMethods(this.targetMethods.stream().map(MethodDescriptor::getName).collect(Collectors.toSet()));
         this.marker = MarkerManager.getMarker(this.getData().getOwningPluginId() + ":" + this.getData().getName());
     }
 
@@ -137,61 +137,55 @@ public abstract class TargetMethodTransformer extends AbstractTransformer {
     @Nonnull
     @Override
     public final BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
-        if (this.methodVisitors == null) {
-            this.methodVisitors = this.getMethodVisitorCreators()
-                    .entrySet()
-                    .stream()
-                    .map(this::remapMethodIfNeeded)
-                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-            this.targetMethods.stream()
-                    .map(this::remapMethodIfNeeded)
-                    .map(this.methodVisitors::get)
-                    .filter(Objects::isNull)
-                    .findAny()
-                    .ifPresent(it -> {
-                        throw new IllegalStateException("Found target method descriptor " + it + " but no matching method visitor");
-                    });
-        }
+        if (this.methodVisitors == null) this.methodVisitors = this.buildMethodVisitorsIndex();
+        final MemberIndex<Pair<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>>> index = this.methodVisitors;
         return (v, cw) -> new ClassVisitor(v, cw) {
             @Override
             public MethodVisitor visitMethod(final int access, @Nonnull final String name, @Nonnull final String descriptor,
                                              @Nullable final String signature, @Nullable final String[] exceptions) {
                 final MethodVisitor parent = super.visitMethod(access, name, descriptor, signature, exceptions);
 
-                final Type methodType = Type.getType(descriptor);
-                final Type[] argumentTypes = methodType.getArgumentTypes();
-                final Type returnType = methodType.getReturnType();
+                final Pair<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>> target =
+                        index.get(name, descriptor);
 
-                final ClassDescriptor returnDesc = ClassDescriptor.of(returnType);
-                final List<ClassDescriptor> arguments = Arrays.stream(argumentTypes)
-                        .map(ClassDescriptor::of)
-                        .collect(Collectors.toList());
+                if (Objects.isNull(target)) return parent;
 
-                final MethodDescriptor method = MethodDescriptor.of(name, arguments, returnDesc);
-
-                final BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor> creator =
-                        TargetMethodTransformer.this.methodVisitors.get(method);
-
-                if (Objects.isNull(creator)) return parent;
+                final MethodDescriptor method = target.getLeft();
 
                 LOGGER.info(TargetMethodTransformer.this.marker,
                         "Found target method described by method descriptor '" + method +
                                 "': calling transforming function now");
 
-                return creator.apply(method, ImmutablePair.of(v, parent));
+                return target.getRight().apply(method, ImmutablePair.of(v, parent));
             }
         };
     }
 
     @Nonnull
-    private MethodDescriptor remapMethodIfNeeded(@Nonnull final MethodDescriptor in) {
-        return MethodDescriptor.of(MappingUtilities.INSTANCE.mapMethod(in.getName()), in.getArguments(), in.getReturnType());
+    private MemberIndex<Pair<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>>> buildMethodVisitorsIndex() {
+        final Map<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>> creators = Maps.newHashMap();
+        this.getMethodVisitorCreators().forEach((method, creator) -> {
+            final MethodDescriptor remapped = this.remapMethodIfNeeded(method);
+            if (creators.putIfAbsent(remapped, Preconditions.checkNotNull(creator)) != null) {
+                throw new IllegalStateException("Found multiple method visitors for target method descriptor " + remapped);
+            }
+        });
+        this.targetMethods.stream()
+                .map(this::remapMethodIfNeeded)
+                .filter(it -> !creators.containsKey(it))
+                .findAny()
+                .ifPresent(it -> {
+                    throw new IllegalStateException("Found target method descriptor " + it + " but no matching method visitor");
+                });
+
+        final MemberIndex.Builder<Pair<MethodDescriptor, BiFunction<MethodDescriptor, Pair<Integer, MethodVisitor>, MethodVisitor>>> builder =
+                MemberIndex.Builder.create();
+        creators.forEach((method, creator) -> builder.add(method, ImmutablePair.of(method, creator)));
+        return builder.build();
     }
 
     @Nonnull
-    private <V> Map.Entry<MethodDescriptor, V> remapMethodIfNeeded(@Nonnull final Map.Entry<MethodDescriptor, V> in) {
-        final MethodDescriptor original = in.getKey();
-        final MethodDescriptor remapped = MethodDescriptor.of(MappingUtilities.INSTANCE.mapMethod(original.getName()), original.getArguments(), original.getReturnType());
-        return new AbstractMap.SimpleImmutableEntry<>(remapped, in.getValue());
+    private MethodDescriptor remapMethodIfNeeded(@Nonnull final MethodDescriptor in) {
+        return MethodDescriptor.of(MappingUtilities.INSTANCE.mapMethod(in.getName()), in.getArguments(), in.getReturnType());
     }
 }
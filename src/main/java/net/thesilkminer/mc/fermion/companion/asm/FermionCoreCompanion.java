@@ -8,6 +8,9 @@ import net.thesilkminer.mc.fermion.asm.api.PluginMetadata;
 import net.thesilkminer.mc.fermion.asm.api.transformer.Transformer;
 import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerRegistry;
 import net.thesilkminer.mc.fermion.asm.prefab.AbstractLaunchPlugin;
+import net.thesilkminer.mc.fermion.companion.asm.transformer.AllocationTrackingTransformer;
+import net.thesilkminer.mc.fermion.companion.asm.transformer.LockContentionTransformer;
+import net.thesilkminer.mc.fermion.companion.asm.transformer.MethodProfilingTransformer;
 import net.thesilkminer.mc.fermion.companion.asm.transformer.ModListTransformer;
 import net.thesilkminer.mc.fermion.companion.asm.transformer.ModLoaderTransformer;
 import net.thesilkminer.mc.fermion.companion.asm.transformer.TransformingUtilitiesTransformer;
@@ -49,6 +52,11 @@ public final class FermionCoreCompanion extends AbstractLaunchPlugin {
         this.registerTransformer(new ModListTransformer(this));
         this.registerTransformer(new TransformingUtilitiesTransformer(this));
 
+        /* Diagnostic transformers */
+        this.registerTransformer(new MethodProfilingTransformer(this));
+        this.registerTransformer(new AllocationTrackingTransformer(this));
+        this.registerTransformer(new LockContentionTransformer(this));
+
         /* Vanity transformers */
         this.registerTransformer(new BackToSingleThreadsTransformer(this));
     }
@@ -0,0 +1,178 @@
+package net.thesilkminer.mc.fermion.companion.asm.transformer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonObject;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.configuration.TransformerConfiguration;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.Transformer;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+public final class AllocationTrackingTransformer implements Transformer {
+
+    private static final Logger LOGGER = LogManager.getLogger("fermion.asm");
+    private static final Marker MARKER = MarkerManager.getMarker("Allocation Tracking");
+
+    private static final String HOOK = "net/thesilkminer/mc/fermion/companion/hook/AllocationHook";
+    private static final String DEFAULT_DUMP_FILE = "fermion_allocations.txt";
+
+    private final TransformerData data;
+    private final AtomicInteger nextId;
+
+    private volatile Map<String, List<Pattern>> targets;
+    private volatile int capacity;
+
+    public AllocationTrackingTransformer(@Nonnull final LaunchPlugin owner) {
+        this.data = TransformerData.Builder.create()
+                .setOwningPlugin(owner)
+                .setName("allocation_tracking")
+                .setDescription("If enabled, counts the allocations performed by every allocation site in the configured methods and periodically dumps them to a file")
+                .setDisabledByDefault()
+                .build();
+        this.nextId = new AtomicInteger();
+        this.targets = ImmutableMap.of();
+        this.capacity = 0;
+    }
+
+    @Nonnull
+    @Override
+    public TransformerData getData() {
+        return this.data;
+    }
+
+    @Nonnull
+    @Override
+    public Set<ClassDescriptor> getClassesToTransform() {
+        // Configuration is applied before transformers are queried for their targets, so this already reflects it
+        return DiagnosticConfiguration.toClasses(this.targets);
+    }
+
+    @Nonnull
+    @Override
+    public Supplier<TransformerConfiguration> provideConfiguration() {
+        return () -> TransformerConfiguration.Builder.create()
+                .setSerializer(() -> DiagnosticConfiguration.provideDefaults(new JsonObject(), DEFAULT_DUMP_FILE))
+                .setDeserializer(this::loadConfiguration)
+                .setConfigDefaultsProvider(it -> DiagnosticConfiguration.provideDefaults(it, DEFAULT_DUMP_FILE))
+                .build();
+    }
+
+    @Nonnull
+    @Override
+    public BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
+        return (v, cw) -> new ClassVisitor(v, cw) {
+            private String className;
+            private List<Pattern> patterns;
+
+            @Override
+            public void visit(final int version, final int access, @Nonnull final String name, @Nullable final String signature,
+                              @Nullable final String superName, @Nullable final String[] interfaces) {
+                super.visit(version, access, name, signature, superName, interfaces);
+                this.className = name;
+                this.patterns = AllocationTrackingTransformer.this.targets.getOrDefault(name, ImmutableList.of());
+            }
+
+            @Nullable
+            @Override
+            public MethodVisitor visitMethod(final int access, @Nonnull final String name, @Nonnull final String descriptor,
+                                             @Nullable final String signature, @Nullable final String[] exceptions) {
+                final MethodVisitor parent = super.visitMethod(access, name, descriptor, signature, exceptions);
+                if (parent == null || this.patterns.stream().noneMatch(it -> it.matcher(name).matches())) return parent;
+                final String location = this.className.replace('/', '.') + "." + name + descriptor;
+                return new MethodVisitor(v, parent) {
+                    private int line = -1;
+                    private boolean hasSites;
+
+                    @Override
+                    public void visitLineNumber(final int line, @Nonnull final Label start) {
+                        super.visitLineNumber(line, start);
+                        this.line = line;
+                    }
+
+                    @Override
+                    public void visitTypeInsn(final int opcode, @Nonnull final String type) {
+                        if (opcode == Opcodes.ANEWARRAY) this.recordSite(Type.getObjectType(type).getClassName() + "[]", true);
+                        super.visitTypeInsn(opcode, type);
+                        // Frames refer to uninitialized objects through the label right before their NEW, so nothing may be put between the two
+                        if (opcode == Opcodes.NEW) this.recordSite(Type.getObjectType(type).getClassName(), false);
+                    }
+
+                    @Override
+                    public void visitIntInsn(final int opcode, final int operand) {
+                        if (opcode == Opcodes.NEWARRAY) this.recordSite(toPrimitiveName(operand) + "[]", true);
+                        super.visitIntInsn(opcode, operand);
+                    }
+
+                    @Override
+                    public void visitMultiANewArrayInsn(@Nonnull final String descriptor, final int numDimensions) {
+                        this.recordSite(Type.getType(descriptor).getClassName(), false);
+                        super.visitMultiANewArrayInsn(descriptor, numDimensions);
+                    }
+
+                    @Override
+                    public void visitMaxs(final int maxStack, final int maxLocals) {
+                        // Recording an array needs its length, the id, and the site on top of whatever was there
+                        super.visitMaxs(this.hasSites ? maxStack + 3 : maxStack, maxLocals);
+                    }
+
+                    private void recordSite(@Nonnull final String type, final boolean isArray) {
+                        final int id = AllocationTrackingTransformer.this.nextId.getAndIncrement();
+                        final String site = location + ":" + (this.line == -1 ? "?" : Integer.toString(this.line)) + " new " + type;
+                        if (id >= AllocationTrackingTransformer.this.capacity) {
+                            LOGGER.warn(MARKER, "Allocation site table is full: site '" + site + "' will not be tracked");
+                            return;
+                        }
+                        LOGGER.debug(MARKER, "Tracking allocation site '" + site + "' with id " + id);
+                        this.hasSites = true;
+                        // The stack is left untouched, so no frames need to be changed
+                        if (isArray) super.visitInsn(Opcodes.DUP);
+                        super.visitLdcInsn(id);
+                        super.visitLdcInsn(site);
+                        super.visitMethodInsn(Opcodes.INVOKESTATIC, HOOK, isArray ? "recordArray" : "record",
+                                isArray ? "(IILjava/lang/String;)V" : "(ILjava/lang/String;)V", false);
+                    }
+                };
+            }
+        };
+    }
+
+    @Nonnull
+    private static String toPrimitiveName(final int operand) {
+        switch (operand) {
+            case Opcodes.T_BOOLEAN: return "boolean";
+            case Opcodes.T_CHAR: return "char";
+            case Opcodes.T_FLOAT: return "float";
+            case Opcodes.T_DOUBLE: return "double";
+            case Opcodes.T_BYTE: return "byte";
+            case Opcodes.T_SHORT: return "short";
+            case Opcodes.T_INT: return "int";
+            case Opcodes.T_LONG: return "long";
+            default: return "?";
+        }
+    }
+
+    private void loadConfiguration(@Nonnull final JsonObject configuration) {
+        this.targets = DiagnosticConfiguration.loadTargets(configuration, LOGGER, MARKER);
+        this.capacity = DiagnosticConfiguration.publish("fermion.allocations", configuration, LOGGER, MARKER);
+    }
+}
@@ -0,0 +1,109 @@
+package net.thesilkminer.mc.fermion.companion.asm.transformer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// Configuration shared by all diagnostic transformers, whose hooks are configured through system properties
+final class DiagnosticConfiguration {
+    private static final String TARGETS = "targets";
+    private static final String CAPACITY = "capacity";
+    private static final String DUMP_FILE = "dump_file";
+    private static final String DUMP_INTERVAL = "dump_interval_seconds";
+    private static final int DEFAULT_CAPACITY = 4096;
+    private static final int DEFAULT_DUMP_INTERVAL = 60;
+
+    private DiagnosticConfiguration() {}
+
+    @Nonnull
+    static JsonObject provideDefaults(@Nonnull final JsonObject configuration, @Nonnull final String defaultDumpFile) {
+        if (!configuration.has(TARGETS) || !configuration.get(TARGETS).isJsonArray()) configuration.add(TARGETS, new JsonArray());
+        if (!isNumber(configuration.get(CAPACITY))) configuration.add(CAPACITY, new JsonPrimitive(DEFAULT_CAPACITY));
+        if (!isString(configuration.get(DUMP_FILE))) configuration.add(DUMP_FILE, new JsonPrimitive(defaultDumpFile));
+        if (!isNumber(configuration.get(DUMP_INTERVAL))) configuration.add(DUMP_INTERVAL, new JsonPrimitive(DEFAULT_DUMP_INTERVAL));
+        return configuration;
+    }
+
+    @Nonnull
+    static Map<String, List<Pattern>> loadTargets(@Nonnull final JsonObject configuration, @Nonnull final Logger logger, @Nonnull final Marker marker) {
+        final Map<String, ImmutableList.Builder<Pattern>> targets = Maps.newLinkedHashMap();
+        for (@Nonnull final JsonElement element : configuration.getAsJsonArray(TARGETS)) {
+            // Format is 'fully.qualified.ClassName#methodNameGlob', where the method part is optional and defaults to all methods
+            final String target = element.getAsString();
+            final int separator = target.indexOf('#');
+            final String className = (separator == -1 ? target : target.substring(0, separator)).trim();
+            final String methodGlob = separator == -1 ? "*" : target.substring(separator + 1).trim();
+            if (className.isEmpty() || className.contains("*")) {
+                logger.warn(marker, "Invalid target '" + target + "': class names must be fully qualified and cannot contain wildcards");
+                continue;
+            }
+            targets.computeIfAbsent(className.replace('.', '/'), k -> ImmutableList.builder()).add(toPattern(methodGlob));
+        }
+        return targets.entrySet().stream().collect(ImmutableMap.toImmutableMap(Map.Entry::getKey, it -> it.getValue().build()));
+    }
+
+    static int loadCapacity(@Nonnull final JsonObject configuration) {
+        return Math.max(1, configuration.get(CAPACITY).getAsInt());
+    }
+
+    // Returns the capacity ids have to stay below, which is the first one ever published
+    static int publish(@Nonnull final String prefix, @Nonnull final JsonObject configuration, @Nonnull final Logger logger, @Nonnull final Marker marker) {
+        // Hooks live on the game class loader, so this is the only shared channel available
+        final int capacity = loadCapacity(configuration);
+        // Hooks size their tables only once, so handing out ids past the first capacity would make instrumented code fail
+        final Integer publishedCapacity = Integer.getInteger(prefix + ".capacity");
+        if (publishedCapacity == null) {
+            System.setProperty(prefix + ".capacity", Integer.toString(capacity));
+        } else if (publishedCapacity != capacity) {
+            logger.warn(marker, "Capacity changed from " + publishedCapacity + " to " + capacity + ": a restart is needed for it to apply");
+        }
+        System.setProperty(prefix + ".dump_file", configuration.get(DUMP_FILE).getAsString());
+        System.setProperty(prefix + ".dump_interval", Integer.toString(Math.max(1, configuration.get(DUMP_INTERVAL).getAsInt())));
+        return publishedCapacity == null ? capacity : publishedCapacity;
+    }
+
+    @Nonnull
+    static Set<ClassDescriptor> toClasses(@Nonnull final Map<String, List<Pattern>> targets) {
+        return targets.keySet().stream().map(it -> ClassDescriptor.of(it.replace('/', '.'))).collect(ImmutableSet.toImmutableSet());
+    }
+
+    @Nonnull
+    private static Pattern toPattern(@Nonnull final String glob) {
+        final StringBuilder builder = new StringBuilder();
+        final StringBuilder literal = new StringBuilder();
+        for (final char c : glob.toCharArray()) {
+            if (c != '*' && c != '?') {
+                literal.append(c);
+                continue;
+            }
+            if (literal.length() > 0) builder.append(Pattern.quote(literal.toString()));
+            literal.setLength(0);
+            builder.append(c == '*' ? ".*" : ".");
+        }
+        if (literal.length() > 0) builder.append(Pattern.quote(literal.toString()));
+        return Pattern.compile(builder.toString());
+    }
+
+    private static boolean isNumber(@Nullable final JsonElement element) {
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isNumber();
+    }
+
+    private static boolean isString(@Nullable final JsonElement element) {
+        return element != null && element.isJsonPrimitive() && element.getAsJsonPrimitive().isString();
+    }
+}
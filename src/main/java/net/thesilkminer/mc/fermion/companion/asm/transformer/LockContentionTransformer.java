@@ -0,0 +1,246 @@
+package net.thesilkminer.mc.fermion.companion.asm.transformer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonObject;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.configuration.TransformerConfiguration;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.Transformer;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+public final class LockContentionTransformer implements Transformer {
+
+    private static final Logger LOGGER = LogManager.getLogger("fermion.asm");
+    private static final Marker MARKER = MarkerManager.getMarker("Lock Contention");
+
+    private static final String HOOK = "net/thesilkminer/mc/fermion/companion/hook/LockHook";
+    private static final String BODY_PREFIX = "fermion$locked$";
+    private static final String DEFAULT_DUMP_FILE = "fermion_locks.txt";
+
+    private final TransformerData data;
+    private final AtomicInteger nextId;
+
+    private volatile Map<String, List<Pattern>> targets;
+    private volatile int capacity;
+
+    public LockContentionTransformer(@Nonnull final LaunchPlugin owner) {
+        this.data = TransformerData.Builder.create()
+                .setOwningPlugin(owner)
+                .setName("lock_contention")
+                .setDescription("If enabled, measures how long the configured methods wait to acquire their monitors and periodically dumps it to a file")
+                .setDisabledByDefault()
+                .build();
+        this.nextId = new AtomicInteger();
+        this.targets = ImmutableMap.of();
+        this.capacity = 0;
+    }
+
+    @Nonnull
+    @Override
+    public TransformerData getData() {
+        return this.data;
+    }
+
+    @Nonnull
+    @Override
+    public Set<ClassDescriptor> getClassesToTransform() {
+        // Configuration is applied before transformers are queried for their targets, so this already reflects it
+        return DiagnosticConfiguration.toClasses(this.targets);
+    }
+
+    @Nonnull
+    @Override
+    public Supplier<TransformerConfiguration> provideConfiguration() {
+        return () -> TransformerConfiguration.Builder.create()
+                .setSerializer(() -> DiagnosticConfiguration.provideDefaults(new JsonObject(), DEFAULT_DUMP_FILE))
+                .setDeserializer(this::loadConfiguration)
+                .setConfigDefaultsProvider(it -> DiagnosticConfiguration.provideDefaults(it, DEFAULT_DUMP_FILE))
+                .build();
+    }
+
+    @Nonnull
+    @Override
+    public BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
+        return (v, cw) -> new ClassVisitor(v, cw) {
+            private String className;
+            private boolean isInterface;
+            private int version;
+            private List<Pattern> patterns;
+
+            @Override
+            public void visit(final int version, final int access, @Nonnull final String name, @Nullable final String signature,
+                              @Nullable final String superName, @Nullable final String[] interfaces) {
+                super.visit(version, access, name, signature, superName, interfaces);
+                this.className = name;
+                this.isInterface = (access & Opcodes.ACC_INTERFACE) != 0;
+                this.version = version & 0xFFFF;
+                this.patterns = LockContentionTransformer.this.targets.getOrDefault(name, ImmutableList.of());
+            }
+
+            @Nullable
+            @Override
+            public MethodVisitor visitMethod(final int access, @Nonnull final String name, @Nonnull final String descriptor,
+                                             @Nullable final String signature, @Nullable final String[] exceptions) {
+                if (this.patterns.stream().noneMatch(it -> it.matcher(name).matches())) {
+                    return super.visitMethod(access, name, descriptor, signature, exceptions);
+                }
+
+                final String location = this.className.replace('/', '.') + "." + name + descriptor;
+                final int methodId = this.isSplittable(access, location) ? LockContentionTransformer.this.nextId(location + " synchronized method") : -1;
+                final MethodVisitor parent;
+                if (methodId == -1) {
+                    parent = super.visitMethod(access, name, descriptor, signature, exceptions);
+                } else {
+                    // The JVM acquires the monitor of synchronized methods before any code runs, so it is acquired explicitly by a wrapper instead
+                    final MethodVisitor wrapper = super.visitMethod(access & ~Opcodes.ACC_SYNCHRONIZED, name, descriptor, signature, exceptions);
+                    if (wrapper == null) return null;
+                    final MethodVisitor body = super.visitMethod(MethodSplitting.toBodyAccess(access), BODY_PREFIX + name, descriptor, signature, exceptions);
+                    final String className = this.className;
+                    final boolean hasFrames = this.version >= Opcodes.V1_6;
+                    parent = MethodSplitting.redirectToBody(v, wrapper, body,
+                            () -> generateWrapper(wrapper, className, access, name, descriptor, methodId, location + " synchronized method", hasFrames));
+                }
+                if (parent == null) return null;
+
+                return new MethodVisitor(v, parent) {
+                    private int line = -1;
+                    private boolean hasSites;
+
+                    @Override
+                    public void visitLineNumber(final int line, @Nonnull final Label start) {
+                        super.visitLineNumber(line, start);
+                        this.line = line;
+                    }
+
+                    @Override
+                    public void visitInsn(final int opcode) {
+                        if (opcode != Opcodes.MONITORENTER) {
+                            super.visitInsn(opcode);
+                            return;
+                        }
+                        final String site = location + ":" + (this.line == -1 ? "?" : Integer.toString(this.line)) + " synchronized block";
+                        final int id = LockContentionTransformer.this.nextId(site);
+                        if (id == -1) {
+                            super.visitInsn(opcode);
+                            return;
+                        }
+                        this.hasSites = true;
+                        // The start time is kept on the stack under the monitor, so no locals or frames need to be changed
+                        super.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+                        super.visitInsn(Opcodes.DUP2_X1);
+                        super.visitInsn(Opcodes.POP2);
+                        super.visitInsn(Opcodes.MONITORENTER);
+                        generateAcquired(this.mv, id, site);
+                    }
+
+                    @Override
+                    public void visitMaxs(final int maxStack, final int maxLocals) {
+                        // Two copies of the start time sit on top of the monitor while it is being moved below it
+                        super.visitMaxs(this.hasSites ? maxStack + 4 : maxStack, maxLocals);
+                    }
+                };
+            }
+
+            private boolean isSplittable(final int access, @Nonnull final String location) {
+                if ((access & Opcodes.ACC_SYNCHRONIZED) == 0) return false;
+                if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE)) != 0 || this.isInterface || (((access & Opcodes.ACC_STATIC) != 0) && this.version < Opcodes.V1_5)) {
+                    // Private methods in interfaces need Java 9 class files and class literals need Java 5 ones
+                    LOGGER.warn(MARKER, "Unable to measure contention of synchronized method '" + location + "': skipping");
+                    return false;
+                }
+                return true;
+            }
+        };
+    }
+
+    private int nextId(@Nonnull final String site) {
+        final int id = this.nextId.getAndIncrement();
+        if (id >= this.capacity) {
+            LOGGER.warn(MARKER, "Lock site table is full: site '" + site + "' will not be tracked");
+            return -1;
+        }
+        LOGGER.debug(MARKER, "Tracking lock site '" + site + "' with id " + id);
+        return id;
+    }
+
+    private static void generateWrapper(@Nonnull final MethodVisitor mv, @Nonnull final String className, final int access,
+                                        @Nonnull final String name, @Nonnull final String descriptor, final int id,
+                                        @Nonnull final String site, final boolean hasFrames) {
+        final boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
+        final Type returnType = Type.getReturnType(descriptor);
+        final int argumentsSize = MethodSplitting.getArgumentsSize(access, descriptor);
+
+        final Label start = new Label();
+        final Label end = new Label();
+        final Label handler = new Label();
+
+        mv.visitCode();
+        mv.visitTryCatchBlock(start, end, handler, null);
+        loadMonitor(mv, className, isStatic);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        mv.visitInsn(Opcodes.DUP2_X1);
+        mv.visitInsn(Opcodes.POP2);
+        mv.visitInsn(Opcodes.MONITORENTER);
+        generateAcquired(mv, id, site);
+
+        mv.visitLabel(start);
+        MethodSplitting.invokeBody(mv, className, access, BODY_PREFIX + name, descriptor);
+        mv.visitLabel(end);
+        loadMonitor(mv, className, isStatic);
+        mv.visitInsn(Opcodes.MONITOREXIT);
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+
+        // Same semantics as a synchronized method: the monitor is released however the body exits
+        mv.visitLabel(handler);
+        if (hasFrames) {
+            final Object[] locals = MethodSplitting.toFrameLocals(className, access, descriptor);
+            mv.visitFrame(Opcodes.F_FULL, locals.length, locals, 1, new Object[] { "java/lang/Throwable" });
+        }
+        loadMonitor(mv, className, isStatic);
+        mv.visitInsn(Opcodes.MONITOREXIT);
+        mv.visitInsn(Opcodes.ATHROW);
+
+        // The monitor and two copies of the start time are the most that is ever on the stack
+        mv.visitMaxs(Math.max(argumentsSize, Math.max(returnType.getSize() + 1, 5)), argumentsSize);
+        mv.visitEnd();
+    }
+
+    private static void loadMonitor(@Nonnull final MethodVisitor mv, @Nonnull final String className, final boolean isStatic) {
+        if (isStatic) {
+            mv.visitLdcInsn(Type.getObjectType(className));
+        } else {
+            mv.visitVarInsn(Opcodes.ALOAD, 0);
+        }
+    }
+
+    private static void generateAcquired(@Nonnull final MethodVisitor mv, final int id, @Nonnull final String site) {
+        mv.visitLdcInsn(id);
+        mv.visitLdcInsn(site);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, HOOK, "acquired", "(JILjava/lang/String;)V", false);
+    }
+
+    private void loadConfiguration(@Nonnull final JsonObject configuration) {
+        this.targets = DiagnosticConfiguration.loadTargets(configuration, LOGGER, MARKER);
+        this.capacity = DiagnosticConfiguration.publish("fermion.locks", configuration, LOGGER, MARKER);
+    }
+}
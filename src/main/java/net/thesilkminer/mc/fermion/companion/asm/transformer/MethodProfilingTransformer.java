@@ -0,0 +1,183 @@
+package net.thesilkminer.mc.fermion.companion.asm.transformer;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonObject;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.configuration.TransformerConfiguration;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.Transformer;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+public final class MethodProfilingTransformer implements Transformer {
+
+    private static final Logger LOGGER = LogManager.getLogger("fermion.asm");
+    private static final Marker MARKER = MarkerManager.getMarker("Method Profiling");
+
+    private static final String HOOK = "net/thesilkminer/mc/fermion/companion/hook/ProfilingHook";
+    private static final String BODY_PREFIX = "fermion$profiled$";
+
+    private static final String DEFAULT_DUMP_FILE = "fermion_profiling.txt";
+
+    private final TransformerData data;
+    private final AtomicInteger nextId;
+
+    private volatile Map<String, List<Pattern>> targets;
+    private volatile int capacity;
+
+    public MethodProfilingTransformer(@Nonnull final LaunchPlugin owner) {
+        this.data = TransformerData.Builder.create()
+                .setOwningPlugin(owner)
+                .setName("method_profiling")
+                .setDescription("If enabled, measures calls, total and maximum time of the configured methods and periodically dumps them to a file")
+                .setDisabledByDefault()
+                .build();
+        this.nextId = new AtomicInteger();
+        this.targets = ImmutableMap.of();
+        this.capacity = 0;
+    }
+
+    @Nonnull
+    @Override
+    public TransformerData getData() {
+        return this.data;
+    }
+
+    @Nonnull
+    @Override
+    public Set<ClassDescriptor> getClassesToTransform() {
+        // Configuration is applied before transformers are queried for their targets, so this already reflects it
+        return DiagnosticConfiguration.toClasses(this.targets);
+    }
+
+    @Nonnull
+    @Override
+    public Supplier<TransformerConfiguration> provideConfiguration() {
+        return () -> TransformerConfiguration.Builder.create()
+                .setSerializer(() -> DiagnosticConfiguration.provideDefaults(new JsonObject(), DEFAULT_DUMP_FILE))
+                .setDeserializer(this::loadConfiguration)
+                .setConfigDefaultsProvider(it -> DiagnosticConfiguration.provideDefaults(it, DEFAULT_DUMP_FILE))
+                .build();
+    }
+
+    @Nonnull
+    @Override
+    public BiFunction<Integer, ClassVisitor, ClassVisitor> getClassVisitorCreator() {
+        return (v, cw) -> new ClassVisitor(v, cw) {
+            private String className;
+            private boolean hasFrames;
+            private List<Pattern> patterns;
+
+            @Override
+            public void visit(final int version, final int access, @Nonnull final String name, @Nullable final String signature,
+                              @Nullable final String superName, @Nullable final String[] interfaces) {
+                super.visit(version, access, name, signature, superName, interfaces);
+                this.className = name;
+                this.hasFrames = (version & 0xFFFF) >= Opcodes.V1_6;
+                this.patterns = MethodProfilingTransformer.this.targets.getOrDefault(name, ImmutableList.of());
+                // Private methods in interfaces need Java 9 class files, which the game never uses
+                if ((access & Opcodes.ACC_INTERFACE) != 0 && !this.patterns.isEmpty()) {
+                    LOGGER.warn(MARKER, "Unable to profile methods of interface '" + name + "': skipping");
+                    this.patterns = ImmutableList.of();
+                }
+            }
+
+            @Nullable
+            @Override
+            public MethodVisitor visitMethod(final int access, @Nonnull final String name, @Nonnull final String descriptor,
+                                             @Nullable final String signature, @Nullable final String[] exceptions) {
+                if (!this.isProfilable(access, name)) return super.visitMethod(access, name, descriptor, signature, exceptions);
+
+                final int id = MethodProfilingTransformer.this.nextId.getAndIncrement();
+                if (id >= MethodProfilingTransformer.this.capacity) {
+                    LOGGER.warn(MARKER, "Profiling table is full: method '" + this.className + "." + name + descriptor + "' will not be profiled");
+                    return super.visitMethod(access, name, descriptor, signature, exceptions);
+                }
+
+                final MethodVisitor wrapper = super.visitMethod(access, name, descriptor, signature, exceptions);
+                if (wrapper == null) return null;
+                final MethodVisitor body = super.visitMethod(MethodSplitting.toBodyAccess(access), BODY_PREFIX + name, descriptor, signature, exceptions);
+
+                LOGGER.debug(MARKER, "Profiling method '" + this.className + "." + name + descriptor + "' with id " + id);
+                final String className = this.className;
+                final boolean hasFrames = this.hasFrames;
+                return MethodSplitting.redirectToBody(v, wrapper, body, () -> generateWrapper(wrapper, className, access, name, descriptor, id, hasFrames));
+            }
+
+            private boolean isProfilable(final int access, @Nonnull final String name) {
+                if ((access & (Opcodes.ACC_ABSTRACT | Opcodes.ACC_NATIVE | Opcodes.ACC_BRIDGE)) != 0) return false;
+                // Constructors and static initializers cannot be moved into another method
+                if (name.startsWith("<")) return false;
+                return this.patterns.stream().anyMatch(it -> it.matcher(name).matches());
+            }
+        };
+    }
+
+    private static void generateWrapper(@Nonnull final MethodVisitor mv, @Nonnull final String className, final int access,
+                                        @Nonnull final String name, @Nonnull final String descriptor, final int id, final boolean hasFrames) {
+        final Type returnType = Type.getReturnType(descriptor);
+        final String qualifiedName = className.replace('/', '.') + "." + name + descriptor;
+        final int startSlot = MethodSplitting.getArgumentsSize(access, descriptor);
+
+        final Label start = new Label();
+        final Label end = new Label();
+        final Label handler = new Label();
+
+        mv.visitCode();
+        mv.visitTryCatchBlock(start, end, handler, "java/lang/Throwable");
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        mv.visitVarInsn(Opcodes.LSTORE, startSlot);
+
+        mv.visitLabel(start);
+        MethodSplitting.invokeBody(mv, className, access, BODY_PREFIX + name, descriptor);
+        mv.visitLabel(end);
+        generateRecord(mv, id, qualifiedName, startSlot);
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+
+        // Exceptional exits are recorded too, then the exception is rethrown untouched
+        mv.visitLabel(handler);
+        if (hasFrames) {
+            final Object[] locals = MethodSplitting.toFrameLocals(className, access, descriptor, Opcodes.LONG);
+            mv.visitFrame(Opcodes.F_FULL, locals.length, locals, 1, new Object[] { "java/lang/Throwable" });
+        }
+        generateRecord(mv, id, qualifiedName, startSlot);
+        mv.visitInsn(Opcodes.ATHROW);
+
+        // Recording needs id, name, and two longs on top of either the return value or the exception
+        mv.visitMaxs(Math.max(startSlot, Math.max(returnType.getSize(), 1) + 6), startSlot + 2);
+        mv.visitEnd();
+    }
+
+    private static void generateRecord(@Nonnull final MethodVisitor mv, final int id, @Nonnull final String qualifiedName, final int startSlot) {
+        mv.visitLdcInsn(id);
+        mv.visitLdcInsn(qualifiedName);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, "java/lang/System", "nanoTime", "()J", false);
+        mv.visitVarInsn(Opcodes.LLOAD, startSlot);
+        mv.visitInsn(Opcodes.LSUB);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, HOOK, "record", "(ILjava/lang/String;J)V", false);
+    }
+
+    private void loadConfiguration(@Nonnull final JsonObject configuration) {
+        this.targets = DiagnosticConfiguration.loadTargets(configuration, LOGGER, MARKER);
+        this.capacity = DiagnosticConfiguration.publish("fermion.profiling", configuration, LOGGER, MARKER);
+    }
+}
@@ -0,0 +1,118 @@
+package net.thesilkminer.mc.fermion.companion.asm.transformer;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+import org.objectweb.asm.TypePath;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+// Moves the code of a method into a private body, leaving a generated wrapper with the original signature in its place.
+// Generating the wrapper means the original code, its frames, and its locals never need to be touched.
+final class MethodSplitting {
+    private MethodSplitting() {}
+
+    static int toBodyAccess(final int access) {
+        return (access & (Opcodes.ACC_STATIC | Opcodes.ACC_STRICT)) | Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC;
+    }
+
+    @Nonnull
+    static MethodVisitor redirectToBody(final int api, @Nonnull final MethodVisitor wrapper, @Nullable final MethodVisitor body,
+                                        @Nonnull final Runnable wrapperGenerator) {
+        // Everything that is visible from the outside stays on the wrapper, which is generated once the body is complete
+        return new MethodVisitor(api, body) {
+            @Override
+            public void visitParameter(@Nullable final String name, final int access) {
+                wrapper.visitParameter(name, access);
+            }
+
+            @Nullable
+            @Override
+            public AnnotationVisitor visitAnnotation(@Nonnull final String descriptor, final boolean visible) {
+                return wrapper.visitAnnotation(descriptor, visible);
+            }
+
+            @Nullable
+            @Override
+            public AnnotationVisitor visitTypeAnnotation(final int typeRef, @Nullable final TypePath typePath,
+                                                         @Nonnull final String descriptor, final boolean visible) {
+                return wrapper.visitTypeAnnotation(typeRef, typePath, descriptor, visible);
+            }
+
+            @Override
+            public void visitAnnotableParameterCount(final int parameterCount, final boolean visible) {
+                wrapper.visitAnnotableParameterCount(parameterCount, visible);
+            }
+
+            @Nullable
+            @Override
+            public AnnotationVisitor visitParameterAnnotation(final int parameter, @Nonnull final String descriptor, final boolean visible) {
+                return wrapper.visitParameterAnnotation(parameter, descriptor, visible);
+            }
+
+            @Override
+            public void visitAttribute(@Nonnull final Attribute attribute) {
+                wrapper.visitAttribute(attribute);
+            }
+
+            @Override
+            public void visitEnd() {
+                super.visitEnd();
+                wrapperGenerator.run();
+            }
+        };
+    }
+
+    static int getArgumentsSize(final int access, @Nonnull final String descriptor) {
+        // The size reported by ASM always accounts for the receiver
+        return (Type.getArgumentsAndReturnSizes(descriptor) >> 2) - ((access & Opcodes.ACC_STATIC) != 0 ? 1 : 0);
+    }
+
+    static void invokeBody(@Nonnull final MethodVisitor mv, @Nonnull final String className, final int access,
+                           @Nonnull final String bodyName, @Nonnull final String descriptor) {
+        final boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
+        /*mutable*/ int slot = 0;
+        if (!isStatic) mv.visitVarInsn(Opcodes.ALOAD, slot++);
+        for (@Nonnull final Type argument : Type.getArgumentTypes(descriptor)) {
+            mv.visitVarInsn(argument.getOpcode(Opcodes.ILOAD), slot);
+            slot += argument.getSize();
+        }
+        mv.visitMethodInsn(isStatic ? Opcodes.INVOKESTATIC : Opcodes.INVOKESPECIAL, className, bodyName, descriptor, false);
+    }
+
+    @Nonnull
+    static Object[] toFrameLocals(@Nonnull final String className, final int access, @Nonnull final String descriptor,
+                                  @Nonnull final Object... extraLocals) {
+        final boolean isStatic = (access & Opcodes.ACC_STATIC) != 0;
+        final Type[] arguments = Type.getArgumentTypes(descriptor);
+        final int offset = isStatic ? 0 : 1;
+        final Object[] locals = new Object[offset + arguments.length + extraLocals.length];
+        if (!isStatic) locals[0] = className;
+        for (int i = 0; i < arguments.length; ++i) locals[offset + i] = toFrameType(arguments[i]);
+        System.arraycopy(extraLocals, 0, locals, offset + arguments.length, extraLocals.length);
+        return locals;
+    }
+
+    @Nonnull
+    private static Object toFrameType(@Nonnull final Type type) {
+        switch (type.getSort()) {
+            case Type.BOOLEAN:
+            case Type.CHAR:
+            case Type.BYTE:
+            case Type.SHORT:
+            case Type.INT:
+                return Opcodes.INTEGER;
+            case Type.FLOAT:
+                return Opcodes.FLOAT;
+            case Type.LONG:
+                return Opcodes.LONG;
+            case Type.DOUBLE:
+                return Opcodes.DOUBLE;
+            default:
+                return type.getInternalName();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package net.thesilkminer.mc.fermion.companion.hook;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+public final class AllocationHook {
+    private static final class Entry {
+        private final String site;
+        private final long count;
+        private final long elements;
+
+        private Entry(@Nonnull final String site, final long count, final long elements) {
+            this.site = site;
+            this.count = count;
+            this.elements = elements;
+        }
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("fermion.asm");
+    private static final Marker MARKER = MarkerManager.getMarker("Allocation Hooks");
+
+    // Set by AllocationTrackingTransformer, since the two live on different class loaders
+    private static final int CAPACITY = Integer.getInteger("fermion.allocations.capacity", 4096);
+    private static final String DUMP_FILE = System.getProperty("fermion.allocations.dump_file", "fermion_allocations.txt");
+    private static final long DUMP_INTERVAL = Long.getLong("fermion.allocations.dump_interval", 60L);
+
+    private static final AtomicReferenceArray<String> SITES = new AtomicReferenceArray<>(CAPACITY);
+    // Preallocated, so that counting an allocation never allocates in turn
+    private static final LongAdder[] COUNTS = new LongAdder[CAPACITY];
+    private static final LongAdder[] ELEMENTS = new LongAdder[CAPACITY];
+
+    static {
+        for (int i = 0; i < CAPACITY; ++i) {
+            COUNTS[i] = new LongAdder();
+            ELEMENTS[i] = new LongAdder();
+        }
+        LOGGER.info(MARKER, "Allocation tracking is active: " + CAPACITY + " sites, dumping to '" + DUMP_FILE + "' every " + DUMP_INTERVAL + " seconds");
+        HookReports.schedule("Allocations", DUMP_INTERVAL, AllocationHook::dump);
+    }
+
+    private AllocationHook() {}
+
+    public static void record(final int id, @Nonnull final String site) {
+        // Never thrown into instrumented code, even if the capacity somehow changed after this class was set up
+        if (id < 0 || id >= CAPACITY) return;
+        // Benign race: every instrumented site always passes the same description for the same id
+        if (SITES.get(id) == null) SITES.lazySet(id, site);
+        COUNTS[id].increment();
+    }
+
+    public static void recordArray(final int length, final int id, @Nonnull final String site) {
+        if (id < 0 || id >= CAPACITY) return;
+        record(id, site);
+        ELEMENTS[id].add(length);
+    }
+
+    private static synchronized void dump() {
+        final List<Entry> entries = new ArrayList<>();
+        for (int id = 0; id < CAPACITY; ++id) {
+            final String site = SITES.get(id);
+            if (site != null) entries.add(new Entry(site, COUNTS[id].sum(), ELEMENTS[id].sum()));
+        }
+        entries.sort((a, b) -> Long.compare(b.count, a.count));
+
+        final List<String> lines = new ArrayList<>(entries.size() + 1);
+        lines.add(String.format("%14s %16s  %s", "allocations", "array elements", "site"));
+        entries.forEach(it -> lines.add(String.format("%14d %16d  %s", it.count, it.elements, it.site)));
+
+        HookReports.write(DUMP_FILE, lines, LOGGER, MARKER);
+    }
+}
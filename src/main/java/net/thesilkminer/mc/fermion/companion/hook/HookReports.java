@@ -0,0 +1,43 @@
+package net.thesilkminer.mc.fermion.companion.hook;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Periodic report dumping shared by all diagnostic hooks
+final class HookReports {
+    private HookReports() {}
+
+    static void schedule(@Nonnull final String name, final long interval, @Nonnull final Runnable dump) {
+        final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread thread = new Thread(r, "Fermion " + name + " Dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(dump, interval, interval, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(dump, "Fermion " + name + " Final Dump"));
+    }
+
+    static void write(@Nonnull final String file, @Nonnull final List<String> lines, @Nonnull final Logger logger, @Nonnull final Marker marker) {
+        try {
+            // Written aside and then moved, so that readers never see a half-written report
+            final Path target = Paths.get(file).toAbsolutePath();
+            final Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+            Files.write(temporary, lines, StandardCharsets.UTF_8);
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (@Nonnull final IOException e) {
+            logger.warn(marker, "Unable to dump report to '" + file + "'", e);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package net.thesilkminer.mc.fermion.companion.hook;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class LockHook {
+    private static final class Entry {
+        private final String site;
+        private final long acquisitions;
+        private final long total;
+        private final long max;
+        private final long p50;
+        private final long p99;
+
+        private Entry(@Nonnull final String site, final long acquisitions, final long total, final long max, final long p50, final long p99) {
+            this.site = site;
+            this.acquisitions = acquisitions;
+            this.total = total;
+            this.max = max;
+            this.p50 = p50;
+            this.p99 = p99;
+        }
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("fermion.asm");
+    private static final Marker MARKER = MarkerManager.getMarker("Lock Hooks");
+
+    // Set by LockContentionTransformer, since the two live on different class loaders
+    private static final int CAPACITY = Integer.getInteger("fermion.locks.capacity", 4096);
+    private static final String DUMP_FILE = System.getProperty("fermion.locks.dump_file", "fermion_locks.txt");
+    private static final long DUMP_INTERVAL = Long.getLong("fermion.locks.dump_interval", 60L);
+
+    // Bucket i counts waits in [2^(i - 1), 2^i) nanoseconds; the last one collects everything from 2^29 nanoseconds (~0.54 seconds) up
+    private static final int BUCKETS = 31;
+
+    private static final AtomicReferenceArray<String> SITES = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLongArray TOTALS = new AtomicLongArray(CAPACITY);
+    private static final AtomicLongArray MAXES = new AtomicLongArray(CAPACITY);
+    private static final AtomicLongArray HISTOGRAMS = new AtomicLongArray(CAPACITY * BUCKETS);
+
+    static {
+        LOGGER.info(MARKER, "Lock contention tracking is active: " + CAPACITY + " sites, dumping to '" + DUMP_FILE + "' every " + DUMP_INTERVAL + " seconds");
+        HookReports.schedule("Locks", DUMP_INTERVAL, LockHook::dump);
+    }
+
+    private LockHook() {}
+
+    // Called right after the monitor is entered, but outside of the range that releases it: this must never throw
+    public static void acquired(final long start, final int id, @Nonnull final String site) {
+        if (id < 0 || id >= CAPACITY) return;
+        final long wait = System.nanoTime() - start;
+        // Benign race: every instrumented site always passes the same description for the same id
+        if (SITES.get(id) == null) SITES.lazySet(id, site);
+        TOTALS.getAndAdd(id, wait);
+        HISTOGRAMS.getAndIncrement(id * BUCKETS + Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0L, wait))));
+        /*mutable*/ long max = MAXES.get(id);
+        while (wait > max && !MAXES.compareAndSet(id, max, wait)) max = MAXES.get(id);
+    }
+
+    public static synchronized void dump() {
+        final List<Entry> entries = new ArrayList<>();
+        for (int id = 0; id < CAPACITY; ++id) {
+            final String site = SITES.get(id);
+            if (site == null) continue;
+            final long[] histogram = new long[BUCKETS];
+            /*mutable*/ long acquisitions = 0L;
+            for (int bucket = 0; bucket < BUCKETS; ++bucket) {
+                histogram[bucket] = HISTOGRAMS.get(id * BUCKETS + bucket);
+                acquisitions += histogram[bucket];
+            }
+            entries.add(new Entry(site, acquisitions, TOTALS.get(id), MAXES.get(id), percentile(histogram, acquisitions, 0.50),
+                    percentile(histogram, acquisitions, 0.99)));
+        }
+        entries.sort((a, b) -> Long.compare(b.total, a.total));
+
+        final List<String> lines = new ArrayList<>(entries.size() + 1);
+        lines.add(String.format("%14s %16s %12s %14s %14s  %s", "acquisitions", "total wait (ms)", "max (us)", "p50 (us) <=", "p99 (us) <=", "site"));
+        entries.forEach(it -> lines.add(String.format("%14d %16.3f %12.3f %14.3f %14.3f  %s", it.acquisitions, it.total / 1_000_000.0,
+                it.max / 1_000.0, it.p50 / 1_000.0, it.p99 / 1_000.0, it.site)));
+
+        HookReports.write(DUMP_FILE, lines, LOGGER, MARKER);
+    }
+
+    private static long percentile(@Nonnull final long[] histogram, final long count, final double percentile) {
+        // Only the bucket is known, so its upper bound is reported
+        final long threshold = (long) Math.ceil(count * percentile);
+        /*mutable*/ long seen = 0L;
+        for (int bucket = 0; bucket < histogram.length; ++bucket) {
+            seen += histogram[bucket];
+            if (seen >= threshold) return (1L << bucket) - 1L;
+        }
+        return (1L << (histogram.length - 1)) - 1L;
+    }
+}
@@ -0,0 +1,89 @@
+package net.thesilkminer.mc.fermion.companion.hook;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.Marker;
+import org.apache.logging.log4j.MarkerManager;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+public final class ProfilingHook {
+    private static final class Entry {
+        private final String name;
+        private final long calls;
+        private final long total;
+        private final long max;
+
+        private Entry(@Nonnull final String name, final long calls, final long total, final long max) {
+            this.name = name;
+            this.calls = calls;
+            this.total = total;
+            this.max = max;
+        }
+    }
+
+    private static final Logger LOGGER = LogManager.getLogger("fermion.asm");
+    private static final Marker MARKER = MarkerManager.getMarker("Profiling Hooks");
+
+    // Set by MethodProfilingTransformer, since the two live on different class loaders
+    private static final int CAPACITY = Integer.getInteger("fermion.profiling.capacity", 4096);
+    private static final String DUMP_FILE = System.getProperty("fermion.profiling.dump_file", "fermion_profiling.txt");
+    private static final long DUMP_INTERVAL = Long.getLong("fermion.profiling.dump_interval", 60L);
+
+    // Must be a power of two; stripes of the same method are CAPACITY slots apart, so they never share a cache line
+    private static final int STRIPES = 8;
+
+    private static final AtomicReferenceArray<String> NAMES = new AtomicReferenceArray<>(CAPACITY);
+    private static final AtomicLongArray CALLS = new AtomicLongArray(CAPACITY * STRIPES);
+    private static final AtomicLongArray TOTALS = new AtomicLongArray(CAPACITY * STRIPES);
+    private static final AtomicLongArray MAXES = new AtomicLongArray(CAPACITY * STRIPES);
+
+    static {
+        LOGGER.info(MARKER, "Method profiling is active: " + CAPACITY + " slots, dumping to '" + DUMP_FILE + "' every " + DUMP_INTERVAL + " seconds");
+        HookReports.schedule("Profiling", DUMP_INTERVAL, ProfilingHook::dump);
+    }
+
+    private ProfilingHook() {}
+
+    public static void record(final int id, @Nonnull final String name, final long elapsed) {
+        // Never thrown into instrumented code, even if the capacity somehow changed after this class was set up
+        if (id < 0 || id >= CAPACITY) return;
+        // Benign race: every instrumented call site always passes the same name for the same id
+        if (NAMES.get(id) == null) NAMES.lazySet(id, name);
+        final int slot = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * CAPACITY + id;
+        CALLS.getAndIncrement(slot);
+        TOTALS.getAndAdd(slot, elapsed);
+        /*mutable*/ long max = MAXES.get(slot);
+        while (elapsed > max && !MAXES.compareAndSet(slot, max, elapsed)) max = MAXES.get(slot);
+    }
+
+    private static synchronized void dump() {
+        final List<Entry> entries = new ArrayList<>();
+        for (int id = 0; id < CAPACITY; ++id) {
+            final String name = NAMES.get(id);
+            if (name == null) continue;
+            /*mutable*/ long calls = 0L;
+            /*mutable*/ long total = 0L;
+            /*mutable*/ long max = 0L;
+            for (int stripe = 0; stripe < STRIPES; ++stripe) {
+                final int slot = stripe * CAPACITY + id;
+                calls += CALLS.get(slot);
+                total += TOTALS.get(slot);
+                max = Math.max(max, MAXES.get(slot));
+            }
+            entries.add(new Entry(name, calls, total, max));
+        }
+        entries.sort((a, b) -> Long.compare(b.total, a.total));
+
+        final List<String> lines = new ArrayList<>(entries.size() + 1);
+        lines.add(String.format("%12s %14s %12s %12s  %s", "calls", "total (ms)", "avg (us)", "max (us)", "method"));
+        entries.forEach(it -> lines.add(String.format("%12d %14.3f %12.3f %12.3f  %s", it.calls, it.total / 1_000_000.0,
+                it.calls == 0L ? 0.0 : it.total / 1_000.0 / it.calls, it.max / 1_000.0, it.name)));
+
+        HookReports.write(DUMP_FILE, lines, LOGGER, MARKER);
+    }
+}
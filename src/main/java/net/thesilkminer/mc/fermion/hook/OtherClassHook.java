@@ -8,16 +8,32 @@ import org.apache.logging.log4j.Marker;
 import org.apache.logging.log4j.MarkerManager;
 
 import javax.annotation.Nonnull;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 
 public final class OtherClassHook {
 
     private static final Logger LOGGER = LogManager.getLogger("Fermion");
     private static final Marker MARKER = MarkerManager.getMarker("OtherClassHook");
 
+    private static final Field PARAMETER;
+    private static final Method GET_ID;
+
     static {
         LOGGER.info(MARKER, "Was OtherClassHook transformed (through class)? " + TransformingUtilities.wasTransformed(OtherClassHook.class));
         LOGGER.info(MARKER, "Was Object transformed (through object)? " + TransformingUtilities.wasTransformed(new Object()));
         LOGGER.info(MARKER, "Was ModList transformed (through string)? " + TransformingUtilities.wasTransformed("net.minecraftforge.fml.ModList"));
+
+        try {
+            PARAMETER = OtherClass.class.getDeclaredField("parameter");
+            GET_ID = OtherClass.class.getDeclaredMethod("getId", Object.class);
+        } catch (@Nonnull final ReflectiveOperationException e) {
+            throw new IllegalStateException("Unable to look up members of OtherClass", e);
+        }
+        // Outside of the try block, otherwise they may be skipped and the intrinsifier wouldn't rely on them
+        PARAMETER.setAccessible(true);
+        GET_ID.setAccessible(true);
     }
 
     @Nonnull
@@ -29,6 +45,27 @@ public final class OtherClassHook {
         return -1;
     }
 
+    @Nonnull
+    public static String getParameterReflectively(@Nonnull final OtherClass instance) {
+        try {
+            return (String) PARAMETER.get(instance);
+        } catch (@Nonnull final IllegalAccessException e) {
+            throw new IllegalStateException("Unable to get parameter of OtherClass", e);
+        }
+    }
+
+    public static int getIdReflectively(@Nonnull final Object object) {
+        try {
+            return (Integer) GET_ID.invoke(null, object);
+        } catch (@Nonnull final IllegalAccessException | InvocationTargetException e) {
+            throw new IllegalStateException("Unable to call 'getId' of OtherClass", e);
+        }
+    }
+
+    public static void setParameter(@Nonnull final OtherClass instance, @Nonnull final String parameter) {}
+
+    public static void setId(final int id) {}
+
     @Nonnull
     public static String print(@Nonnull final OtherClass instance, @Nonnull final String marker) {
         return "";
@@ -37,4 +74,22 @@ public final class OtherClassHook {
     public static int getIdThroughMethod(@Nonnull final Object object) {
         return -1;
     }
+
+    @Nonnull
+    public static String replaceAll(@Nonnull final String instance, @Nonnull final String regex, @Nonnull final String replacement) {
+        LOGGER.info(MARKER, "Redirected call to replaceAll on '" + instance + "'");
+        return instance.replaceAll(regex, replacement);
+    }
+
+    public static void onConstructed(@Nonnull final OtherClass instance, @Nonnull final String parameter) {
+        LOGGER.info(MARKER, "Constructed OtherClass with parameter '" + parameter + "'");
+    }
+
+    public static void onPrint(@Nonnull final OtherClass instance) {
+        LOGGER.info(MARKER, "About to print through OtherClass");
+    }
+
+    public static void onIdAccess() {
+        LOGGER.info(MARKER, "About to access OtherClass ID");
+    }
 }
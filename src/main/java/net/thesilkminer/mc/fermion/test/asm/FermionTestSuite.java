@@ -3,8 +3,12 @@ package net.thesilkminer.mc.fermion.test.asm;
 import com.google.common.collect.ImmutableSet;
 import net.thesilkminer.mc.fermion.asm.api.PluginMetadata;
 import net.thesilkminer.mc.fermion.asm.prefab.AbstractLaunchPlugin;
+import net.thesilkminer.mc.fermion.test.asm.transformer.TestBulkAccessTransformer;
+import net.thesilkminer.mc.fermion.test.asm.transformer.TestCallSiteRedirectTransformer;
 import net.thesilkminer.mc.fermion.test.asm.transformer.TestHookingVanillaTransformer;
+import net.thesilkminer.mc.fermion.test.asm.transformer.TestInjectionTransformer;
 import net.thesilkminer.mc.fermion.test.asm.transformer.TestMethodNameRemappingTransformer;
+import net.thesilkminer.mc.fermion.test.asm.transformer.TestReflectionIntrinsifierTransformer;
 import net.thesilkminer.mc.fermion.test.asm.transformer.TestRuntimeFieldAccessTransformer;
 import net.thesilkminer.mc.fermion.test.asm.transformer.TestRuntimeMethodAccessTransformer;
 import net.thesilkminer.mc.fermion.test.asm.transformer.TestSingleTargetMethodTransformer;
@@ -39,8 +43,12 @@ public final class FermionTestSuite extends AbstractLaunchPlugin {
     }
 
     private void registerTransformers() {
+        this.registerTransformer(new TestBulkAccessTransformer(this));
+        this.registerTransformer(new TestCallSiteRedirectTransformer(this));
         this.registerTransformer(new TestHookingVanillaTransformer(this));
+        this.registerTransformer(new TestInjectionTransformer(this));
         this.registerTransformer(new TestMethodNameRemappingTransformer(this));
+        this.registerTransformer(new TestReflectionIntrinsifierTransformer(this));
         this.registerTransformer(new TestRuntimeFieldAccessTransformer(this));
         this.registerTransformer(new TestRuntimeMethodAccessTransformer(this));
         this.registerTransformer(new TestSingleTargetMethodTransformer(this));
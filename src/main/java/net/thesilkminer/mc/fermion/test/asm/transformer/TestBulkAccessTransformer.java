@@ -0,0 +1,40 @@
+package net.thesilkminer.mc.fermion.test.asm.transformer;
+
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import net.thesilkminer.mc.fermion.asm.prefab.transformer.AccessTransformerRules;
+import net.thesilkminer.mc.fermion.asm.prefab.transformer.BulkAccessTransformer;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.StringReader;
+
+public final class TestBulkAccessTransformer extends BulkAccessTransformer {
+
+    private static final String RULES = "# Test rules, in the same format as Forge's accesstransformer.cfg\n" +
+            "public-f net.thesilkminer.mc.fermion.OtherClass printed # Also strips final\n" +
+            "public net.thesilkminer.mc.fermion.OtherClass getPrinted()Ljava/lang/String;\n" +
+            "protected net.thesilkminer.mc.fermion.OtherClass <init>(Ljava/lang/String;)V\n" +
+            "public net.thesilkminer.mc.fermion.OtherClass print(Ljava/lang/String;)Ljava/lang/String; # Calls to it become virtual\n";
+
+    public TestBulkAccessTransformer(@Nonnull final LaunchPlugin owner) {
+        super(
+                TransformerData.Builder.create()
+                        .setOwningPlugin(owner)
+                        .setName("test_bulk_at")
+                        .setDescription("This is a test for the BulkAccessTransformer")
+                        .setDisabledByDefault()
+                        .build(),
+                readRules()
+        );
+    }
+
+    @Nonnull
+    private static AccessTransformerRules readRules() {
+        try {
+            return AccessTransformerRules.Builder.create().readText(new StringReader(RULES)).build();
+        } catch (@Nonnull final IOException e) {
+            throw new IllegalStateException("Unable to read rules from a string? What?", e);
+        }
+    }
+}
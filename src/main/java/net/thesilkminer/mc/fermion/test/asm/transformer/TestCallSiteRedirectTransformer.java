@@ -0,0 +1,36 @@
+package net.thesilkminer.mc.fermion.test.asm.transformer;
+
+import com.google.common.collect.ImmutableList;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import net.thesilkminer.mc.fermion.asm.prefab.transformer.CallSiteRedirectTransformer;
+
+import javax.annotation.Nonnull;
+
+public final class TestCallSiteRedirectTransformer extends CallSiteRedirectTransformer {
+
+    public TestCallSiteRedirectTransformer(@Nonnull final LaunchPlugin owner) {
+        super(
+                TransformerData.Builder.create()
+                        .setOwningPlugin(owner)
+                        .setName("test_call_site_redirect")
+                        .setDescription("This is a test for the CallSiteRedirectTransformer")
+                        .setDisabledByDefault()
+                        .build(),
+                RedirectDescriptor.Builder.create()
+                        .setTargetClass(ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"))
+                        .setRedirectedMethod(
+                                ClassDescriptor.of(String.class),
+                                MethodDescriptor.of(
+                                        "replaceAll",
+                                        ImmutableList.of(ClassDescriptor.of(String.class), ClassDescriptor.of(String.class)),
+                                        ClassDescriptor.of(String.class)
+                                )
+                        )
+                        .setHookMethod(ClassDescriptor.of("net.thesilkminer.mc.fermion.hook.OtherClassHook"), "replaceAll")
+                        .build()
+        );
+    }
+}
@@ -0,0 +1,70 @@
+package net.thesilkminer.mc.fermion.test.asm.transformer;
+
+import com.google.common.collect.ImmutableList;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.FieldDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import net.thesilkminer.mc.fermion.asm.prefab.transformer.InjectionTransformer;
+
+import javax.annotation.Nonnull;
+
+public final class TestInjectionTransformer extends InjectionTransformer {
+
+    public TestInjectionTransformer(@Nonnull final LaunchPlugin owner) {
+        super(
+                TransformerData.Builder.create()
+                        .setOwningPlugin(owner)
+                        .setName("test_injection")
+                        .setDescription("This is a test for the InjectionTransformer")
+                        .setDisabledByDefault()
+                        .build(),
+                ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"),
+                InjectionDescriptor.Builder.create()
+                        .setTargetMethod(
+                                MethodDescriptor.of("<init>", ImmutableList.of(ClassDescriptor.of(String.class)), ClassDescriptor.of(void.class)),
+                                false
+                        )
+                        .setInjectionPoint(InjectionPoint.eachReturn())
+                        .setHookMethod(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.hook.OtherClassHook"),
+                                MethodDescriptor.of(
+                                        "onConstructed",
+                                        ImmutableList.of(ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"), ClassDescriptor.of(String.class)),
+                                        ClassDescriptor.of(void.class)
+                                )
+                        )
+                        .build(),
+                InjectionDescriptor.Builder.create()
+                        .setTargetMethod(
+                                MethodDescriptor.of("print", ImmutableList.of(ClassDescriptor.of(String.class)), ClassDescriptor.of(String.class)),
+                                false
+                        )
+                        .setInjectionPoint(InjectionPoint.head())
+                        .setHookMethod(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.hook.OtherClassHook"),
+                                MethodDescriptor.of(
+                                        "onPrint",
+                                        ImmutableList.of(ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass")),
+                                        ClassDescriptor.of(void.class)
+                                )
+                        )
+                        .build(),
+                InjectionDescriptor.Builder.create()
+                        .setTargetMethod(
+                                MethodDescriptor.of("<init>", ImmutableList.of(ClassDescriptor.of(String.class)), ClassDescriptor.of(void.class)),
+                                false
+                        )
+                        .setInjectionPoint(InjectionPoint.beforeFieldAccess(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"),
+                                FieldDescriptor.of("ID", ClassDescriptor.of(int.class), true)
+                        ))
+                        .setHookMethod(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.hook.OtherClassHook"),
+                                MethodDescriptor.of("onIdAccess", ImmutableList.of(), ClassDescriptor.of(void.class))
+                        )
+                        .build()
+        );
+    }
+}
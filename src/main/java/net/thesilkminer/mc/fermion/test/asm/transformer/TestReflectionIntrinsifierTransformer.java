@@ -0,0 +1,41 @@
+package net.thesilkminer.mc.fermion.test.asm.transformer;
+
+import com.google.common.collect.ImmutableList;
+import net.thesilkminer.mc.fermion.asm.api.LaunchPlugin;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.ClassDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.FieldDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.descriptor.MethodDescriptor;
+import net.thesilkminer.mc.fermion.asm.api.transformer.TransformerData;
+import net.thesilkminer.mc.fermion.asm.prefab.transformer.ReflectionIntrinsifierTransformer;
+
+import javax.annotation.Nonnull;
+
+public final class TestReflectionIntrinsifierTransformer extends ReflectionIntrinsifierTransformer {
+
+    public TestReflectionIntrinsifierTransformer(@Nonnull final LaunchPlugin owner) {
+        super(
+                TransformerData.Builder.create()
+                        .setOwningPlugin(owner)
+                        .setName("test_reflection_intrinsifier")
+                        .setDescription("This is a test for the ReflectionIntrinsifierTransformer")
+                        .setDisabledByDefault()
+                        .build(),
+                Targets.Builder.create()
+                        .addCallSite(ClassDescriptor.of("net.thesilkminer.mc.fermion.hook.OtherClassHook"))
+                        .addField(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"),
+                                FieldDescriptor.of("parameter", ClassDescriptor.of(String.class), false)
+                        )
+                        .addMethod(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"),
+                                MethodDescriptor.of(
+                                        "getId",
+                                        ImmutableList.of(ClassDescriptor.of(Object.class)),
+                                        ClassDescriptor.of(int.class)
+                                ),
+                                true
+                        )
+                        .build()
+        );
+    }
+}
@@ -46,6 +46,34 @@ public final class TestRuntimeFieldAccessTransformer extends RuntimeFieldAccessT
                                         ClassDescriptor.of(int.class)
                                 )
                         )
+                        .build(),
+                TargetDescriptor.Builder.create()
+                        .setTargetField(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"),
+                                FieldDescriptor.of("parameter", ClassDescriptor.of(String.class))
+                        )
+                        .setSetterMethod(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.hook.OtherClassHook"),
+                                MethodDescriptor.of(
+                                        "setParameter",
+                                        ImmutableList.of(ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"), ClassDescriptor.of(String.class)),
+                                        ClassDescriptor.of(void.class))
+                        )
+                        .setFinalModifierRemoved()
+                        .build(),
+                TargetDescriptor.Builder.create()
+                        .setTargetField(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.OtherClass"),
+                                FieldDescriptor.of("ID", ClassDescriptor.of(int.class), true)
+                        )
+                        .setSetterMethod(
+                                ClassDescriptor.of("net.thesilkminer.mc.fermion.hook.OtherClassHook"),
+                                MethodDescriptor.of(
+                                        "setId",
+                                        ImmutableList.of(ClassDescriptor.of(int.class)),
+                                        ClassDescriptor.of(void.class)
+                                )
+                        )
                         .build()
         );
     }
@@ -0,0 +1,82 @@
+package net.thesilkminer.mc.fermion.test.harness;
+
+import com.google.common.collect.ImmutableList;
+import cpw.mods.modlauncher.api.IEnvironment;
+import cpw.mods.modlauncher.api.ITransformerVotingContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+// Stand-ins for ModLauncher's objects. These are proxies rather than implementations so that they keep working
+// even if ModLauncher adds methods to its interfaces: anything we don't care about gets an "empty" answer.
+final class HarnessEnvironment {
+
+    @FunctionalInterface
+    private interface Answer {
+        @Nullable Object answer(@Nonnull final Method method, @Nonnull final Object[] args);
+    }
+
+    private static final Object UNHANDLED = new Object();
+
+    private HarnessEnvironment() {}
+
+    @Nonnull
+    static IEnvironment environment(@Nonnull final Path gameDirectory) {
+        return proxy(IEnvironment.class, "HarnessEnvironment{gameDirectory=" + gameDirectory + "}", (method, args) -> {
+            if ("getProperty".equals(method.getName()) && args.length == 1) {
+                return Objects.equals(args[0], IEnvironment.Keys.GAMEDIR.get()) ? Optional.of(gameDirectory) : Optional.empty();
+            }
+            return UNHANDLED;
+        });
+    }
+
+    @Nonnull
+    static ITransformerVotingContext votingContext(@Nonnull final String className) {
+        return proxy(ITransformerVotingContext.class, "HarnessVotingContext{className=" + className + "}", (method, args) -> {
+            if ("getClassName".equals(method.getName())) return className;
+            if ("doesClassExist".equals(method.getName())) return true;
+            return UNHANDLED;
+        });
+    }
+
+    @Nonnull
+    private static <T> T proxy(@Nonnull final Class<T> type, @Nonnull final String name, @Nonnull final Answer answer) {
+        final InvocationHandler handler = (proxy, method, args) -> {
+            final Object[] arguments = args == null ? new Object[0] : args;
+            switch (method.getName()) {
+                case "toString": if (arguments.length == 0) return name; break;
+                case "hashCode": if (arguments.length == 0) return System.identityHashCode(proxy); break;
+                case "equals": if (arguments.length == 1) return proxy == arguments[0]; break;
+                default: break;
+            }
+            final Object result = answer.answer(method, arguments);
+            return result == UNHANDLED ? defaultValue(method.getReturnType()) : result;
+        };
+        return type.cast(Proxy.newProxyInstance(HarnessEnvironment.class.getClassLoader(), new Class<?>[] { type }, handler));
+    }
+
+    @Nullable
+    private static Object defaultValue(@Nonnull final Class<?> returnType) {
+        if (Optional.class.equals(returnType)) return Optional.empty();
+        if (List.class.equals(returnType)) return ImmutableList.of();
+        if (boolean.class.equals(returnType)) return false;
+        if (byte[].class.equals(returnType)) return new byte[0];
+        if (returnType.isPrimitive() && !void.class.equals(returnType)) {
+            if (char.class.equals(returnType)) return '\0';
+            if (long.class.equals(returnType)) return 0L;
+            if (float.class.equals(returnType)) return 0.0F;
+            if (double.class.equals(returnType)) return 0.0;
+            if (byte.class.equals(returnType)) return (byte) 0;
+            if (short.class.equals(returnType)) return (short) 0;
+            return 0;
+        }
+        return null;
+    }
+}
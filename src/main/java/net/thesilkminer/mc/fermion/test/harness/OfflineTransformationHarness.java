@@ -0,0 +1,396 @@
+package net.thesilkminer.mc.fermion.test.harness;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import cpw.mods.modlauncher.api.IEnvironment;
+import cpw.mods.modlauncher.api.ITransformer;
+import cpw.mods.modlauncher.api.ITransformerVotingContext;
+import cpw.mods.modlauncher.api.IncompatibleEnvironmentException;
+import cpw.mods.modlauncher.api.TransformerVoteResult;
+import net.thesilkminer.mc.fermion.asm.common.FermionTransformationService;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.tree.ClassNode;
+
+import javax.annotation.Nonnull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Runs the whole Fermion transformation pipeline outside of the game.
+ *
+ * <p>The harness creates a {@link FermionTransformationService} and drives it
+ * through the same lifecycle ModLauncher would, using stand-ins for the
+ * {@link IEnvironment} and {@link ITransformerVotingContext}. Class bytes can
+ * then be fed in, either one by one or from a directory or JAR file, and the
+ * results inspected through {@link Result}.</p>
+ *
+ * <p>It can also be run from the command line, specifying the directory or
+ * JAR file to transform and, optionally, the game directory to use:</p>
+ *
+ * <pre>
+ * java -cp &lt;runtime classpath&gt; net.thesilkminer.mc.fermion.test.harness.OfflineTransformationHarness &lt;classes&gt; [game directory]
+ * </pre>
+ */
+public final class OfflineTransformationHarness {
+
+    /**
+     * The outcome of feeding a single class to the harness.
+     */
+    public static final class Result {
+        private final String className;
+        private final byte[] input;
+        private final byte[] rewrittenInput;
+        private final byte[] output;
+        private final boolean targeted;
+        private final long time;
+
+        private Result(@Nonnull final String className, @Nonnull final byte[] input, @Nonnull final byte[] rewrittenInput,
+                       @Nonnull final byte[] output, final boolean targeted, final long time) {
+            this.className = className;
+            this.input = input;
+            this.rewrittenInput = rewrittenInput;
+            this.output = output;
+            this.targeted = targeted;
+            this.time = time;
+        }
+
+        @Nonnull
+        public String getClassName() {
+            return this.className;
+        }
+
+        @Nonnull
+        public byte[] getInput() {
+            return this.input.clone();
+        }
+
+        @Nonnull
+        public byte[] getOutput() {
+            return this.output.clone();
+        }
+
+        public boolean isTargeted() {
+            return this.targeted;
+        }
+
+        /**
+         * Gets whether at least one enabled transformer touched this class,
+         * i.e. whether the universal transformer marked it as patched.
+         */
+        public boolean isPatched() {
+            return this.getOutputNode().fields.stream()
+                    .anyMatch(it -> PATCH_FIELD.equals(it.name) && (it.access & Opcodes.ACC_SYNTHETIC) != 0);
+        }
+
+        /**
+         * Gets the time spent inside the Fermion transformer, in nanoseconds.
+         */
+        public long getTime() {
+            return this.time;
+        }
+
+        @Nonnull
+        public ClassNode getOutputNode() {
+            return readNode(this.output);
+        }
+
+        @Nonnull
+        public Result assertTargeted() {
+            return this.assertThat(it -> this.targeted, "class should have been targeted by Fermion");
+        }
+
+        @Nonnull
+        public Result assertPatched() {
+            return this.assertThat(it -> this.isPatched(), "class should have been patched by at least one transformer");
+        }
+
+        @Nonnull
+        public Result assertUntouched() {
+            return this.assertThat(it -> this.input == this.output, "class should have been left untouched");
+        }
+
+        /**
+         * Asserts that the output is identical to the input, byte for byte,
+         * once both are written the same way.
+         *
+         * <p>This is what happens when no transformer is enabled for the
+         * class: Fermion must then hand it back as it received it.</p>
+         */
+        @Nonnull
+        public Result assertUnchanged() {
+            return this.assertThat(it -> this.input == this.output || Arrays.equals(this.rewrittenInput, this.output),
+                    "class should be identical to its input");
+        }
+
+        /**
+         * Asserts that every field and method of the input is still there,
+         * with the same descriptor.
+         */
+        @Nonnull
+        public Result assertKeepsMembers() {
+            final ClassNode input = readNode(this.input);
+            final ClassNode output = this.getOutputNode();
+            input.fields.forEach(field -> this.assertHasField(field.name, field.desc, 0));
+            input.methods.forEach(method -> this.assertHasMethod(method.name, method.desc, 0));
+            return this.assertThat(it -> output.fields.size() >= input.fields.size() && output.methods.size() >= input.methods.size(),
+                    "class should not lose any members");
+        }
+
+        /**
+         * Asserts that the output declares the given field, with at least the
+         * given access flags.
+         */
+        @Nonnull
+        public Result assertHasField(@Nonnull final String name, @Nonnull final String descriptor, final int access) {
+            return this.assertThat(node -> node.fields.stream().anyMatch(it -> name.equals(it.name) && descriptor.equals(it.desc) && (it.access & access) == access),
+                    "class should declare field '" + name + "' of type '" + descriptor + "' with access flags " + access);
+        }
+
+        /**
+         * Asserts that the output declares the given method, with at least
+         * the given access flags.
+         */
+        @Nonnull
+        public Result assertHasMethod(@Nonnull final String name, @Nonnull final String descriptor, final int access) {
+            return this.assertThat(node -> node.methods.stream().anyMatch(it -> name.equals(it.name) && descriptor.equals(it.desc) && (it.access & access) == access),
+                    "class should declare method '" + name + descriptor + "' with access flags " + access);
+        }
+
+        /**
+         * Asserts that the output passes the verifier of the running JVM.
+         *
+         * <p>The class is defined in a throwaway class loader and linked, but
+         * not initialized. Classes it refers to are looked up through the
+         * given class loader, so it should be able to load the classes that
+         * were fed to the harness and their dependencies.</p>
+         */
+        @Nonnull
+        public Result assertVerifiable(@Nonnull final ClassLoader dependencies) {
+            try {
+                // Linking is what runs the verifier, and HotSpot links a class before handing out its methods
+                new VerifyingClassLoader(dependencies).define(this.className, this.output).getDeclaredMethods();
+            } catch (@Nonnull final LinkageError e) {
+                throw new AssertionError("Assertion failed for class '" + this.className + "': class should pass verification", e);
+            }
+            return this;
+        }
+
+        @Nonnull
+        public Result assertThat(@Nonnull final Predicate<ClassNode> check, @Nonnull final String description) {
+            if (!check.test(this.getOutputNode())) {
+                throw new AssertionError("Assertion failed for class '" + this.className + "': " + description);
+            }
+            return this;
+        }
+
+        @Override
+        public String toString() {
+            return "Result{" +
+                    "className='" + this.className + '\'' +
+                    ", targeted=" + this.targeted +
+                    ", time=" + this.time +
+                    '}';
+        }
+    }
+
+    private static final class VerifyingClassLoader extends ClassLoader {
+        private VerifyingClassLoader(@Nonnull final ClassLoader parent) {
+            super(parent);
+        }
+
+        @Nonnull
+        private Class<?> define(@Nonnull final String name, @Nonnull final byte[] bytes) {
+            return this.defineClass(name, bytes, 0, bytes.length);
+        }
+    }
+
+    private static final String PATCH_FIELD = "_re_syst_patch_successful";
+
+    private final ITransformer<ClassNode> transformer;
+    private final Set<String> targets;
+
+    private OfflineTransformationHarness(@Nonnull final ITransformer<ClassNode> transformer) {
+        this.transformer = transformer;
+        this.targets = ImmutableSet.copyOf(transformer.targets().stream().map(ITransformer.Target::getClassName).collect(Collectors.toSet()));
+    }
+
+    /**
+     * Bootstraps a new Fermion transformation service in the given game
+     * directory and wraps its transformer.
+     *
+     * <p>Configuration files are read from and written to
+     * {@code config/FermionEnv} inside the game directory, exactly like in a
+     * real launch; launch plugins are discovered from the class path and from
+     * the {@code mods} directory, if present.</p>
+     */
+    @Nonnull
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static OfflineTransformationHarness create(@Nonnull final Path gameDirectory) {
+        final FermionTransformationService service = new FermionTransformationService();
+        final IEnvironment environment = HarnessEnvironment.environment(Preconditions.checkNotNull(gameDirectory).toAbsolutePath().normalize());
+
+        // Same order in which ModLauncher calls them
+        try {
+            service.onLoad(environment, ImmutableSet.of());
+        } catch (@Nonnull final IncompatibleEnvironmentException e) {
+            throw new IllegalStateException("Fermion could not be loaded in the harness environment", e);
+        }
+        service.initialize(environment);
+        service.beginScanning(environment);
+
+        final List<ITransformer> transformers = service.transformers();
+        Preconditions.checkState(transformers.size() == 1, "Expected exactly one transformer, but got " + transformers);
+        return new OfflineTransformationHarness((ITransformer<ClassNode>) transformers.get(0));
+    }
+
+    @Nonnull
+    public Set<String> getTargets() {
+        return this.targets;
+    }
+
+    /**
+     * Feeds the given class to Fermion, if it is targeted by any transformer.
+     *
+     * <p>Classes that are not targeted are returned untouched, like
+     * ModLauncher would do.</p>
+     */
+    @Nonnull
+    public Result transform(@Nonnull final byte[] classBytes) {
+        final ClassNode input = readNode(Preconditions.checkNotNull(classBytes));
+        final String className = input.name.replace('/', '.');
+
+        if (!this.targets.contains(className)) return new Result(className, classBytes, classBytes, classBytes, false, 0L);
+
+        final ITransformerVotingContext context = HarnessEnvironment.votingContext(className);
+        if (this.transformer.castVote(context) != TransformerVoteResult.YES) return new Result(className, classBytes, classBytes, classBytes, true, 0L);
+
+        // Written before transforming, since the transformer is free to modify the node it is given
+        final byte[] rewrittenInput = writeNode(input);
+        final long start = System.nanoTime();
+        final ClassNode output = this.transformer.transform(input, context);
+        final long time = System.nanoTime() - start;
+
+        return new Result(className, classBytes, rewrittenInput, writeNode(output), true, time);
+    }
+
+    /**
+     * Feeds every class found in the given directory or JAR file to Fermion.
+     *
+     * @return
+     *      The results, in a stable order (i.e. sorted by the class file
+     *      path).
+     */
+    @Nonnull
+    public List<Result> transformAll(@Nonnull final Path source) throws IOException {
+        final List<Result> results = Lists.newArrayList();
+        if (Files.isDirectory(source)) {
+            try (final Stream<Path> files = Files.walk(source)) {
+                final List<Path> classes = files.filter(Files::isRegularFile)
+                        .filter(it -> it.toString().endsWith(".class"))
+                        .sorted()
+                        .collect(Collectors.toList());
+                for (@Nonnull final Path file : classes) results.add(this.transform(Files.readAllBytes(file)));
+            }
+        } else {
+            try (final ZipFile jar = new ZipFile(source.toFile())) {
+                final List<ZipEntry> classes = Lists.newArrayList();
+                final Enumeration<? extends ZipEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    final ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().endsWith(".class")) classes.add(entry);
+                }
+                classes.sort((a, b) -> a.getName().compareTo(b.getName()));
+                for (@Nonnull final ZipEntry entry : classes) {
+                    try (final InputStream stream = jar.getInputStream(entry)) {
+                        results.add(this.transform(readFully(stream)));
+                    }
+                }
+            }
+        }
+        return ImmutableList.copyOf(results);
+    }
+
+    @Nonnull
+    private static ClassNode readNode(@Nonnull final byte[] classBytes) {
+        final ClassNode node = new ClassNode(Opcodes.ASM6);
+        new ClassReader(classBytes).accept(node, 0);
+        return node;
+    }
+
+    @Nonnull
+    private static byte[] writeNode(@Nonnull final ClassNode node) {
+        final ClassWriter writer = new ClassWriter(0);
+        node.accept(writer);
+        return writer.toByteArray();
+    }
+
+    @Nonnull
+    private static byte[] readFully(@Nonnull final InputStream stream) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final byte[] buffer = new byte[8192];
+        /*mutable*/ int read;
+        while ((read = stream.read(buffer)) != -1) out.write(buffer, 0, read);
+        return out.toByteArray();
+    }
+
+    public static void main(@Nonnull final String... args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: OfflineTransformationHarness <classes directory or jar> [game directory]");
+            System.exit(2);
+            return;
+        }
+
+        final Path source = Paths.get(args[0]).toAbsolutePath().normalize();
+        final Path gameDirectory = args.length > 1 ? Paths.get(args[1]) : Files.createTempDirectory("fermion-harness");
+
+        final long bootStart = System.nanoTime();
+        final OfflineTransformationHarness harness = create(gameDirectory);
+        final long bootTime = System.nanoTime() - bootStart;
+
+        final List<Result> results = harness.transformAll(source);
+        final List<String> failures = Lists.newArrayList();
+
+        try (final URLClassLoader dependencies = new URLClassLoader(new URL[] { source.toUri().toURL() }, OfflineTransformationHarness.class.getClassLoader())) {
+            for (@Nonnull final Result result : results) {
+                if (!result.isTargeted()) continue;
+                try {
+                    result.assertKeepsMembers().assertVerifiable(dependencies);
+                    // A class no transformer touched must come out exactly as it went in
+                    if (!result.isPatched()) result.assertUnchanged();
+                    System.out.println("Transformed '" + result.getClassName() + "' in " + result.getTime() / 1000 + " us (patched: " + result.isPatched() + ")");
+                } catch (@Nonnull final RuntimeException | AssertionError e) {
+                    failures.add(result.getClassName() + ": " + e + (e.getCause() == null ? "" : " (" + e.getCause() + ")"));
+                }
+            }
+        }
+
+        final long targeted = results.stream().filter(Result::isTargeted).count();
+        final long totalTime = results.stream().mapToLong(Result::getTime).sum();
+        System.out.println("Bootstrapped Fermion in " + bootTime / 1_000_000 + " ms");
+        System.out.println("Processed " + results.size() + " classes, " + targeted + " targeted, in " + totalTime / 1_000_000 + " ms of transformation time");
+
+        if (!failures.isEmpty()) {
+            failures.forEach(it -> System.err.println("FAILED: " + it));
+            System.exit(1);
+        }
+    }
+}